@@ -1,6 +1,9 @@
 package com.mikedeejay2.fastreload;
 
+import com.mikedeejay2.fastreload.commands.FootprintCommand;
 import com.mikedeejay2.fastreload.commands.ReloadConfigCommand;
+import com.mikedeejay2.fastreload.commands.ReloadJournalCommand;
+import com.mikedeejay2.fastreload.commands.SoakTestCommand;
 import com.mikedeejay2.fastreload.config.FastReloadConfig;
 import com.mikedeejay2.fastreload.system.ReloadSystem;
 import com.mikedeejay2.fastreload.util.BukkitFields;
@@ -32,6 +35,9 @@ public final class FastReload extends JavaPlugin {
         this.config.loadConfig();
 
         this.getCommand("fastreloadrc").setExecutor(new ReloadConfigCommand(this));
+        this.getCommand("fastreloadjournal").setExecutor(new ReloadJournalCommand(this));
+        this.getCommand("fastreloadfootprint").setExecutor(new FootprintCommand(this));
+        this.getCommand("fastreloadsoak").setExecutor(new SoakTestCommand(this));
     }
 
     @Override
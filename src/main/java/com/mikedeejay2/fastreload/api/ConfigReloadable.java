@@ -0,0 +1,22 @@
+package com.mikedeejay2.fastreload.api;
+
+import java.io.File;
+import java.util.Set;
+
+/**
+ * Interface for plugins that can reload their configuration without being fully reloaded.
+ * <p>
+ * When FastReload is watching plugin data folders and a configuration file in the data folder of a plugin changes,
+ * FastReload calls {@link ConfigReloadable#onConfigReload(Set)} on the plugin's main class if it implements this
+ * interface, instead of disabling and enabling the whole plugin.
+ *
+ * @author Mikedeejay2
+ */
+public interface ConfigReloadable {
+    /**
+     * Called on the main thread after files in this plugin's data folder have changed.
+     *
+     * @param changedFiles The files that were created, modified or deleted
+     */
+    void onConfigReload(Set<File> changedFiles);
+}
@@ -0,0 +1,40 @@
+package com.mikedeejay2.fastreload.api;
+
+/**
+ * Immutable options of a reload requested through the {@link ReloadService}.
+ *
+ * @author Mikedeejay2
+ */
+public final class ReloadOptions {
+    private static final ReloadOptions DEFAULTS = new ReloadOptions(false);
+
+    private final boolean cascadeDependents;
+
+    private ReloadOptions(boolean cascadeDependents) {
+        this.cascadeDependents = cascadeDependents;
+    }
+
+    /**
+     * Get the default options: only the requested plugins are reloaded.
+     *
+     * @return The default options
+     */
+    public static ReloadOptions defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Get a copy of these options that also reloads every loaded plugin that (transitively) depends or soft depends
+     * on a requested plugin.
+     *
+     * @param cascadeDependents Whether to reload the dependents of the requested plugins
+     * @return The new options
+     */
+    public ReloadOptions withCascadeDependents(boolean cascadeDependents) {
+        return new ReloadOptions(cascadeDependents);
+    }
+
+    public boolean isCascadeDependents() {
+        return cascadeDependents;
+    }
+}
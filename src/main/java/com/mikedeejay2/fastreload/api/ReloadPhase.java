@@ -0,0 +1,39 @@
+package com.mikedeejay2.fastreload.api;
+
+/**
+ * The timed phases of a plugin reload, in the order that they run.
+ *
+ * @author Mikedeejay2
+ */
+public enum ReloadPhase {
+    /**
+     * Attempting to redefine the plugin's classes in place, when only method bodies changed
+     */
+    HOT_SWAP,
+    /**
+     * Disabling the plugin through the plugin manager
+     */
+    DISABLE,
+    /**
+     * Removing the tasks, services, messaging channels and recipes that the disabled plugin left behind
+     */
+    TEARDOWN,
+    /**
+     * Unregistering the plugin, its commands, lookup names and permissions
+     */
+    UNREGISTER,
+    /**
+     * Loading the plugin from its jar file
+     */
+    LOAD,
+    /**
+     * Enabling the newly loaded plugin
+     */
+    ENABLE,
+    /**
+     * Sending the updated command tree to players
+     */
+    SYNC_COMMANDS;
+
+    public static final ReloadPhase[] VALUES = values();
+}
@@ -0,0 +1,97 @@
+package com.mikedeejay2.fastreload.api;
+
+import java.util.List;
+
+/**
+ * The result of a reload requested through the {@link ReloadService}. Implemented by FastReload.
+ *
+ * @author Mikedeejay2
+ */
+public interface ReloadResult {
+    /**
+     * Get whether every requested plugin was reloaded successfully.
+     *
+     * @return Whether the reload succeeded
+     */
+    default boolean isSuccess() {
+        for(PluginResult plugin : getPlugins()) {
+            if(!plugin.isSuccess()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Get the results of the requested plugins, including dependents if they were cascaded to.
+     *
+     * @return The results of every plugin
+     */
+    List<PluginResult> getPlugins();
+
+    /**
+     * Get the result of a plugin.
+     *
+     * @param pluginName The name of the plugin, case insensitive
+     * @return The plugin's result, null if the plugin wasn't part of this reload
+     */
+    default PluginResult getPlugin(String pluginName) {
+        for(PluginResult plugin : getPlugins()) {
+            if(plugin.getName().equalsIgnoreCase(pluginName)) return plugin;
+        }
+        return null;
+    }
+
+    /**
+     * Get the total time spent in a phase by all plugins of this result.
+     *
+     * @param phase The phase
+     * @return The time spent in the phase in nanoseconds
+     */
+    long getPhaseNanos(ReloadPhase phase);
+
+    /**
+     * Get the time that the request waited for the main thread.
+     *
+     * @return The waiting time in nanoseconds
+     */
+    long getQueuedNanos();
+
+    /**
+     * Get the time that the batch of the request took on the main thread.
+     *
+     * @return The batch's time in nanoseconds
+     */
+    long getTotalNanos();
+
+    /**
+     * The result of a single plugin of a reload. Implemented by FastReload.
+     */
+    interface PluginResult {
+        String getName();
+
+        boolean isSuccess();
+
+        /**
+         * Get the reason that the reload of this plugin failed.
+         *
+         * @return The reason, null if the reload succeeded
+         */
+        String getFailureReason();
+
+        long getPhaseNanos(ReloadPhase phase);
+
+        /**
+         * Get the number of commands and permissions of the old plugin that were unregistered.
+         *
+         * @return The number of unregistered commands and permissions
+         */
+        long getUnregistered();
+
+        /**
+         * Get the number of tasks, services, messaging channels and recipes that the old plugin left behind after it was
+         * disabled and that were removed.
+         *
+         * @return The number of removed resources
+         */
+        long getRemoved();
+    }
+}
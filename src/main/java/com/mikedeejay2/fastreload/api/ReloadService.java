@@ -0,0 +1,42 @@
+package com.mikedeejay2.fastreload.api;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Service for reloading plugins from other plugins and tools, with a structured result instead of dispatching a
+ * reload command.
+ * <p>
+ * Requests can be made from any thread and never block the caller. They are queued and run together on the main
+ * thread on the next tick: requests that arrive in the same tick are reloaded as one batch, and a plugin requested by
+ * several callers is only reloaded once. The returned future is completed on the main thread.
+ * <p>
+ * Obtain the service through Bukkit's services manager:
+ * <pre>{@code
+ * RegisteredServiceProvider<ReloadService> provider = Bukkit.getServicesManager().getRegistration(ReloadService.class);
+ * }</pre>
+ *
+ * @author Mikedeejay2
+ */
+public interface ReloadService {
+    /**
+     * Request a reload of plugins. Plugins that aren't loaded yet but have a jar in the plugins folder are loaded.
+     *
+     * @param plugins The names of the plugins to reload
+     * @param options The options of the reload
+     * @return A future that is completed with the result once all plugins have been reloaded, or completed
+     * exceptionally if the reload could not run
+     */
+    CompletableFuture<ReloadResult> reload(Collection<String> plugins, ReloadOptions options);
+
+    /**
+     * Request a reload of plugins with the default options.
+     *
+     * @param plugins The names of the plugins to reload
+     * @return A future that is completed with the result once all plugins have been reloaded
+     * @see ReloadService#reload(Collection, ReloadOptions)
+     */
+    default CompletableFuture<ReloadResult> reload(Collection<String> plugins) {
+        return reload(plugins, ReloadOptions.defaults());
+    }
+}
@@ -0,0 +1,52 @@
+package com.mikedeejay2.fastreload.api;
+
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Service for handing state from one generation of a plugin to the next across a reload, so that a reloaded plugin
+ * doesn't have to rebuild its caches from scratch.
+ * <p>
+ * A plugin deposits its serialized state in <code>onDisable</code> and claims it in <code>onEnable</code> of its next
+ * generation. State is stored off-heap and keyed by the plugin's name, so it doesn't keep the old generation's class
+ * loader alive. State that isn't claimed within FastReload's configured timeout is discarded.
+ * <p>
+ * Obtain the service through Bukkit's services manager:
+ * <pre>{@code
+ * RegisteredServiceProvider<StateHandoff> provider = Bukkit.getServicesManager().getRegistration(StateHandoff.class);
+ * }</pre>
+ *
+ * @author Mikedeejay2
+ */
+public interface StateHandoff {
+    /**
+     * Deposit state for the next generation of a plugin. Replaces any state that the plugin deposited before.
+     *
+     * @param plugin The plugin depositing the state
+     * @param state  The serialized state
+     * @throws IllegalStateException If depositing the state would exceed FastReload's configured size limit
+     */
+    void deposit(Plugin plugin, byte[] state);
+
+    /**
+     * Claim the state that was deposited by the previous generation of a plugin. The state can only be claimed once.
+     *
+     * @param plugin The plugin claiming the state
+     * @return The deposited state, null if no state was deposited or it has expired
+     */
+    byte[] claim(Plugin plugin);
+
+    /**
+     * Get whether a plugin has deposited state that hasn't been claimed or discarded yet.
+     *
+     * @param plugin The plugin
+     * @return Whether state is waiting to be claimed
+     */
+    boolean hasState(Plugin plugin);
+
+    /**
+     * Discard the state that a plugin deposited without claiming it.
+     *
+     * @param plugin The plugin
+     */
+    void discard(Plugin plugin);
+}
@@ -0,0 +1,93 @@
+package com.mikedeejay2.fastreload.commands;
+
+import com.mikedeejay2.fastreload.FastReload;
+import com.mikedeejay2.fastreload.system.FootprintTracker;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabExecutor;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Command for showing the memory footprint of plugin reloads across reload generations.
+ * <p>
+ * Usage: <code>/frfootprint [plugin]</code>
+ *
+ * @author Mikedeejay2
+ */
+public class FootprintCommand implements TabExecutor {
+    private static final int RECENT_GENERATIONS = 5;
+
+    private final FastReload plugin;
+
+    public FootprintCommand(FastReload plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if(!plugin.checkPermission(sender)) return true;
+        FootprintTracker tracker = plugin.getReloadSystem().getFootprintTracker();
+        sender.sendMessage(ChatColor.YELLOW + String.format("Current Metaspace usage: %.2f MB",
+            tracker.getMetaspaceUsed() / (1024.0 * 1024.0)));
+
+        if(args.length == 0) {
+            if(tracker.getTrackedPlugins().isEmpty()) {
+                sender.sendMessage(ChatColor.GRAY + "No plugins have been reloaded yet.");
+                return true;
+            }
+            for(String pluginName : tracker.getTrackedPlugins()) {
+                sendTrend(sender, pluginName, tracker.getGenerations(pluginName));
+            }
+            return true;
+        }
+
+        String pluginName = String.join(" ", args);
+        List<FootprintTracker.Generation> generations = tracker.getGenerations(pluginName);
+        if(generations.isEmpty()) {
+            sender.sendMessage(ChatColor.RED + String.format("The plugin \"%s\" has not been reloaded yet.", pluginName));
+            return true;
+        }
+        for(FootprintTracker.Generation generation : generations) {
+            sender.sendMessage(ChatColor.GRAY + String.format("#%d: %s, %d JVM classes loaded, %d unloaded",
+                generation.getNumber(), generation.summary(), generation.getClassesLoaded(), generation.getClassesUnloaded()));
+        }
+        sendTrend(sender, pluginName, generations);
+        return true;
+    }
+
+    /**
+     * Send the growth trend of a plugin: the total and average Metaspace growth, and the average of the latest
+     * generations to show whether the growth is slowing down or speeding up.
+     *
+     * @param sender      The sender to send the trend to
+     * @param pluginName  The name of the plugin
+     * @param generations The recorded generations of the plugin, oldest first
+     */
+    private void sendTrend(CommandSender sender, String pluginName, List<FootprintTracker.Generation> generations) {
+        long total = 0;
+        long recent = 0;
+        int recentCount = Math.min(RECENT_GENERATIONS, generations.size());
+        for(int i = 0; i < generations.size(); ++i) {
+            long delta = generations.get(i).getMetaspaceDelta();
+            total += delta;
+            if(i >= generations.size() - recentCount) recent += delta;
+        }
+        FootprintTracker.Generation latest = generations.get(generations.size() - 1);
+        sender.sendMessage(ChatColor.WHITE + String.format("%s: %d reloads, Metaspace %s total, %s per reload (latest %d: %s per reload)",
+            pluginName, latest.getNumber(),
+            FootprintTracker.Generation.formatDelta(total),
+            FootprintTracker.Generation.formatDelta(total / generations.size()),
+            recentCount, FootprintTracker.Generation.formatDelta(recent / recentCount)));
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        if(args.length != 1) return null;
+        return plugin.getReloadSystem().getFootprintTracker().getTrackedPlugins().stream()
+            .filter(s -> s.toLowerCase().startsWith(args[0].toLowerCase()))
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,153 @@
+package com.mikedeejay2.fastreload.commands;
+
+import com.mikedeejay2.fastreload.FastReload;
+import com.mikedeejay2.fastreload.api.ReloadPhase;
+import com.mikedeejay2.fastreload.system.ReloadJournal;
+import com.mikedeejay2.fastreload.system.ReloadWatchdog;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * Command for dumping or summarizing the latest entries of Fast Reload's reload journal.
+ * <p>
+ * Usage: <code>/frjournal [summary] [count]</code>
+ *
+ * @author Mikedeejay2
+ */
+public class ReloadJournalCommand implements CommandExecutor {
+    private static final int DEFAULT_COUNT = 10;
+
+    private final FastReload plugin;
+
+    public ReloadJournalCommand(FastReload plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if(!plugin.checkPermission(sender)) return true;
+        ReloadJournal journal = plugin.getReloadSystem().getJournal();
+        if(journal == null) {
+            sender.sendMessage(ChatColor.RED + "The reload journal is disabled in the configuration.");
+            return true;
+        }
+
+        boolean summary = args.length > 0 && args[0].equalsIgnoreCase("summary");
+        int count = DEFAULT_COUNT;
+        if(args.length > (summary ? 1 : 0)) {
+            try {
+                count = Integer.parseInt(args[summary ? 1 : 0]);
+            } catch(NumberFormatException e) {
+                sender.sendMessage(ChatColor.RED + String.format("\"%s\" is not a valid number.", args[summary ? 1 : 0]));
+                return true;
+            }
+        }
+
+        List<ReloadJournal.Entry> entries = journal.readLatest(count);
+        if(entries.isEmpty()) {
+            sender.sendMessage(ChatColor.YELLOW + "The reload journal is empty.");
+            return true;
+        }
+        if(summary) {
+            sendSummary(sender, entries);
+        } else {
+            sendEntries(sender, entries);
+        }
+        return true;
+    }
+
+    /**
+     * Send every entry on its own line, newest first.
+     *
+     * @param sender  The sender to send the entries to
+     * @param entries The entries to send
+     */
+    private void sendEntries(CommandSender sender, List<ReloadJournal.Entry> entries) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        sender.sendMessage(ChatColor.YELLOW + String.format("Latest %d reloads (newest first):", entries.size()));
+        for(ReloadJournal.Entry entry : entries) {
+            StringBuilder phases = new StringBuilder();
+            for(ReloadPhase phase : ReloadPhase.VALUES) {
+                long nanos = entry.getPhaseNanos(phase);
+                if(nanos == 0) continue;
+                if(phases.length() > 0) phases.append(", ");
+                phases.append(phase.name().toLowerCase()).append(' ').append(formatMillis(nanos));
+            }
+            sender.sendMessage(String.format("%s%s %s%s %s(%s) %s%s ms%s [%s] classes: %d",
+                ChatColor.GRAY, dateFormat.format(new Date(entry.getTimestamp())),
+                entry.isSuccess() ? ChatColor.GREEN : ChatColor.RED, entry.getPluginName(),
+                ChatColor.GRAY, entry.getTrigger() == null ? "unknown" : entry.getTrigger().name().toLowerCase(),
+                ChatColor.WHITE, formatMillis(entry.getTotalNanos()),
+                ChatColor.GRAY, phases, entry.getClassesLoaded()));
+        }
+    }
+
+    /**
+     * Send a summary of the entries: counts, failures, average and maximum time and the slowest plugins.
+     *
+     * @param sender  The sender to send the summary to
+     * @param entries The entries to summarize
+     */
+    private void sendSummary(CommandSender sender, List<ReloadJournal.Entry> entries) {
+        int failures = 0;
+        long totalNanos = 0;
+        long maxNanos = 0;
+        long[] phaseTotals = new long[ReloadPhase.VALUES.length];
+        Map<String, Long> pluginTotals = new HashMap<>();
+        for(ReloadJournal.Entry entry : entries) {
+            if(!entry.isSuccess()) ++failures;
+            long nanos = entry.getTotalNanos();
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            for(ReloadPhase phase : ReloadPhase.VALUES) {
+                phaseTotals[phase.ordinal()] += entry.getPhaseNanos(phase);
+            }
+            pluginTotals.merge(entry.getPluginName(), nanos, Long::sum);
+        }
+
+        sender.sendMessage(ChatColor.YELLOW + String.format("Summary of the latest %d reloads:", entries.size()));
+        sender.sendMessage(ChatColor.GRAY + String.format("Failures: %d, average: %s ms, max: %s ms",
+            failures, formatMillis(totalNanos / entries.size()), formatMillis(maxNanos)));
+        StringBuilder phases = new StringBuilder();
+        for(ReloadPhase phase : ReloadPhase.VALUES) {
+            if(phases.length() > 0) phases.append(", ");
+            phases.append(phase.name().toLowerCase()).append(' ').append(formatMillis(phaseTotals[phase.ordinal()])).append(" ms");
+        }
+        sender.sendMessage(ChatColor.GRAY + "Total time per phase: " + phases);
+        sender.sendMessage(ChatColor.GRAY + "Slowest plugins (total time):");
+        pluginTotals.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+            .limit(5)
+            .forEach(e -> sender.sendMessage(ChatColor.GRAY + String.format("  %s: %s ms", e.getKey(), formatMillis(e.getValue()))));
+        sendWorstPhases(sender);
+    }
+
+    /**
+     * Send the plugins with the worst enable and disable times since the server started, as recorded by the
+     * {@link ReloadWatchdog}.
+     *
+     * @param sender The sender to send the times to
+     */
+    private void sendWorstPhases(CommandSender sender) {
+        ReloadWatchdog watchdog = plugin.getReloadSystem().getWatchdog();
+        List<String> pluginNames = new ArrayList<>();
+        watchdog.getRecordedPlugins().forEach(pluginNames::add);
+        if(pluginNames.isEmpty()) return;
+        pluginNames.sort(Comparator.comparingLong((String name) ->
+            Math.max(watchdog.getWorstEnableNanos(name), watchdog.getWorstDisableNanos(name))).reversed());
+        sender.sendMessage(ChatColor.GRAY + "Worst enable and disable times since startup:");
+        for(String pluginName : pluginNames.subList(0, Math.min(5, pluginNames.size()))) {
+            sender.sendMessage(ChatColor.GRAY + String.format("  %s: enable %s ms, disable %s ms", pluginName,
+                formatMillis(watchdog.getWorstEnableNanos(pluginName)), formatMillis(watchdog.getWorstDisableNanos(pluginName))));
+        }
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format("%.1f", nanos / 1_000_000.0);
+    }
+}
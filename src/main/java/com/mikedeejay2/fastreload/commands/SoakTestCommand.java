@@ -0,0 +1,90 @@
+package com.mikedeejay2.fastreload.commands;
+
+import com.mikedeejay2.fastreload.FastReload;
+import com.mikedeejay2.fastreload.system.SoakTest;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabExecutor;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Command for running a reload soak test against a plugin, see {@link SoakTest}.
+ * <p>
+ * Usage: <code>/frsoak &lt;plugin&gt; [cycles]</code> or <code>/frsoak stop</code>
+ *
+ * @author Mikedeejay2
+ */
+public class SoakTestCommand implements TabExecutor {
+    private static final int DEFAULT_CYCLES = 1000;
+    private static final int MAX_CYCLES = 100000;
+
+    private final FastReload plugin;
+    private SoakTest soakTest;
+
+    public SoakTestCommand(FastReload plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if(!plugin.checkPermission(sender)) return true;
+        if(args.length == 0) return false;
+        if(args[0].equalsIgnoreCase("stop")) {
+            if(soakTest == null || !soakTest.isRunning()) {
+                sender.sendMessage(ChatColor.RED + "No soak test is running.");
+            } else {
+                soakTest.stop();
+            }
+            return true;
+        }
+        if(soakTest != null && soakTest.isRunning()) {
+            sender.sendMessage(ChatColor.RED + "A soak test is already running, stop it with /frsoak stop.");
+            return true;
+        }
+
+        Plugin target = Bukkit.getPluginManager().getPlugin(args[0]);
+        if(target == null) {
+            sender.sendMessage(ChatColor.RED + String.format("The plugin \"%s\" could not be found.", args[0]));
+            return true;
+        }
+        if(target == plugin) {
+            sender.sendMessage(ChatColor.RED + "Fast Reload can't soak test itself.");
+            return true;
+        }
+        int cycles = DEFAULT_CYCLES;
+        if(args.length > 1) {
+            try {
+                cycles = Integer.parseInt(args[1]);
+            } catch(NumberFormatException e) {
+                sender.sendMessage(ChatColor.RED + String.format("\"%s\" is not a valid number.", args[1]));
+                return true;
+            }
+            if(cycles < 1 || cycles > MAX_CYCLES) {
+                sender.sendMessage(ChatColor.RED + String.format("The number of cycles must be between 1 and %d.", MAX_CYCLES));
+                return true;
+            }
+        }
+
+        soakTest = new SoakTest(plugin, plugin.getReloadSystem(), sender, target.getName(), cycles);
+        soakTest.start();
+        return true;
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        if(args.length != 1) return null;
+        List<String> options = Arrays.stream(Bukkit.getPluginManager().getPlugins())
+            .map(Plugin::getName)
+            .collect(Collectors.toList());
+        options.add("stop");
+        return options.stream()
+            .filter(s -> s.toLowerCase().startsWith(args[0].toLowerCase()))
+            .collect(Collectors.toList());
+    }
+}
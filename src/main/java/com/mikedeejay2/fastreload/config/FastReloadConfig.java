@@ -1,9 +1,9 @@
 package com.mikedeejay2.fastreload.config;
 
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 import java.util.function.Function;
 
 /**
@@ -16,13 +16,46 @@ public class FastReloadConfig {
     private final List<ConfigVal<?>> configValues = new ArrayList<>();
     private final List<LoadListener> loadListeners = new ArrayList<>();
 
-    public final ConfigVal<Boolean>      ONLY_PLUGINS        = new ConfigVal<>(c -> c.getBoolean("Only Plugins", true));
-    public final ConfigVal<Boolean>      AUTO_RELOAD_PLUGINS = new ConfigVal<>(c -> c.getBoolean("Auto Reload Plugins", true));
-    public final ConfigVal<Integer>      AUTO_RELOAD_TIME    = new ConfigVal<>(c -> c.getInt("Auto Reload Check Time", 20));
-    public final ConfigVal<Double>       AUTO_RELOAD_WAIT    = new ConfigVal<>(c -> c.getDouble("Auto-Reload Wait Time", 1.0));
-    public final ConfigVal<Boolean>      IN_CHAT_RELOAD      = new ConfigVal<>(c -> c.getBoolean("In Chat Reload", true));
-    public final ConfigVal<String>       FILTER_MODE         = new ConfigVal<>(c -> c.getString("Reload Filter Mode", "Blacklist"));
-    public final ConfigVal<List<String>> FILTER_LIST         = new ConfigVal<>(c -> c.getStringList("Filter List"));
+    public final ConfigVal<Boolean>             ONLY_PLUGINS             = new ConfigVal<>(c -> c.getBoolean("Only Plugins", true));
+    public final ConfigVal<Boolean>             AUTO_RELOAD_PLUGINS      = new ConfigVal<>(c -> c.getBoolean("Auto Reload Plugins", true));
+    public final ConfigVal<Integer>             AUTO_RELOAD_TIME         = new ConfigVal<>(c -> c.getInt("Auto Reload Check Time", 20));
+    public final ConfigVal<Double>              AUTO_RELOAD_WAIT         = new ConfigVal<>(c -> c.getDouble("Auto-Reload Wait Time", 1.0));
+    public final ConfigVal<Boolean>             IN_CHAT_RELOAD           = new ConfigVal<>(c -> c.getBoolean("In Chat Reload", true));
+    public final ConfigVal<String>              FILTER_MODE              = new ConfigVal<>(c -> c.getString("Reload Filter Mode", "Blacklist"));
+    public final ConfigVal<List<String>>        FILTER_LIST              = new ConfigVal<>(c -> c.getStringList("Filter List"));
+    public final ConfigVal<List<Map<?, ?>>>     PLUGIN_POLICIES          = new ConfigVal<>(c -> c.getMapList("Plugin Policies"));
+    public final ConfigVal<Boolean>             HOT_SWAP                 = new ConfigVal<>(c -> c.getBoolean("Hot Swap Classes", false));
+    public final ConfigVal<Boolean>             WATCH_DATA_FOLDERS       = new ConfigVal<>(c -> c.getBoolean("Watch Data Folders", false));
+    public final ConfigVal<Double>              DATA_FOLDER_WAIT         = new ConfigVal<>(c -> c.getDouble("Data Folder Wait Time", 1.0));
+    public final ConfigVal<List<String>>        DATA_FOLDER_FILES        = new ConfigVal<>(c -> c.contains("Data Folder Files") ? c.getStringList("Data Folder Files") : Collections.singletonList("*.yml"));
+    public final ConfigVal<Map<String, String>> CONFIG_RELOAD_COMMANDS   = new ConfigVal<>(c -> getStringMap(c, "Config Reload Commands"));
+    public final ConfigVal<Boolean>             CONFIG_RELOAD_FALLBACK   = new ConfigVal<>(c -> c.getBoolean("Config Reload Fallback", false));
+    public final ConfigVal<Boolean>             RELOAD_JOURNAL           = new ConfigVal<>(c -> c.getBoolean("Reload Journal", true));
+    public final ConfigVal<Integer>             RELOAD_JOURNAL_SIZE      = new ConfigVal<>(c -> c.getInt("Reload Journal Size", 4096));
+    public final ConfigVal<Boolean>             RELOAD_SOCKET            = new ConfigVal<>(c -> c.getBoolean("Reload Socket", false));
+    public final ConfigVal<Integer>             RELOAD_SOCKET_PORT       = new ConfigVal<>(c -> c.getInt("Reload Socket Port", 25590));
+    public final ConfigVal<String>              RELOAD_SOCKET_TOKEN      = new ConfigVal<>(c -> c.getString("Reload Socket Token", ""));
+    public final ConfigVal<Integer>             RELOAD_SOCKET_QUEUE      = new ConfigVal<>(c -> c.getInt("Reload Socket Queue Size", 16));
+    public final ConfigVal<Map<String, String>> DEPLOY_SOURCES           = new ConfigVal<>(c -> getStringMap(c, "Deploy Sources"));
+    public final ConfigVal<Double>              DEPLOY_STABLE_TIME       = new ConfigVal<>(c -> c.getDouble("Deploy Stable Time", 0.5));
+    public final ConfigVal<Boolean>             METRICS_EXPORTER         = new ConfigVal<>(c -> c.getBoolean("Metrics Exporter", false));
+    public final ConfigVal<Integer>             METRICS_EXPORTER_PORT    = new ConfigVal<>(c -> c.getInt("Metrics Exporter Port", 9465));
+    public final ConfigVal<Boolean>             DETECT_THREAD_LEAKS      = new ConfigVal<>(c -> c.getBoolean("Detect Thread Leaks", true));
+    public final ConfigVal<Boolean>             INTERRUPT_LEAKED_THREADS = new ConfigVal<>(c -> c.getBoolean("Interrupt Leaked Threads", false));
+    public final ConfigVal<Double>              STATE_HANDOFF_TIMEOUT    = new ConfigVal<>(c -> c.getDouble("State Handoff Timeout", 60.0));
+    public final ConfigVal<Integer>             STATE_HANDOFF_LIMIT      = new ConfigVal<>(c -> c.getInt("State Handoff Limit", 256));
+    public final ConfigVal<Boolean>             RELOAD_WATCHDOG          = new ConfigVal<>(c -> c.getBoolean("Reload Watchdog", true));
+    public final ConfigVal<Double>              RELOAD_WATCHDOG_DEADLINE = new ConfigVal<>(c -> c.getDouble("Reload Watchdog Deadline", 5.0));
+    public final ConfigVal<Double>              RELOAD_WATCHDOG_INTERVAL = new ConfigVal<>(c -> c.getDouble("Reload Watchdog Interval", 5.0));
+    public final ConfigVal<Boolean>             BATCHED_COMMAND_SYNC     = new ConfigVal<>(c -> c.getBoolean("Batched Command Sync", false));
+    public final ConfigVal<Integer>             COMMAND_SYNC_BATCH_SIZE  = new ConfigVal<>(c -> c.getInt("Command Sync Batch Size", 20));
+    public final ConfigVal<String>              SHARED_PLUGINS_DIRECTORY = new ConfigVal<>(c -> c.getString("Shared Plugins Directory", ""));
+    public final ConfigVal<Integer>             SOAK_WARMUP_CYCLES       = new ConfigVal<>(c -> c.getInt("Soak Test Warmup Cycles", 20));
+    public final ConfigVal<Double>              SOAK_MAX_TIME_SLOPE      = new ConfigVal<>(c -> c.getDouble("Soak Test Max Time Slope", 0.01));
+    public final ConfigVal<Double>              SOAK_MAX_METASPACE_SLOPE = new ConfigVal<>(c -> c.getDouble("Soak Test Max Metaspace Slope", 4.0));
+    public final ConfigVal<Double>              SOAK_MAX_CLASS_SLOPE     = new ConfigVal<>(c -> c.getDouble("Soak Test Max Class Slope", 0.5));
+    public final ConfigVal<Double>              SOAK_MAX_FD_SLOPE        = new ConfigVal<>(c -> c.getDouble("Soak Test Max Fd Slope", 0.01));
+    public final ConfigVal<Boolean>             SOAK_FORCE_GC            = new ConfigVal<>(c -> c.getBoolean("Soak Test Force GC", false));
 
     public FastReloadConfig(FileConfiguration config) {
         this.config = config;
@@ -41,6 +74,23 @@ public class FastReloadConfig {
         loadListeners.add(listener);
     }
 
+    /**
+     * Read a configuration section of string values into a map.
+     *
+     * @param config The configuration to read from
+     * @param path   The path of the section
+     * @return The map of keys to string values, empty if the section doesn't exist
+     */
+    private static Map<String, String> getStringMap(FileConfiguration config, String path) {
+        ConfigurationSection section = config.getConfigurationSection(path);
+        if(section == null) return Collections.emptyMap();
+        Map<String, String> map = new LinkedHashMap<>();
+        for(String key : section.getKeys(false)) {
+            map.put(key, section.getString(key));
+        }
+        return map;
+    }
+
     public class ConfigVal<T> {
         private final Function<FileConfiguration, T> loader;
         private T value;
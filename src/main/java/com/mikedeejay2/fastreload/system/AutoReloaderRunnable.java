@@ -2,19 +2,20 @@ package com.mikedeejay2.fastreload.system;
 
 
 import com.mikedeejay2.fastreload.FastReload;
+import com.mikedeejay2.fastreload.system.jfr.ReloadEvents;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
 import org.bukkit.command.ConsoleCommandSender;
 import org.bukkit.plugin.Plugin;
-import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.PluginManager;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * An internal runnable for checking plugin files for changes
@@ -25,81 +26,444 @@ public class AutoReloaderRunnable implements Runnable {
     private final FastReload plugin;
     private final ReloadSystem system;
     private final ConsoleCommandSender serverSender;
-    private int msWait;
+    private int jarsScanned;
+    private int changesFound;
 
     /**
      * The list of last modified values. Key = File, value = Time last modified (since last queried)
      */
-    private final Map<File, Long> lastModified = new HashMap<>();
+    private final Map<File, Long> lastModified = new ConcurrentHashMap<>();
 
-    public AutoReloaderRunnable(FastReload plugin, ReloadSystem system, double msWait) {
+    /**
+     * The snapshots of the jars as they were last loaded. Key = File, value = Snapshot of the file's entries
+     */
+    private final Map<File, JarSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * The indexed fingerprints of jars that were warmed from the {@link DescriptorIndex} and have no snapshot yet.
+     * Key = File, value = Index entry with the fingerprints of the loaded jar
+     */
+    private final Map<File, DescriptorIndex.Entry> indexedFingerprints = new ConcurrentHashMap<>();
+
+    /**
+     * The last modified values of the jars in the shared plugins directory, only used while this server is the leader.
+     * Key = File, value = Time last modified (since last queried)
+     */
+    private final Map<File, Long> sharedModified = new ConcurrentHashMap<>();
+    private boolean sharedScanned;
+
+    /**
+     * The jars of the shared plugins directory that the last scan of the plugins folder already covers through their
+     * links, so that the scan of the shared directory doesn't fingerprint them again. Only collected while this server
+     * is the leader. Key = Canonical file of the shared jar
+     */
+    private final Set<File> coveredJars = new HashSet<>();
+
+    /**
+     * The changes that the last scan of the plugins folder found in covered jars, to be published to the followers.
+     * Key = Canonical file of the shared jar, value = The change, null if the jar is new
+     */
+    private final Map<File, JarChange> coveredChanges = new HashMap<>();
+
+    /**
+     * The changes to shared jars that wait for the debounce time of their plugin's own policy before the plugin is
+     * reloaded. Key = Plugin name, value = The strongest change found since the plugin was last reloaded
+     */
+    private final Map<String, JarChange> deferredChanges = new ConcurrentHashMap<>();
+
+    public AutoReloaderRunnable(FastReload plugin, ReloadSystem system) {
         this.plugin = plugin;
         this.system = system;
         this.serverSender = plugin.getServer().getConsoleSender();
-        this.msWait = (int) (msWait * 1000);
+        warmFromIndex();
+    }
+
+    /**
+     * Mark the jars of loaded plugins that haven't changed since they were indexed as already seen, so that the first
+     * scan only has to stat them instead of reading every jar's descriptor and snapshot.
+     */
+    private void warmFromIndex() {
+        PluginManager pluginManager = Bukkit.getPluginManager();
+        for(DescriptorIndex.Entry entry : system.getDescriptorIndex().getEntries()) {
+            File file = entry.getFile();
+            if(pluginManager.getPlugin(entry.getName()) == null) continue;
+            if(!entry.matches(file.length(), file.lastModified())) continue;
+            lastModified.put(file, entry.getLastModified());
+            if(entry.hasFingerprints()) indexedFingerprints.put(file, entry);
+        }
     }
 
     @Override
     public void run() {
+        SharedScanCoordinator sharedScan = system.getSharedScan();
+        if(sharedScan != null && !sharedScan.tryLead()) {
+            // Another server scans the shared plugins folder, only follow its notices
+            for(SharedScanCoordinator.Notice notice : sharedScan.poll()) {
+                deferChange(notice.getPluginName(), notice.getChange() == null ? JarChange.CLASSES : notice.getChange());
+            }
+            followDeferredChanges();
+            return;
+        }
+        Object event = ReloadEvents.get().beginDetection();
+        long startTime = System.nanoTime();
+        jarsScanned = 0;
+        changesFound = 0;
+        try {
+            scan(sharedScan);
+            if(sharedScan != null) scanShared(sharedScan);
+            followDeferredChanges();
+            system.saveDescriptorIndex();
+        } finally {
+            ReloadEvents.get().endDetection(event, jarsScanned, changesFound);
+            system.getMetrics().recordScan(System.nanoTime() - startTime, jarsScanned, changesFound);
+        }
+    }
+
+    /**
+     * Scan the plugins folder for new and changed plugin jars and schedule their loading or reloading.
+     * <p>
+     * While this server leads the shared plugins directory, jars linked from the shared directory are covered by this
+     * scan: their changes are recorded for {@link AutoReloaderRunnable#scanShared(SharedScanCoordinator)} to publish as
+     * soon as they have been unchanged for the default wait time, and the plugins themselves are reloaded once their own
+     * policy's debounce time has passed, the same way as on the followers.
+     *
+     * @param sharedScan The coordinator of the shared plugins directory, null if there is none
+     */
+    private void scan(SharedScanCoordinator sharedScan) {
         PluginManager pluginManager = Bukkit.getPluginManager();
+        ReloadPolicies policies = system.getPolicies();
+        File sharedDirectory = sharedScan == null ? null : getCanonicalFile(sharedScan.getDirectory());
+        coveredJars.clear();
+        coveredChanges.clear();
 
         for(File pluginFile : ReloadSystem.getPluginFiles()) {
+            ++jarsScanned;
             // If the file is currently being moved and is incomplete we do not want this to throw errors
             // The file will be ready next time
-            final PluginDescriptionFile description = system.getPluginDescription(pluginFile, false);
-            if(description == null) continue;
+            final String pluginName = system.getPluginName(pluginFile, false);
+            if(pluginName == null) continue;
+            final ReloadPolicies.Policy policy = policies.get(pluginName);
+            if(!policy.isAutoReload()) continue;
+            final File sharedJar = getSharedJar(pluginFile, sharedDirectory);
+            if(sharedJar != null) coveredJars.add(sharedJar);
             final long modifiedDate = getModifiedDate(pluginFile);
-            if(System.currentTimeMillis() - modifiedDate < msWait) return;
-            final String pluginName = description.getName();
+            final long debounceMillis = sharedJar == null ? policy.getDebounceMillis() : policies.getDefaults().getDebounceMillis();
+            if(System.currentTimeMillis() - modifiedDate < debounceMillis) continue;
 
             // If map doesn't contain the key, add it to the map
             if(!lastModified.containsKey(pluginFile)) {
                 lastModified.put(pluginFile, modifiedDate);
+                updateSnapshot(pluginFile);
+                if(sharedJar != null && sharedScanned) coveredChanges.put(sharedJar, null);
                 // If the plugin is already loaded there's no need to load it again
                 if(pluginManager.getPlugin(pluginName) != null) continue;
 
-                Bukkit.getScheduler().runTask(plugin, () -> autoLoadPlugin(pluginName));
+                ++changesFound;
+                system.coordinator.submit(pluginName, serverSender, sender -> autoLoadPlugin(sender, pluginName));
             } else if(lastModified.get(pluginFile) != modifiedDate) { // If times don't match, reload
                 Plugin curPlugin = pluginManager.getPlugin(pluginName);
-
-                Bukkit.getScheduler().runTask(plugin, () -> autoReloadPlugin(pluginName, curPlugin));
                 lastModified.put(pluginFile, modifiedDate);
+
+                final JarSnapshot previous = snapshots.get(pluginFile);
+                final JarChange change = diffSnapshot(pluginFile);
+                if(change == JarChange.NONE && curPlugin != null) {
+                    if(isReplaced(previous, snapshots.get(pluginFile))) {
+                        serverSender.sendMessage(ChatColor.GRAY + String.format("Plugin \"%s\" was rebuilt without changes, skipping reload.", pluginName));
+                        continue;
+                    }
+                    // Even an unchanged rebuild moves the entries of the archive, and the plugin's class loader still
+                    // reads from the same file, so it can't load anything from it anymore
+                    serverSender.sendMessage(ChatColor.GRAY + String.format("Plugin \"%s\" was rebuilt without changes but overwritten in place, reloading.", pluginName));
+                }
+                ++changesFound;
+                if(sharedJar == null) {
+                    submitReload(pluginName, policy, change);
+                } else {
+                    coveredChanges.put(sharedJar, change);
+                    deferChange(pluginName, change);
+                }
+            }
+        }
+    }
+
+    /**
+     * Scan the shared plugins directory for new and changed jars and publish them to the followers. Every jar in the
+     * directory is published, not only those of plugins that this server has loaded, since the followers may have
+     * linked other jars into their plugins folders. Jars that this server links into its own plugins folder were already
+     * fingerprinted by {@link AutoReloaderRunnable#scan(SharedScanCoordinator)}, only their recorded changes are
+     * published.
+     * <p>
+     * A jar is published once it has been unchanged for the default wait time, so that it is completely written. How
+     * long each server then waits before reloading the plugin is up to that server's own policy for it.
+     * <p>
+     * The jars found by the first scan after becoming leader are only recorded, so that taking over from another
+     * leader doesn't publish every jar as new.
+     *
+     * @param sharedScan The coordinator of the shared plugins directory
+     */
+    private void scanShared(SharedScanCoordinator sharedScan) {
+        File[] files = sharedScan.getDirectory().listFiles(file -> file.isFile() && file.getName().endsWith(".jar"));
+        if(files == null) return;
+        final long settleMillis = system.getPolicies().getDefaults().getDebounceMillis();
+
+        for(File file : files) {
+            final File canonicalFile = getCanonicalFile(file);
+            if(coveredJars.contains(canonicalFile)) {
+                // Keep the date current in case the jar stops being covered, so it isn't published as new then
+                sharedModified.put(file, getModifiedDate(file));
+                if(!coveredChanges.containsKey(canonicalFile)) continue;
+                final String pluginName = system.getPluginName(file, false);
+                if(pluginName != null) sharedScan.publish(pluginName, coveredChanges.get(canonicalFile));
+                continue;
+            }
+            ++jarsScanned;
+            final String pluginName = system.getPluginName(file, false);
+            if(pluginName == null) continue;
+            final long modifiedDate = getModifiedDate(file);
+            if(System.currentTimeMillis() - modifiedDate < settleMillis) continue;
+
+            Long previousDate = sharedModified.put(file, modifiedDate);
+            if(previousDate == null) {
+                updateSnapshot(file);
+                if(!sharedScanned) continue;
+                ++changesFound;
+                sharedScan.publish(pluginName, null);
+            } else if(previousDate != modifiedDate) {
+                final JarSnapshot previous = snapshots.get(file);
+                final JarChange change = diffSnapshot(file);
+                // The followers' class loaders still read the old file of a replaced jar
+                if(change == JarChange.NONE && isReplaced(previous, snapshots.get(file))) continue;
+                ++changesFound;
+                sharedScan.publish(pluginName, change);
+            }
+        }
+        sharedScanned = true;
+    }
+
+    /**
+     * Defer the reload of a plugin whose shared jar was found to be new or changed until the debounce time of the
+     * plugin's policy has passed. A change that is already waiting is combined with the new one.
+     *
+     * @param pluginName The name of the changed plugin
+     * @param change     The classification of the changes to the plugin's jar
+     */
+    private void deferChange(String pluginName, JarChange change) {
+        deferredChanges.merge(pluginName, change, (waiting, found) -> waiting.ordinal() >= found.ordinal() ? waiting : found);
+    }
+
+    /**
+     * Load or reload the plugins of deferred changes whose jars have been unchanged for the debounce time of their
+     * policy, the same way as if this server had found the changes itself.
+     */
+    private void followDeferredChanges() {
+        Iterator<Map.Entry<String, JarChange>> iterator = deferredChanges.entrySet().iterator();
+        while(iterator.hasNext()) {
+            Map.Entry<String, JarChange> entry = iterator.next();
+            String pluginName = entry.getKey();
+            ReloadPolicies.Policy policy = system.getPolicies().get(pluginName);
+            File pluginFile = system.getPluginFile(pluginName);
+            // Not every server sharing the folder has to have every plugin
+            if(!policy.isAutoReload() || pluginFile == null) {
+                iterator.remove();
+                continue;
+            }
+            if(System.currentTimeMillis() - getModifiedDate(pluginFile) < policy.getDebounceMillis()) continue;
+            iterator.remove();
+            if(Bukkit.getPluginManager().getPlugin(pluginName) == null) {
+                system.coordinator.submit(pluginName, serverSender, sender -> autoLoadPlugin(sender, pluginName));
+            } else {
+                submitReload(pluginName, policy, entry.getValue());
             }
         }
     }
 
+    /**
+     * Submit the reload of a changed plugin to the {@link ReloadCoordinator}, so that it is merged with manual and
+     * other pending reloads of the same plugin.
+     *
+     * @param pluginName The name of the changed plugin
+     * @param policy     The reload policy of the plugin
+     * @param change     The classification of the changes to the plugin's jar
+     */
+    private void submitReload(String pluginName, ReloadPolicies.Policy policy, JarChange change) {
+        if(policy.isCascadeDependents()) {
+            system.coordinator.submit(pluginName, serverSender, sender -> autoReloadCascade(sender, pluginName, change));
+        } else {
+            system.coordinator.submit(pluginName, serverSender, sender -> autoReloadPlugin(sender, pluginName, change));
+        }
+    }
+
     /**
      * Method called when a plugin is loaded automatically
      *
+     * @param sender     The <code>CommandSender</code> that receives the messages of the load
      * @param pluginName The name of the plugin to be loaded
      */
-    private void autoLoadPlugin(String pluginName) {
-        serverSender.sendMessage(ChatColor.YELLOW + String.format("Found new plugin \"%s\", loading...", pluginName));
+    private void autoLoadPlugin(CommandSender sender, String pluginName) {
+        sender.sendMessage(ChatColor.YELLOW + String.format("Found new plugin \"%s\", loading...", pluginName));
         long startTime = System.currentTimeMillis();
 
-        system.loadAndEnablePlugin(pluginName);
+        boolean success = system.loadNewPlugin(pluginName, ReloadTrigger.AUTO);
 
         long endTime = System.currentTimeMillis();
         long differenceTime = endTime - startTime;
-        serverSender.sendMessage(ChatColor.GREEN + String.format("The server has successfully loaded plugin \"%s\" in %d ms.", pluginName, differenceTime));
+        if(!success) {
+            sender.sendMessage(ChatColor.RED + String.format("The plugin \"%s\" failed to load after %d ms, check the console for errors.", pluginName, differenceTime));
+            return;
+        }
+        sender.sendMessage(ChatColor.GREEN + String.format("The server has successfully loaded plugin \"%s\" in %d ms. (%s)", pluginName, differenceTime, system.getLastFootprint().summary()));
     }
 
     /**
-     * Method called when a plugin is reloaded automatically
+     * Method called when a plugin is reloaded automatically. The plugin is looked up when the reload runs, since a
+     * merged reload may have replaced it since the change was found.
      *
+     * @param sender     The <code>CommandSender</code> that receives the messages of the reload
      * @param pluginName The name of the plugin to be reloaded
-     * @param curPlugin The instance of the plugin to be reloaded
+     * @param change     The classification of the changes to the plugin's jar
      */
-    private void autoReloadPlugin(String pluginName, Plugin curPlugin) {
-        serverSender.sendMessage(ChatColor.YELLOW + String.format("Detected plugin \"%s\" has been updated, reloading...", pluginName));
+    private void autoReloadPlugin(CommandSender sender, String pluginName, JarChange change) {
+        Plugin curPlugin = Bukkit.getPluginManager().getPlugin(pluginName);
+        if(curPlugin == null) {
+            autoLoadPlugin(sender, pluginName);
+            return;
+        }
+        sender.sendMessage(ChatColor.YELLOW + String.format("Detected plugin \"%s\" has been updated (%s), reloading...", pluginName, change.getDescription()));
         long startTime = System.currentTimeMillis();
 
-        system.reloadPlugin(curPlugin);
+        boolean success = system.reloadPlugin(curPlugin, ReloadTrigger.AUTO);
 
         long endTime = System.currentTimeMillis();
         long differenceTime = endTime - startTime;
+        if(!success) {
+            sender.sendMessage(ChatColor.RED + String.format("The plugin \"%s\" failed to reload after %d ms, check the console for errors.", pluginName, differenceTime));
+            return;
+        }
+        sender.sendMessage(ChatColor.GREEN + String.format("The server has successfully reloaded plugin \"%s\" in %d ms. (%s)", pluginName, differenceTime, system.getLastFootprint().summary()));
+    }
 
-        serverSender.sendMessage(ChatColor.GREEN + String.format("The server has successfully reloaded plugin \"%s\" in %d ms.", pluginName, differenceTime));
+    /**
+     * Method called when a plugin whose policy cascades to its dependents is reloaded automatically. The plugin and all
+     * plugins that (transitively) depend on it are reloaded together, see {@link BulkReload}.
+     *
+     * @param sender     The <code>CommandSender</code> that receives the messages of the reload
+     * @param pluginName The name of the plugin to be reloaded
+     * @param change     The classification of the changes to the plugin's jar
+     */
+    private void autoReloadCascade(CommandSender sender, String pluginName, JarChange change) {
+        Plugin curPlugin = Bukkit.getPluginManager().getPlugin(pluginName);
+        if(curPlugin == null) {
+            autoLoadPlugin(sender, pluginName);
+            return;
+        }
+        List<Plugin> plugins = BulkReload.getDependents(curPlugin);
+        sender.sendMessage(ChatColor.YELLOW + String.format("Detected plugin \"%s\" has been updated (%s), reloading it and %d dependent plugins...", curPlugin.getName(), change.getDescription(), plugins.size() - 1));
+        long startTime = System.currentTimeMillis();
+
+        BulkReload bulkReload = new BulkReload(system, plugins, ReloadTrigger.AUTO);
+        bulkReload.run();
+
+        long endTime = System.currentTimeMillis();
+        long differenceTime = endTime - startTime;
+        if(bulkReload.getFailed() > 0) {
+            sender.sendMessage(ChatColor.RED + String.format("%d plugins failed to reload, check the console for errors.", bulkReload.getFailed()));
+        }
+        sender.sendMessage(ChatColor.GREEN + String.format("The server has successfully reloaded plugin \"%s\" and its dependents in %d ms. (%s)", curPlugin.getName(), differenceTime, bulkReload.formatPhases()));
+    }
+
+    /**
+     * Read a new snapshot of a plugin file and classify it against the previous snapshot of the same file. The new
+     * snapshot replaces the previous snapshot. If there is no previous snapshot, the file is classified against its
+     * indexed fingerprints instead.
+     *
+     * @param file The plugin file that was modified
+     * @return The classification of the changes, {@link JarChange#CLASSES} if either snapshot is unavailable
+     */
+    private JarChange diffSnapshot(File file) {
+        JarSnapshot previous = snapshots.get(file);
+        DescriptorIndex.Entry indexed = indexedFingerprints.remove(file);
+        JarSnapshot current = updateSnapshot(file);
+        if(current == null) return JarChange.CLASSES;
+        if(previous != null) return JarChange.between(previous, current);
+        if(indexed != null) return JarChange.between(indexed.getClassesFingerprint(), indexed.getResourcesFingerprint(), current);
+        return JarChange.CLASSES;
+    }
+
+    /**
+     * Check whether a jar was replaced (written elsewhere and then moved into place) instead of overwritten in place,
+     * by comparing the file keys of its snapshots. Only a replaced jar leaves the file that the loaded plugin's class
+     * loader reads from intact.
+     *
+     * @param previous The snapshot of the loaded jar, possibly null
+     * @param current  The snapshot of the new jar, possibly null
+     * @return True if both snapshots have a file key and the keys differ
+     */
+    private static boolean isReplaced(JarSnapshot previous, JarSnapshot current) {
+        if(previous == null || current == null) return false;
+        if(previous.getFileKey() == null || current.getFileKey() == null) return false;
+        return !previous.getFileKey().equals(current.getFileKey());
+    }
+
+    /**
+     * Read a new snapshot of the entries of a plugin file and store it as the file's latest snapshot. The snapshot's
+     * fingerprints are stored in the {@link DescriptorIndex}.
+     *
+     * @param file The plugin file to read
+     * @return The snapshot, null if the file could not be read
+     */
+    private JarSnapshot updateSnapshot(File file) {
+        try {
+            JarSnapshot snapshot = JarSnapshot.read(file, false);
+            snapshots.put(file, snapshot);
+            system.getDescriptorIndex().updateFingerprints(snapshot);
+            return snapshot;
+        } catch(IOException e) {
+            snapshots.remove(file);
+            return null;
+        }
+    }
+
+    /**
+     * Mark the current state of a plugin file as loaded, so that a reload that was triggered by something other than
+     * this runnable isn't repeated when the file's new modification time is detected. The modification time is recorded
+     * immediately, the snapshot is read asynchronously since it has to open the jar.
+     *
+     * @param file The plugin file that was just loaded
+     */
+    public void markCurrent(File file) {
+        final long modifiedDate = getModifiedDate(file);
+        lastModified.put(file, modifiedDate);
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            // A jar that changed again before it was read keeps its old snapshot, the next scan diffs against that
+            if(getModifiedDate(file) == modifiedDate) updateSnapshot(file);
+        });
+    }
+
+    /**
+     * Get the jar of the shared plugins directory that a plugin file links to.
+     *
+     * @param pluginFile      The plugin file
+     * @param sharedDirectory The canonical shared plugins directory, possibly null
+     * @return The canonical file of the shared jar, null if the plugin file isn't a jar of the shared directory
+     */
+    private static File getSharedJar(File pluginFile, File sharedDirectory) {
+        if(sharedDirectory == null) return null;
+        File canonicalFile = getCanonicalFile(pluginFile);
+        return canonicalFile != null && sharedDirectory.equals(canonicalFile.getParentFile()) ? canonicalFile : null;
+    }
+
+    /**
+     * Get the canonical file of a <code>File</code>, with all links resolved.
+     *
+     * @param file The file
+     * @return The canonical file, null if it could not be resolved
+     */
+    private static File getCanonicalFile(File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch(IOException e) {
+            return null;
+        }
     }
 
     /**
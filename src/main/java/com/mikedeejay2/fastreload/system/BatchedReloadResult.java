@@ -0,0 +1,121 @@
+package com.mikedeejay2.fastreload.system;
+
+import com.mikedeejay2.fastreload.api.ReloadPhase;
+import com.mikedeejay2.fastreload.api.ReloadResult;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@link ReloadResult} of a request to the {@link BatchedReloadService}.
+ *
+ * @author Mikedeejay2
+ */
+final class BatchedReloadResult implements ReloadResult {
+    private final List<PluginResult> plugins;
+    private final long queuedNanos;
+    private final long totalNanos;
+    private final long syncCommandsNanos;
+
+    /**
+     * Construct a new reload result
+     *
+     * @param plugins           The results of the requested plugins
+     * @param queuedNanos       The time that the request waited for the main thread
+     * @param totalNanos        The time that the batch of the request took on the main thread
+     * @param syncCommandsNanos The time spent sending the command tree to players once for the whole batch
+     */
+    BatchedReloadResult(List<PluginResult> plugins, long queuedNanos, long totalNanos, long syncCommandsNanos) {
+        this.plugins = Collections.unmodifiableList(plugins);
+        this.queuedNanos = queuedNanos;
+        this.totalNanos = totalNanos;
+        this.syncCommandsNanos = syncCommandsNanos;
+    }
+
+    @Override
+    public List<PluginResult> getPlugins() {
+        return plugins;
+    }
+
+    @Override
+    public long getPhaseNanos(ReloadPhase phase) {
+        long nanos = phase == ReloadPhase.SYNC_COMMANDS ? syncCommandsNanos : 0;
+        for(PluginResult plugin : plugins) {
+            nanos += plugin.getPhaseNanos(phase);
+        }
+        return nanos;
+    }
+
+    @Override
+    public long getQueuedNanos() {
+        return queuedNanos;
+    }
+
+    @Override
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * The result of a single plugin of a batch.
+     */
+    static final class BatchedPluginResult implements PluginResult {
+        private final String name;
+        private final boolean success;
+        private final String failureReason;
+        private final long[] phaseNanos;
+        private final long unregistered;
+        private final long removed;
+
+        /**
+         * Construct a new plugin result
+         *
+         * @param name          The name of the plugin
+         * @param success       Whether the plugin was reloaded and is enabled
+         * @param failureReason The reason that the reload failed, null if it succeeded
+         * @param phaseNanos    The time spent in every phase, indexed by {@link ReloadPhase} ordinal
+         * @param unregistered  The number of commands and permissions that were unregistered
+         * @param removed       The number of tasks, services, messaging channels and recipes that were left behind by
+         *                      the plugin and removed
+         */
+        BatchedPluginResult(String name, boolean success, String failureReason, long[] phaseNanos, long unregistered, long removed) {
+            this.name = name;
+            this.success = success;
+            this.failureReason = failureReason;
+            this.phaseNanos = Arrays.copyOf(phaseNanos, ReloadPhase.VALUES.length);
+            this.unregistered = unregistered;
+            this.removed = removed;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean isSuccess() {
+            return success;
+        }
+
+        @Override
+        public String getFailureReason() {
+            return failureReason;
+        }
+
+        @Override
+        public long getPhaseNanos(ReloadPhase phase) {
+            return phaseNanos[phase.ordinal()];
+        }
+
+        @Override
+        public long getUnregistered() {
+            return unregistered;
+        }
+
+        @Override
+        public long getRemoved() {
+            return removed;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.mikedeejay2.fastreload.system;
+
+import com.mikedeejay2.fastreload.FastReload;
+import com.mikedeejay2.fastreload.api.ReloadOptions;
+import com.mikedeejay2.fastreload.api.ReloadPhase;
+import com.mikedeejay2.fastreload.api.ReloadResult;
+import com.mikedeejay2.fastreload.api.ReloadService;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.ServicePriority;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+
+/**
+ * Implementation of {@link ReloadService}, registered in Bukkit's services manager.
+ * <p>
+ * Requests are added to a queue from any thread, and the first request of a tick schedules a drain of the queue on the
+ * main thread. The drain reloads the union of all queued plugins at once: a single plugin is reloaded like
+ * <code>/reload &lt;plugin&gt;</code>, several plugins are reloaded as one {@link BulkReload} so that the command
+ * tree is only sent to players once. Every request's future is then completed with the results of its own plugins.
+ *
+ * @author Mikedeejay2
+ */
+public class BatchedReloadService implements ReloadService {
+    private final FastReload plugin;
+    private final ReloadSystem system;
+    private final Queue<Request> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile boolean closed;
+
+    /**
+     * Construct a new reload service and register it in the services manager
+     *
+     * @param plugin The <code>FastReload</code> plugin instance
+     * @param system The reload system to reload plugins with
+     */
+    public BatchedReloadService(FastReload plugin, ReloadSystem system) {
+        this.plugin = plugin;
+        this.system = system;
+        plugin.getServer().getServicesManager().register(ReloadService.class, this, plugin, ServicePriority.Normal);
+    }
+
+    @Override
+    public CompletableFuture<ReloadResult> reload(Collection<String> plugins, ReloadOptions options) {
+        Objects.requireNonNull(plugins, "plugins");
+        Objects.requireNonNull(options, "options");
+        Request request = new Request(new ArrayList<>(plugins), options);
+        if(closed) {
+            request.future.completeExceptionally(new IllegalStateException("FastReload is disabled"));
+            return request.future;
+        }
+        queue.add(request);
+        if(scheduled.compareAndSet(false, true)) {
+            try {
+                Bukkit.getScheduler().runTask(plugin, this::drain);
+            } catch(RuntimeException e) {
+                // The plugin was disabled between the check and scheduling the drain
+                scheduled.set(false);
+                failPending(e);
+            }
+        }
+        return request.future;
+    }
+
+    /**
+     * Take every queued request and reload their plugins as one batch. Called on the main thread.
+     */
+    private void drain() {
+        // Allow a new drain to be scheduled before polling, so a request added during polling is never left behind
+        scheduled.set(false);
+        List<Request> batch = new ArrayList<>();
+        for(Request request; (request = queue.poll()) != null; ) {
+            batch.add(request);
+        }
+        if(batch.isEmpty()) return;
+        try {
+            run(batch);
+        } catch(RuntimeException e) {
+            plugin.getLogger().log(Level.SEVERE, "Could not reload plugins requested through the reload service", e);
+            for(Request request : batch) {
+                request.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Reload the plugins of a batch of requests and complete the requests.
+     *
+     * @param batch The requests to reload the plugins of
+     */
+    private void run(List<Request> batch) {
+        long startTime = System.nanoTime();
+        PluginManager pluginManager = Bukkit.getPluginManager();
+        Batch resolved = new Batch(plugin, pluginManager::getPlugin,
+            pluginName -> system.getPluginFile(pluginName) != null, BulkReload::getDependents);
+        for(Request request : batch) {
+            resolved.add(request);
+        }
+        long syncCommandsNanos = system.coordinator.runNow(resolved.getPluginNames(), ReloadTrigger.API,
+            () -> reloadAll(resolved));
+
+        long totalNanos = System.nanoTime() - startTime;
+        for(Request request : batch) {
+            resolved.complete(request, startTime, totalNanos, syncCommandsNanos);
+        }
+    }
+
+    /**
+     * Reload the loaded plugins of a batch, all at once if there are several, and load the unloaded ones.
+     *
+     * @param batch The resolved batch, which receives the results of the plugins
+     * @return The time spent sending the command tree to players once for the bulk reload, 0 if there was none
+     */
+    private long reloadAll(Batch batch) {
+        long syncCommandsNanos = 0;
+        if(batch.loaded.size() == 1) {
+            Plugin thePlugin = batch.loaded.values().iterator().next();
+            system.reloadPlugin(thePlugin, ReloadTrigger.API);
+            batch.putResult(thePlugin.getName(), toResult(system.record));
+        } else if(!batch.loaded.isEmpty()) {
+            BulkReload bulkReload = new BulkReload(system, new ArrayList<>(batch.loaded.values()), ReloadTrigger.API);
+            bulkReload.run();
+            for(ReloadRecord record : bulkReload.getRecords()) {
+                batch.putResult(record.getPluginName(), toResult(record));
+            }
+            syncCommandsNanos = bulkReload.getSyncCommandsNanos();
+        }
+        for(String pluginName : batch.unloaded.values()) {
+            system.loadNewPlugin(pluginName, ReloadTrigger.API);
+            batch.putResult(pluginName, toResult(system.record));
+        }
+        return syncCommandsNanos;
+    }
+
+    /**
+     * Create a snapshot of a finished reload record, since the reload system reuses its records.
+     *
+     * @param record The finished record
+     * @return The plugin result
+     */
+    private static ReloadResult.PluginResult toResult(ReloadRecord record) {
+        long[] phaseNanos = new long[ReloadPhase.VALUES.length];
+        for(ReloadPhase phase : ReloadPhase.VALUES) {
+            phaseNanos[phase.ordinal()] = record.getPhaseNanos(phase);
+        }
+        return new BatchedReloadResult.BatchedPluginResult(record.getPluginName(), record.isSuccess(),
+            record.isSuccess() ? null : "The plugin failed to reload, check the console for errors",
+            phaseNanos, record.getPhaseSize(ReloadPhase.UNREGISTER), record.getPhaseSize(ReloadPhase.TEARDOWN));
+    }
+
+    private static ReloadResult.PluginResult failure(String pluginName, String reason) {
+        return new BatchedReloadResult.BatchedPluginResult(pluginName, false, reason, new long[ReloadPhase.VALUES.length], 0, 0);
+    }
+
+    /**
+     * Fail every queued request.
+     *
+     * @param cause The reason that the requests can't run
+     */
+    private void failPending(Throwable cause) {
+        for(Request request; (request = queue.poll()) != null; ) {
+            request.future.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Unregister the service and fail every request that hasn't run yet.
+     */
+    public void close() {
+        closed = true;
+        plugin.getServer().getServicesManager().unregister(this);
+        failPending(new IllegalStateException("FastReload was disabled before the reload could run"));
+    }
+
+    /**
+     * The union of the plugins of a batch of requests, resolved on the main thread. A plugin that several requests ask
+     * for is reloaded once, and its result is shared by all of them.
+     */
+    static final class Batch {
+        // Key = Lowercase plugin name, in the order of the requests
+        private final Map<String, Plugin> loaded = new LinkedHashMap<>();
+        private final Map<String, String> unloaded = new LinkedHashMap<>();
+        private final Map<String, ReloadResult.PluginResult> results = new HashMap<>();
+        private final Plugin self;
+        private final Function<String, Plugin> lookup;
+        private final Predicate<String> inPluginsFolder;
+        private final Function<Plugin, List<Plugin>> dependents;
+
+        /**
+         * Construct a new empty batch
+         *
+         * @param self            The <code>FastReload</code> plugin, which can't reload itself
+         * @param lookup          Looks up a loaded plugin by name, null if it isn't loaded
+         * @param inPluginsFolder Whether the plugins folder has a jar of a plugin name
+         * @param dependents      Gets a plugin and all plugins that (transitively) depend on it
+         */
+        Batch(Plugin self, Function<String, Plugin> lookup, Predicate<String> inPluginsFolder, Function<Plugin, List<Plugin>> dependents) {
+            this.self = self;
+            this.lookup = lookup;
+            this.inPluginsFolder = inPluginsFolder;
+            this.dependents = dependents;
+        }
+
+        /**
+         * Add the plugins of a request to this batch. Plugins that can't be reloaded are given a failed result
+         * immediately.
+         *
+         * @param request The request
+         */
+        void add(Request request) {
+            for(String pluginName : request.pluginNames) {
+                Plugin thePlugin = lookup.apply(pluginName);
+                // Key by the loaded plugin's own name, the requested name could be one that the plugin provides
+                String key = (thePlugin == null ? pluginName : thePlugin.getName()).toLowerCase(Locale.ROOT);
+                request.resolved.add(key);
+                if(thePlugin == self || self.getName().equalsIgnoreCase(pluginName)) {
+                    results.put(key, failure(pluginName, "FastReload can't reload itself"));
+                } else if(thePlugin == null) {
+                    if(!inPluginsFolder.test(pluginName)) {
+                        results.put(key, failure(pluginName, "No plugin with this name is loaded or in the plugins folder"));
+                    } else {
+                        unloaded.put(key, pluginName);
+                    }
+                } else if(request.options.isCascadeDependents()) {
+                    for(Plugin dependent : dependents.apply(thePlugin)) {
+                        if(dependent == self) continue;
+                        String dependentKey = dependent.getName().toLowerCase(Locale.ROOT);
+                        loaded.put(dependentKey, dependent);
+                        request.resolved.add(dependentKey);
+                    }
+                } else {
+                    loaded.put(key, thePlugin);
+                }
+            }
+        }
+
+        /**
+         * @return The names of the plugins to reload and to load, loaded plugins first
+         */
+        List<String> getPluginNames() {
+            List<String> pluginNames = new ArrayList<>(loaded.size() + unloaded.size());
+            for(Plugin thePlugin : loaded.values()) {
+                pluginNames.add(thePlugin.getName());
+            }
+            pluginNames.addAll(unloaded.values());
+            return pluginNames;
+        }
+
+        /**
+         * Record the result of a plugin that was reloaded or loaded.
+         *
+         * @param pluginName The name of the plugin
+         * @param result     The plugin's result
+         */
+        void putResult(String pluginName, ReloadResult.PluginResult result) {
+            results.put(pluginName.toLowerCase(Locale.ROOT), result);
+        }
+
+        /**
+         * Complete a request of this batch with the results of its own plugins. A plugin without a result is reported
+         * as not reloaded.
+         *
+         * @param request           The request
+         * @param startTime         The time that the batch started running at, in nanoseconds
+         * @param totalNanos        The time that the batch took
+         * @param syncCommandsNanos The time spent sending the command tree to players once for the batch
+         */
+        void complete(Request request, long startTime, long totalNanos, long syncCommandsNanos) {
+            List<ReloadResult.PluginResult> requestResults = new ArrayList<>(request.resolved.size());
+            for(String key : request.resolved) {
+                ReloadResult.PluginResult result = results.get(key);
+                requestResults.add(result != null ? result : failure(key, "The plugin was not reloaded"));
+            }
+            request.future.complete(new BatchedReloadResult(requestResults, startTime - request.submitted, totalNanos, syncCommandsNanos));
+        }
+    }
+
+    static final class Request {
+        private final List<String> pluginNames;
+        private final ReloadOptions options;
+        private final long submitted = System.nanoTime();
+        final CompletableFuture<ReloadResult> future = new CompletableFuture<>();
+        /**
+         * The lowercase names of the plugins whose results belong to this request, filled in on the main thread
+         */
+        private final Set<String> resolved = new LinkedHashSet<>();
+
+        Request(List<String> pluginNames, ReloadOptions options) {
+            this.pluginNames = pluginNames;
+            this.options = options;
+        }
+    }
+}
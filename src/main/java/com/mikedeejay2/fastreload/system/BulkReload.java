@@ -0,0 +1,370 @@
+package com.mikedeejay2.fastreload.system;
+
+import com.mikedeejay2.fastreload.api.ReloadPhase;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginDescriptionFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+/**
+ * Reloads many plugins at once in separate phases instead of fully reloading one plugin after another:
+ * <ol>
+ *     <li><b>Disable:</b> All plugins are disabled and unregistered in reverse dependency order, so no plugin is
+ *     disabled before the plugins that depend on it.</li>
+ *     <li><b>Prepare:</b> Every jar in the plugins folder is read and its description parsed in parallel on a worker
+ *     pool. This locates the jar of every plugin and warms the file system cache for loading.</li>
+ *     <li><b>Enable:</b> All plugins are loaded and enabled on the main thread in dependency order, so a plugin is
+ *     never enabled against a half reloaded dependency.</li>
+ * </ol>
+ * The command tree is sent to players once at the end instead of once per plugin. Every plugin still gets its own
+ * {@link ReloadRecord}, journal entry and footprint.
+ *
+ * @author Mikedeejay2
+ */
+public class BulkReload {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final ReloadSystem system;
+    private final List<Plugin> plugins;
+    private final ReloadTrigger trigger;
+    private final List<ReloadRecord> finished = new ArrayList<>();
+
+    private long disableNanos;
+    private long prepareNanos;
+    private long enableNanos;
+    private long syncCommandsNanos;
+    private int reloaded;
+    private int failed;
+
+    /**
+     * Construct a new bulk reload
+     *
+     * @param system  The reload system to reload the plugins with
+     * @param plugins The plugins to reload
+     * @param trigger The source of the reload
+     */
+    public BulkReload(ReloadSystem system, List<Plugin> plugins, ReloadTrigger trigger) {
+        this.system = system;
+        this.plugins = plugins;
+        this.trigger = trigger;
+    }
+
+    /**
+     * Run the bulk reload. Must be called on the main thread.
+     */
+    public void run() {
+        // Every plugin gets its own record while it is reloaded, the system's own record must not be left pointing at
+        // one of them since the finished records are handed out through getRecords()
+        ReloadRecord sharedRecord = system.record;
+        try {
+            runPhases();
+        } finally {
+            system.record = sharedRecord;
+        }
+    }
+
+    private void runPhases() {
+        long startTime = System.nanoTime();
+        Map<String, ReloadRecord> records = disableAll();
+        long prepareStart = System.nanoTime();
+        disableNanos = prepareStart - startTime;
+
+        Map<String, PreparedPlugin> prepared = prepare(records.keySet());
+        long enableStart = System.nanoTime();
+        prepareNanos = enableStart - prepareStart;
+
+        enableAll(records, prepared);
+        long syncStart = System.nanoTime();
+        enableNanos = syncStart - enableStart;
+
+        if(reloaded > 0) {
+            system.syncCommands();
+            syncCommandsNanos = System.nanoTime() - syncStart;
+            system.metrics.recordSyncCommands(syncCommandsNanos);
+        }
+    }
+
+    /**
+     * Phase 1: Hot swap or disable and unregister every plugin, dependents first.
+     *
+     * @return The records of all disabled plugins, key = plugin name
+     */
+    private Map<String, ReloadRecord> disableAll() {
+        List<Plugin> order = sortByDependencies(plugins, Plugin::getDescription);
+        Collections.reverse(order);
+        Map<String, ReloadRecord> records = new LinkedHashMap<>();
+        for(Plugin thePlugin : order) {
+            ReloadRecord record = new ReloadRecord(system.watchdog);
+            system.record = record;
+            record.begin(thePlugin.getName(), trigger);
+            if(system.hotSwapper != null) {
+                system.footprintTracker.begin();
+                record.beginPhase(ReloadPhase.HOT_SWAP);
+                boolean swapped;
+                try {
+                    swapped = system.hotSwapper.hotSwap(thePlugin);
+                } finally {
+                    record.endPhase(ReloadPhase.HOT_SWAP, system.getPluginJarSize(thePlugin));
+                }
+                if(swapped) {
+                    count(system.finishRecord(thePlugin));
+                    finished.add(record);
+                    continue;
+                }
+            }
+            system.disableAndUnregisterPlugin(thePlugin);
+            records.put(thePlugin.getName(), record);
+        }
+        return records;
+    }
+
+    /**
+     * Phase 2: Read all jars in the plugins folder in parallel and find the jars of the disabled plugins.
+     *
+     * @param pluginNames The names of the disabled plugins
+     * @return The jars and new descriptions of the plugins that were found, key = plugin name
+     */
+    private Map<String, PreparedPlugin> prepare(Set<String> pluginNames) {
+        Map<String, PreparedPlugin> prepared = new HashMap<>();
+        File[] jars = ReloadSystem.getPluginFiles();
+        if(pluginNames.isEmpty() || jars == null || jars.length == 0) return prepared;
+
+        int threads = Math.max(1, Math.min(jars.length, Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "FastReload Bulk Reload Worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<PreparedPlugin>> futures = new ArrayList<>(jars.length);
+            for(File jar : jars) {
+                futures.add(executor.submit(() -> prepareJar(jar, pluginNames)));
+            }
+            for(Future<PreparedPlugin> future : futures) {
+                PreparedPlugin result = future.get();
+                if(result != null) prepared.putIfAbsent(result.description.getName(), result);
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch(ExecutionException e) {
+            system.plugin.getLogger().log(Level.SEVERE, "Could not prepare plugin jars for reloading", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        return prepared;
+    }
+
+    /**
+     * Read the description of a jar and, if it belongs to one of the disabled plugins, read the rest of the jar so
+     * that loading it on the main thread doesn't wait on the disk. Called on a worker thread.
+     *
+     * @param jar         The jar to prepare
+     * @param pluginNames The names of the disabled plugins
+     * @return The prepared plugin, null if the jar isn't one of the disabled plugins
+     */
+    private PreparedPlugin prepareJar(File jar, Set<String> pluginNames) throws IOException {
+        PluginDescriptionFile description = system.getPluginDescription(jar, false);
+        if(description == null || !pluginNames.contains(description.getName())) return null;
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        try(InputStream in = Files.newInputStream(jar.toPath())) {
+            while(in.read(buffer) != -1) {
+                // Only reading to warm the file system cache
+            }
+        }
+        return new PreparedPlugin(jar, description);
+    }
+
+    /**
+     * Phase 3: Load and enable every prepared plugin, dependencies first.
+     *
+     * @param records  The records of all disabled plugins, key = plugin name
+     * @param prepared The prepared plugins, key = plugin name
+     */
+    private void enableAll(Map<String, ReloadRecord> records, Map<String, PreparedPlugin> prepared) {
+        // Start from the original plugin order so that unrelated plugins are enabled in the same order as before
+        List<String> names = new ArrayList<>(records.size());
+        for(Plugin thePlugin : plugins) {
+            if(records.containsKey(thePlugin.getName())) names.add(thePlugin.getName());
+        }
+        List<String> order = sortByDependencies(names, name -> {
+            PreparedPlugin preparedPlugin = prepared.get(name);
+            return preparedPlugin == null ? null : preparedPlugin.description;
+        });
+        for(String pluginName : order) {
+            system.record = records.get(pluginName);
+            system.footprintTracker.begin();
+            PreparedPlugin preparedPlugin = prepared.get(pluginName);
+            Plugin newPlugin = null;
+            try {
+                if(preparedPlugin != null) newPlugin = system.loadAndEnablePlugin(preparedPlugin.jar, false);
+            } catch(RuntimeException e) {
+                // A dependency that failed to reload must not stop the remaining plugins from being enabled
+                system.plugin.getLogger().log(Level.SEVERE, String.format("Could not reload plugin \"%s\"", pluginName), e);
+            }
+            count(system.finishRecord(newPlugin));
+            finished.add(records.get(pluginName));
+        }
+    }
+
+    private void count(boolean success) {
+        if(success) {
+            ++reloaded;
+        } else {
+            ++failed;
+        }
+    }
+
+    /**
+     * Get a plugin and all loaded plugins that depend or soft depend on it, directly or through other dependents.
+     *
+     * @param thePlugin The plugin
+     * @return The plugin followed by its dependents, in the plugin manager's order
+     */
+    static List<Plugin> getDependents(Plugin thePlugin) {
+        Set<String> names = new HashSet<>();
+        names.add(thePlugin.getName());
+        names.addAll(thePlugin.getDescription().getProvides());
+        List<Plugin> result = new ArrayList<>();
+        result.add(thePlugin);
+        Plugin[] loaded = Bukkit.getPluginManager().getPlugins();
+        boolean added = true;
+        while(added) {
+            added = false;
+            for(Plugin curPlugin : loaded) {
+                if(result.contains(curPlugin)) continue;
+                PluginDescriptionFile description = curPlugin.getDescription();
+                if(Collections.disjoint(names, description.getDepend()) && Collections.disjoint(names, description.getSoftDepend())) continue;
+                result.add(curPlugin);
+                names.add(curPlugin.getName());
+                names.addAll(description.getProvides());
+                added = true;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sort plugins so that every plugin comes after its dependencies, soft dependencies and the plugins that load before
+     * it. Plugins keep their original order where possible, and dependency cycles are broken in original order.
+     *
+     * @param items        The plugins to sort
+     * @param descriptions Function to get the description of a plugin. May return null for plugins without one.
+     * @param <T>          The type representing a plugin
+     * @return The sorted plugins
+     */
+    static <T> List<T> sortByDependencies(List<T> items, Function<T, PluginDescriptionFile> descriptions) {
+        Map<String, T> byName = new HashMap<>();
+        for(T item : items) {
+            PluginDescriptionFile description = descriptions.apply(item);
+            if(description == null) continue;
+            byName.put(description.getName(), item);
+            for(String provided : description.getProvides()) {
+                byName.putIfAbsent(provided, item);
+            }
+        }
+        Map<T, Set<T>> dependencies = new HashMap<>();
+        for(T item : items) {
+            dependencies.put(item, new HashSet<>());
+        }
+        for(T item : items) {
+            PluginDescriptionFile description = descriptions.apply(item);
+            if(description == null) continue;
+            addDependencies(dependencies.get(item), item, description.getDepend(), byName);
+            addDependencies(dependencies.get(item), item, description.getSoftDepend(), byName);
+            for(String before : description.getLoadBefore()) {
+                T other = byName.get(before);
+                if(other != null && other != item) dependencies.get(other).add(item);
+            }
+        }
+
+        List<T> sorted = new ArrayList<>(items.size());
+        Set<T> placed = new HashSet<>();
+        while(sorted.size() < items.size()) {
+            boolean progress = false;
+            for(T item : items) {
+                if(placed.contains(item) || !placed.containsAll(dependencies.get(item))) continue;
+                sorted.add(item);
+                placed.add(item);
+                progress = true;
+            }
+            if(progress) continue;
+            // Dependency cycle, place the first remaining plugin
+            for(T item : items) {
+                if(placed.add(item)) {
+                    sorted.add(item);
+                    break;
+                }
+            }
+        }
+        return sorted;
+    }
+
+    private static <T> void addDependencies(Set<T> dependencies, T item, List<String> names, Map<String, T> byName) {
+        for(String name : names) {
+            T dependency = byName.get(name);
+            if(dependency != null && dependency != item) dependencies.add(dependency);
+        }
+    }
+
+    /**
+     * Format the time spent in each phase, such as <code>disable 12.0 ms, prepare 30.1 ms, ...</code>.
+     *
+     * @return The formatted phase timings
+     */
+    public String formatPhases() {
+        return String.format("disable %.1f ms, prepare %.1f ms, load and enable %.1f ms, sync commands %.1f ms",
+            disableNanos / 1_000_000.0, prepareNanos / 1_000_000.0,
+            enableNanos / 1_000_000.0, syncCommandsNanos / 1_000_000.0);
+    }
+
+    public long getDisableNanos() {
+        return disableNanos;
+    }
+
+    public long getPrepareNanos() {
+        return prepareNanos;
+    }
+
+    public long getEnableNanos() {
+        return enableNanos;
+    }
+
+    public long getSyncCommandsNanos() {
+        return syncCommandsNanos;
+    }
+
+    /**
+     * Get the records of all plugins that were reloaded or failed to reload, in the order that they finished.
+     *
+     * @return The finished records
+     */
+    public List<ReloadRecord> getRecords() {
+        return Collections.unmodifiableList(finished);
+    }
+
+    public int getReloaded() {
+        return reloaded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    private static final class PreparedPlugin {
+        private final File jar;
+        private final PluginDescriptionFile description;
+
+        private PreparedPlugin(File jar, PluginDescriptionFile description) {
+            this.jar = jar;
+            this.description = description;
+        }
+    }
+}
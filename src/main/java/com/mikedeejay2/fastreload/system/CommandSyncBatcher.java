@@ -0,0 +1,210 @@
+package com.mikedeejay2.fastreload.system;
+
+import com.mikedeejay2.fastreload.FastReload;
+import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerCommandSendEvent;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.logging.Level;
+
+/**
+ * Spreads sending the rebuilt command tree to online players over several ticks.
+ * <p>
+ * The server's <code>syncCommands</code> rebuilds the command tree and then serializes and sends it to every online
+ * player in the same tick. Instead, the tree is rebuilt once while the server's player list is temporarily empty, and
+ * the players are then sent the tree with {@link Player#updateCommands()} in batches, one batch per tick. A player is
+ * skipped if the commands that they can see are the same labels and the same command objects as when they were last
+ * sent the tree. A reloaded plugin registers new command objects, so its commands are always sent again. Whenever the
+ * server sends a player the tree by itself (on join, world change, permission changes or another plugin's
+ * <code>syncCommands</code>), the player's sent hash is forgotten, so the player is always sent the next tree.
+ * <p>
+ * A plain Bukkit command only appears in the tree as its label with a greedy string argument. A command object that
+ * changes its own Brigadier arguments or completions in place without being registered again, for example through
+ * server specific command APIs, is not detected, and players who can see the same commands keep their old tree until
+ * the server sends them a new one.
+ * <p>
+ * Only accessed from the main thread.
+ *
+ * @author Mikedeejay2
+ */
+public class CommandSyncBatcher implements Listener {
+    private final FastReload plugin;
+    private final Map<String, Command> knownCommands;
+    private int batchSize;
+    /**
+     * The visible command hash of every player when they were last sent the tree. Key = Player UUID, value = Hash
+     */
+    private final Map<UUID, Long> sentHashes = new HashMap<>();
+    private final Deque<Player> queue = new ArrayDeque<>();
+    /**
+     * Whether the tree is currently being sent by this batcher, to tell its own sends apart from the server's
+     */
+    private boolean sending;
+    private Field playersField;
+    private boolean unsupported;
+    private BukkitTask task;
+
+    /**
+     * Construct a new command sync batcher
+     *
+     * @param plugin        The <code>FastReload</code> plugin instance
+     * @param knownCommands The known commands of the server's command map
+     * @param batchSize     The number of players to send the command tree to per tick, at least 1
+     */
+    public CommandSyncBatcher(FastReload plugin, Map<String, Command> knownCommands, int batchSize) {
+        this.plugin = plugin;
+        this.knownCommands = knownCommands;
+        setBatchSize(batchSize);
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @EventHandler
+    public void commandSendEvent(PlayerCommandSendEvent event) {
+        // The server sent the player a tree that may differ from the one this batcher last sent
+        if(!sending) sentHashes.remove(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Rebuild the command tree and start sending it to online players in batches. A batch that is still in progress is
+     * restarted with all online players.
+     *
+     * @param rebuild The server's <code>syncCommands</code>, which rebuilds the tree and sends it to every player in
+     *                the server's player list
+     * @return Whether the tree was rebuilt, false if the server's player list could not be found and the caller has to
+     * sync commands normally
+     */
+    public boolean sync(Runnable rebuild) {
+        Collection<? extends Player> online = Bukkit.getOnlinePlayers();
+        if(online.isEmpty()) {
+            rebuild.run();
+            return true;
+        }
+        List<Object> players = findPlayerList(online.iterator().next());
+        if(players == null) return false;
+
+        List<Object> removed = new ArrayList<>(players);
+        players.clear();
+        try {
+            rebuild.run();
+        } finally {
+            players.addAll(removed);
+        }
+
+        enqueue(online);
+        if(task == null) task = Bukkit.getScheduler().runTaskTimer(plugin, this::sendBatch, 1, 1);
+        return true;
+    }
+
+    /**
+     * Replace the players waiting to be sent the tree with all online players, and forget the sent hashes of players
+     * that went offline.
+     *
+     * @param online The online players
+     */
+    void enqueue(Collection<? extends Player> online) {
+        Set<UUID> onlineIds = new HashSet<>();
+        queue.clear();
+        for(Player player : online) {
+            onlineIds.add(player.getUniqueId());
+            queue.add(player);
+        }
+        sentHashes.keySet().retainAll(onlineIds);
+    }
+
+    /**
+     * Send the command tree to the next batch of players.
+     */
+    void sendBatch() {
+        for(int i = 0; i < batchSize && !queue.isEmpty(); ++i) {
+            Player player = queue.poll();
+            if(!player.isOnline()) continue;
+            long hash = getVisibleCommandsHash(player);
+            Long sentHash = sentHashes.get(player.getUniqueId());
+            if(sentHash != null && sentHash == hash) continue;
+            sending = true;
+            try {
+                player.updateCommands();
+            } finally {
+                sending = false;
+            }
+            sentHashes.put(player.getUniqueId(), hash);
+        }
+        if(queue.isEmpty() && task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * Calculate an order independent hash of the labels and identities of all commands that a player can see.
+     *
+     * @param player The player
+     * @return The hash of the player's visible commands
+     */
+    private long getVisibleCommandsHash(Player player) {
+        long hash = 0;
+        for(Map.Entry<String, Command> entry : knownCommands.entrySet()) {
+            if(!entry.getValue().testPermissionSilent(player)) continue;
+            long commandHash = (entry.getKey().hashCode() * 31L + System.identityHashCode(entry.getValue())) * 0x9E3779B97F4A7C15L;
+            hash += commandHash ^ (commandHash >>> 29);
+        }
+        return hash;
+    }
+
+    /**
+     * Find the server's internal list of online players, the list that <code>syncCommands</code> sends the tree to.
+     * The list is found by looking for a list field of the server's player list that contains the handle of an online
+     * player, since its name differs between server versions and mappings.
+     *
+     * @param onlinePlayer Any online player
+     * @return The list, null if it could not be found
+     */
+    @SuppressWarnings("unchecked")
+    private List<Object> findPlayerList(Player onlinePlayer) {
+        if(unsupported) return null;
+        try {
+            Object playerList = Bukkit.getServer().getClass().getMethod("getHandle").invoke(Bukkit.getServer());
+            Object handle = onlinePlayer.getClass().getMethod("getHandle").invoke(onlinePlayer);
+            if(playersField != null) return (List<Object>) playersField.get(playerList);
+            for(Class<?> clazz = playerList.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+                for(Field field : clazz.getDeclaredFields()) {
+                    if(Modifier.isStatic(field.getModifiers()) || !List.class.isAssignableFrom(field.getType())) continue;
+                    field.setAccessible(true);
+                    List<Object> list = (List<Object>) field.get(playerList);
+                    if(list == null || !list.contains(handle)) continue;
+                    playersField = field;
+                    return list;
+                }
+            }
+        } catch(ReflectiveOperationException | RuntimeException e) {
+            plugin.getLogger().log(Level.FINE, "Could not find the server's player list", e);
+        }
+        unsupported = true;
+        plugin.getLogger().warning("Batched command sync is not supported on this server, sending commands to all players at once");
+        return null;
+    }
+
+    /**
+     * Stop sending the command tree. Players that haven't been sent the tree yet are sent it immediately.
+     */
+    public void close() {
+        HandlerList.unregisterAll(this);
+        if(task != null) task.cancel();
+        task = null;
+        for(Player player : queue) {
+            if(player.isOnline()) player.updateCommands();
+        }
+        queue.clear();
+    }
+}
@@ -0,0 +1,218 @@
+package com.mikedeejay2.fastreload.system;
+
+import com.mikedeejay2.fastreload.FastReload;
+import com.mikedeejay2.fastreload.api.ConfigReloadable;
+import com.mikedeejay2.fastreload.config.FastReloadConfig;
+import com.mikedeejay2.fastreload.util.DirectoryWatcher;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+/**
+ * Watches the data folders of loaded plugins and runs a lightweight configuration reload hook when one of their
+ * configuration files changes.
+ * <p>
+ * The hook is, in order of preference:
+ * <ol>
+ *     <li>{@link ConfigReloadable#onConfigReload(Set)} if the plugin implements {@link ConfigReloadable}</li>
+ *     <li>The command configured for the plugin in <code>Config Reload Commands</code></li>
+ *     <li>A full reload of the plugin if <code>Config Reload Fallback</code> is enabled</li>
+ * </ol>
+ *
+ * @author Mikedeejay2
+ */
+public class DataFolderWatcher implements FastReloadConfig.LoadListener {
+    /**
+     * Time after a plugin was loaded or had its hook run in which changes to its data folder are ignored, so that files
+     * written by the plugin itself while enabling or reloading don't trigger the hook again.
+     */
+    private static final long SUPPRESS_MILLIS = 2000;
+    private static final long DISPATCH_INTERVAL = 10;
+
+    private final FastReload plugin;
+    private final ReloadSystem system;
+    private final ConsoleCommandSender serverSender;
+    private final DirectoryWatcher<String> watcher;
+    private final BukkitTask dispatcher;
+
+    /**
+     * The changes that are waiting to be dispatched. Key = Plugin name, value = Pending changes of the plugin.
+     * Written by the watcher thread and read by the main thread, guarded by itself.
+     */
+    private final Map<String, PendingChange> pending = new HashMap<>();
+    /**
+     * Times until which changes are ignored. Key = Plugin name, value = Time in milliseconds
+     */
+    private final Map<String, Long> suppressedUntil = new ConcurrentHashMap<>();
+
+    private volatile List<PathMatcher> fileMatchers = Collections.emptyList();
+    private volatile long msWait;
+    private volatile Map<String, String> reloadCommands = Collections.emptyMap();
+    private volatile boolean fallbackReload;
+
+    public DataFolderWatcher(FastReload plugin, ReloadSystem system) throws IOException {
+        this.plugin = plugin;
+        this.system = system;
+        this.serverSender = plugin.getServer().getConsoleSender();
+        this.watcher = new DirectoryWatcher<>("FastReload Data Folder Watcher", this::onChange);
+        this.dispatcher = Bukkit.getScheduler().runTaskTimer(plugin, this::dispatch, DISPATCH_INTERVAL, DISPATCH_INTERVAL);
+
+        for(Plugin curPlugin : Bukkit.getPluginManager().getPlugins()) {
+            watch(curPlugin);
+        }
+    }
+
+    @Override
+    public void onConfigLoad(FastReloadConfig config) {
+        this.fileMatchers = config.DATA_FOLDER_FILES.get().stream()
+            .map(glob -> FileSystems.getDefault().getPathMatcher("glob:" + glob))
+            .collect(Collectors.toList());
+        this.msWait = (long) (config.DATA_FOLDER_WAIT.get() * 1000);
+        this.reloadCommands = config.CONFIG_RELOAD_COMMANDS.get().entrySet().stream()
+            .collect(Collectors.toMap(e -> e.getKey().toLowerCase(), Map.Entry::getValue));
+        this.fallbackReload = config.CONFIG_RELOAD_FALLBACK.get();
+    }
+
+    /**
+     * Start watching the data folder of a plugin. Changes made directly after this call are ignored, so this should be
+     * called after the plugin has been enabled. The data folder is walked and registered asynchronously, since it may
+     * contain many sub directories.
+     *
+     * @param target The plugin to watch
+     */
+    public void watch(Plugin target) {
+        if(target == plugin) return;
+        File dataFolder = target.getDataFolder();
+        if(!dataFolder.isDirectory()) return;
+        String pluginName = target.getName();
+        suppress(pluginName);
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                watcher.register(dataFolder.toPath(), pluginName, true);
+            } catch(IOException e) {
+                plugin.getLogger().log(Level.WARNING, String.format("Could not watch the data folder of plugin \"%s\"", pluginName), e);
+            } catch(ClosedWatchServiceException ignored) {
+                // The watcher was closed while the data folder was being registered
+            }
+        });
+    }
+
+    /**
+     * Stop watching all data folders.
+     */
+    public void close() {
+        dispatcher.cancel();
+        try {
+            watcher.close();
+        } catch(IOException ignored) {
+            // The watch service is being discarded anyways
+        }
+    }
+
+    /**
+     * Ignore changes to the data folder of a plugin for a short time and drop any changes that are still pending.
+     *
+     * @param pluginName The name of the plugin
+     */
+    private void suppress(String pluginName) {
+        suppressedUntil.put(pluginName, System.currentTimeMillis() + SUPPRESS_MILLIS);
+        synchronized(pending) {
+            pending.remove(pluginName);
+        }
+    }
+
+    /**
+     * Called on the watcher thread when a path in a data folder changes.
+     *
+     * @param pluginName The name of the plugin owning the data folder
+     * @param changed    The path that changed
+     */
+    private void onChange(String pluginName, Path changed) {
+        long now = System.currentTimeMillis();
+        if(now < suppressedUntil.getOrDefault(pluginName, 0L)) return;
+        Path fileName = changed.getFileName();
+        if(fileMatchers.stream().noneMatch(matcher -> matcher.matches(fileName))) return;
+
+        synchronized(pending) {
+            PendingChange change = pending.computeIfAbsent(pluginName, name -> new PendingChange());
+            change.files.add(changed.toFile());
+            change.lastChange = now;
+        }
+    }
+
+    /**
+     * Called on the main thread to run the hooks of all plugins whose data folders have settled.
+     */
+    private void dispatch() {
+        long now = System.currentTimeMillis();
+        Map<String, Set<File>> ready = new HashMap<>();
+        synchronized(pending) {
+            for(Iterator<Map.Entry<String, PendingChange>> i = pending.entrySet().iterator(); i.hasNext();) {
+                Map.Entry<String, PendingChange> entry = i.next();
+                if(now - entry.getValue().lastChange < msWait) continue;
+                ready.put(entry.getKey(), entry.getValue().files);
+                i.remove();
+            }
+        }
+        ready.forEach(this::runHook);
+    }
+
+    /**
+     * Run the configuration reload hook of a plugin.
+     *
+     * @param pluginName   The name of the plugin
+     * @param changedFiles The files that changed in the plugin's data folder
+     */
+    private void runHook(String pluginName, Set<File> changedFiles) {
+        Plugin target = Bukkit.getPluginManager().getPlugin(pluginName);
+        if(target == null || !target.isEnabled()) return;
+        String command = reloadCommands.get(pluginName.toLowerCase());
+        if(!(target instanceof ConfigReloadable) && command == null && !fallbackReload) return;
+
+        serverSender.sendMessage(ChatColor.YELLOW + String.format("Detected configuration change in plugin \"%s\", reloading...", pluginName));
+        long startTime = System.currentTimeMillis();
+
+        boolean success = true;
+        if(target instanceof ConfigReloadable) {
+            try {
+                ((ConfigReloadable) target).onConfigReload(Collections.unmodifiableSet(changedFiles));
+            } catch(Throwable throwable) {
+                plugin.getLogger().log(Level.SEVERE, String.format("Plugin \"%s\" failed to reload its configuration", pluginName), throwable);
+                success = false;
+            }
+        } else if(command != null) {
+            success = Bukkit.dispatchCommand(serverSender, command);
+        } else {
+            success = system.coordinator.runNow(Collections.singletonList(pluginName), ReloadTrigger.CONFIG,
+                () -> system.reloadPlugin(target, ReloadTrigger.CONFIG));
+        }
+        // Don't react to files that the plugin wrote while reloading
+        suppress(pluginName);
+
+        long endTime = System.currentTimeMillis();
+        long differenceTime = endTime - startTime;
+        if(!success) {
+            serverSender.sendMessage(ChatColor.RED + String.format("The configuration of plugin \"%s\" failed to reload after %d ms, check the console for errors.", pluginName, differenceTime));
+            return;
+        }
+        serverSender.sendMessage(ChatColor.GREEN + String.format("The server has successfully reloaded the configuration of plugin \"%s\" in %d ms.", pluginName, differenceTime));
+    }
+
+    private static final class PendingChange {
+        private final Set<File> files = new HashSet<>();
+        private long lastChange;
+    }
+}
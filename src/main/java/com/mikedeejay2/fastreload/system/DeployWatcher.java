@@ -0,0 +1,292 @@
+package com.mikedeejay2.fastreload.system;
+
+import com.mikedeejay2.fastreload.FastReload;
+import com.mikedeejay2.fastreload.util.DirectoryWatcher;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipFile;
+
+/**
+ * Watches external build output paths (configured in <code>Deploy Sources</code>) and deploys new build artifacts
+ * into the plugins folder.
+ * <p>
+ * Once an artifact has stopped changing for <code>Deploy Stable Time</code> seconds and can be opened as a zip, it is
+ * copied to a temporary file in the plugins folder and then atomically moved over the plugin's current jar, after
+ * which the plugin is reloaded. The server never sees a half written jar and doesn't have to wait for the automatic
+ * reloader to notice the change. An artifact with the same size and CRC as the installed jar is not deployed, so
+ * starting the watcher doesn't redeploy the artifacts that are already installed.
+ *
+ * @author Mikedeejay2
+ */
+public class DeployWatcher {
+    private static final long CHECK_INTERVAL = 5;
+    private static final String TEMP_SUFFIX = ".fastreload-tmp";
+
+    private final FastReload plugin;
+    private final ReloadSystem system;
+    private final ConsoleCommandSender serverSender;
+    private final List<DeploySource> sources = new ArrayList<>();
+    private final DirectoryWatcher<DeploySource> watcher;
+    private final BukkitTask checkTask;
+    private final long stableMillis;
+
+    /**
+     * Construct and start a new deploy watcher
+     *
+     * @param plugin       A reference to the <code>FastReload</code> plugin
+     * @param system       The reload system to reload deployed plugins with
+     * @param sourcePaths  The deploy sources. Key = plugin name, value = path of the build artifact, the file name may
+     *                     be a glob pattern and a leading <code>~</code> is replaced with the user's home directory
+     * @param stableTime   The time in seconds that an artifact must stay unchanged before it is deployed
+     * @throws IOException If the file system's watch service could not be created
+     */
+    public DeployWatcher(FastReload plugin, ReloadSystem system, Map<String, String> sourcePaths, double stableTime) throws IOException {
+        this.plugin = plugin;
+        this.system = system;
+        this.serverSender = plugin.getServer().getConsoleSender();
+        this.stableMillis = (long) (stableTime * 1000);
+        for(Map.Entry<String, String> entry : sourcePaths.entrySet()) {
+            String path = entry.getValue();
+            if(path.startsWith("~")) path = System.getProperty("user.home") + path.substring(1);
+            Path artifact = Paths.get(path).toAbsolutePath();
+            sources.add(new DeploySource(entry.getKey(), artifact.getParent(),
+                FileSystems.getDefault().getPathMatcher("glob:" + artifact.getFileName())));
+        }
+        this.watcher = new DirectoryWatcher<>("FastReload Deploy Watcher", (source, changed) -> source.dirty = true);
+        this.checkTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::check, CHECK_INTERVAL, CHECK_INTERVAL);
+    }
+
+    /**
+     * Stop watching all deploy sources.
+     */
+    public void close() {
+        checkTask.cancel();
+        try {
+            watcher.close();
+        } catch(IOException ignored) {
+            // The watch service is being discarded anyways
+        }
+    }
+
+    /**
+     * Check all deploy sources for stable new artifacts. Called asynchronously.
+     */
+    private void check() {
+        for(DeploySource source : sources) {
+            // Build tools often delete and recreate their output directory, so watches have to be renewed
+            if(!watcher.isWatching(source.directory) && Files.isDirectory(source.directory)) {
+                try {
+                    watcher.register(source.directory, source, false);
+                    source.dirty = true;
+                } catch(IOException ignored) {
+                    // Try again next check
+                }
+            }
+            if(!source.dirty && source.candidate == null) continue;
+            source.dirty = false;
+            checkSource(source);
+        }
+    }
+
+    private void checkSource(DeploySource source) {
+        Path artifact = findArtifact(source);
+        if(artifact == null) {
+            source.candidate = null;
+            return;
+        }
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(artifact, BasicFileAttributes.class);
+        } catch(IOException e) {
+            source.candidate = null;
+            return;
+        }
+        long modified = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+        if(artifact.equals(source.deployedPath) && modified == source.deployedModified && size == source.deployedSize) {
+            source.candidate = null;
+            return;
+        }
+        // A different file or a changing file restarts the stability timer
+        if(!artifact.equals(source.candidate) || modified != source.candidateModified || size != source.candidateSize) {
+            source.candidate = artifact;
+            source.candidateModified = modified;
+            source.candidateSize = size;
+            source.candidateSince = System.currentTimeMillis();
+            return;
+        }
+        if(System.currentTimeMillis() - source.candidateSince < stableMillis) return;
+        if(!isCompleteZip(artifact)) {
+            source.candidateSince = System.currentTimeMillis();
+            return;
+        }
+
+        source.candidate = null;
+        source.deployedPath = artifact;
+        source.deployedModified = modified;
+        source.deployedSize = size;
+        deploy(source, artifact);
+    }
+
+    /**
+     * Find the newest build artifact of a deploy source. Shade plugin originals, source jars and javadoc jars are
+     * skipped.
+     *
+     * @param source The deploy source
+     * @return The newest matching artifact, null if there is none
+     */
+    private Path findArtifact(DeploySource source) {
+        if(!Files.isDirectory(source.directory)) return null;
+        try(Stream<Path> files = Files.list(source.directory)) {
+            return files
+                .filter(file -> source.matcher.matches(file.getFileName()))
+                .filter(file -> {
+                    String name = file.getFileName().toString();
+                    return !name.startsWith("original-") && !name.endsWith("-sources.jar") && !name.endsWith("-javadoc.jar");
+                })
+                .filter(Files::isRegularFile)
+                .max((a, b) -> Long.compare(a.toFile().lastModified(), b.toFile().lastModified()))
+                .orElse(null);
+        } catch(IOException e) {
+            return null;
+        }
+    }
+
+    private static boolean isCompleteZip(Path artifact) {
+        try(ZipFile ignored = new ZipFile(artifact.toFile())) {
+            return true;
+        } catch(IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Check whether an artifact is identical to the installed jar by comparing their sizes and CRCs.
+     *
+     * @param artifact  The build artifact
+     * @param installed The installed jar
+     * @return True if both files have the same size and CRC
+     */
+    private static boolean isSameContent(Path artifact, Path installed) {
+        try {
+            if(Files.size(artifact) != Files.size(installed)) return false;
+            return getCrc(artifact) == getCrc(installed);
+        } catch(IOException e) {
+            return false;
+        }
+    }
+
+    private static long getCrc(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[8192];
+        try(InputStream in = Files.newInputStream(file)) {
+            for(int read; (read = in.read(buffer)) != -1;) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Move a stable artifact into the plugins folder and schedule the reload of its plugin.
+     *
+     * @param source   The deploy source of the artifact
+     * @param artifact The artifact to deploy
+     */
+    private void deploy(DeploySource source, Path artifact) {
+        PluginDescriptionFile description = system.getPluginDescription(artifact.toFile(), false);
+        if(description == null || !description.getName().equals(source.pluginName)) {
+            plugin.getLogger().warning(String.format("Build artifact \"%s\" is not plugin \"%s\", not deploying it", artifact, source.pluginName));
+            return;
+        }
+        // Replace the jar that the plugin is currently loaded from so that no duplicate jars are left behind
+        File current = system.getPluginFile(source.pluginName);
+        if(current != null && isSameContent(artifact, current.toPath())) return;
+        Path target = current != null ? current.toPath() : ReloadSystem.PLUGINS_DIRECTORY.toPath().resolve(artifact.getFileName());
+        Path temp = target.resolveSibling("." + target.getFileName() + TEMP_SUFFIX);
+        try {
+            Files.copy(artifact, temp, StandardCopyOption.REPLACE_EXISTING);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch(AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch(IOException e) {
+            plugin.getLogger().log(Level.SEVERE, String.format("Could not deploy \"%s\" to \"%s\"", artifact, target), e);
+            try {
+                Files.deleteIfExists(temp);
+            } catch(IOException ignored) {
+                // Nothing else to clean up
+            }
+            return;
+        }
+        system.coordinator.submit(source.pluginName, serverSender, sender -> reloadDeployed(sender, source.pluginName));
+    }
+
+    /**
+     * Reload or load a plugin after its new jar was deployed. Called on the main thread.
+     *
+     * @param sender     The <code>CommandSender</code> that receives the messages of the reload
+     * @param pluginName The name of the deployed plugin
+     */
+    private void reloadDeployed(CommandSender sender, String pluginName) {
+        sender.sendMessage(ChatColor.YELLOW + String.format("Deployed new build of plugin \"%s\", reloading...", pluginName));
+        long startTime = System.currentTimeMillis();
+
+        Plugin target = Bukkit.getPluginManager().getPlugin(pluginName);
+        boolean success = target == null
+            ? system.loadNewPlugin(pluginName, ReloadTrigger.DEPLOY)
+            : system.reloadPlugin(target, ReloadTrigger.DEPLOY);
+
+        long endTime = System.currentTimeMillis();
+        long differenceTime = endTime - startTime;
+        if(!success) {
+            sender.sendMessage(ChatColor.RED + String.format("The plugin \"%s\" failed to reload after %d ms, check the console for errors.", pluginName, differenceTime));
+            return;
+        }
+        sender.sendMessage(ChatColor.GREEN + String.format("The server has successfully reloaded plugin \"%s\" in %d ms. (%s)", pluginName, differenceTime, system.getLastFootprint().summary()));
+    }
+
+    /**
+     * A configured build output path and the state of its latest artifact. Only accessed by the check task, except for
+     * {@link DeploySource#dirty} which is set by the watcher thread.
+     */
+    private static final class DeploySource {
+        private final String pluginName;
+        private final Path directory;
+        private final PathMatcher matcher;
+        private volatile boolean dirty = true;
+
+        private Path candidate;
+        private long candidateModified;
+        private long candidateSize;
+        private long candidateSince;
+
+        private Path deployedPath;
+        private long deployedModified;
+        private long deployedSize;
+
+        private DeploySource(String pluginName, Path directory, PathMatcher matcher) {
+            this.pluginName = pluginName;
+            this.directory = directory;
+            this.matcher = matcher;
+        }
+    }
+}
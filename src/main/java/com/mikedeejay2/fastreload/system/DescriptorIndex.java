@@ -0,0 +1,273 @@
+package com.mikedeejay2.fastreload.system;
+
+import org.bukkit.plugin.PluginDescriptionFile;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A persistent index of the plugin descriptors of the jars in the plugins folder, stored in Fast Reload's data folder.
+ * <p>
+ * Every entry holds the size and modification time of the jar it was read from, so an entry is validated with a single
+ * stat of the jar and the jar only has to be opened again when it changed. Besides the plugin's name, provides and
+ * depends, an entry holds the {@link JarSnapshot#getClassesFingerprint() fingerprints} of the jar's contents, which
+ * lets the {@link AutoReloaderRunnable} classify the first change to a jar after a restart without having kept a full
+ * snapshot of it.
+ * <p>
+ * File format (big endian):
+ * <pre>
+ * Header:
+ *   0  int   magic "FRDX"
+ *   4  int   format version
+ *   8  int   entry count
+ * Entry:
+ *      UTF   jar path
+ *      long  jar size in bytes
+ *      long  jar modification time in milliseconds
+ *      bool  whether the fingerprints are present
+ *      long  classes fingerprint
+ *      long  resources fingerprint
+ *      UTF   plugin name
+ *      int   provides count, followed by that many UTF names
+ *      int   depend count, followed by that many UTF names
+ * </pre>
+ * Entries can be read and updated from any thread.
+ *
+ * @author Mikedeejay2
+ */
+public class DescriptorIndex {
+    public static final String FILE_NAME = "descriptors.idx";
+
+    private static final int MAGIC = 0x46524458;
+    private static final int VERSION = 1;
+
+    private final File file;
+    /**
+     * The indexed jars. Key = Jar file, value = The latest entry of the jar
+     */
+    private final Map<File, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    /**
+     * Construct a new, empty descriptor index
+     *
+     * @param file The file that the index is stored in
+     */
+    public DescriptorIndex(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Load the index from its file, replacing all entries. An index of another format version is ignored.
+     *
+     * @throws IOException If the file exists but could not be read
+     */
+    public void load() throws IOException {
+        entries.clear();
+        if(!file.exists()) return;
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if(in.readInt() != MAGIC || in.readInt() != VERSION) return;
+            int count = in.readInt();
+            for(int i = 0; i < count; ++i) {
+                Entry entry = new Entry(
+                    new File(in.readUTF()), in.readLong(), in.readLong(),
+                    in.readBoolean(), in.readLong(), in.readLong(),
+                    in.readUTF(), readStrings(in), readStrings(in));
+                entries.put(entry.file, entry);
+            }
+        }
+    }
+
+    /**
+     * Save the index to its file if it changed since it was loaded or last saved. Entries of jars that no longer exist
+     * are left out. The file is replaced atomically where possible.
+     *
+     * @throws IOException If the file could not be written
+     */
+    public synchronized void save() throws IOException {
+        if(!dirty) return;
+        dirty = false;
+        List<Entry> existing = new ArrayList<>();
+        for(Entry entry : entries.values()) {
+            if(entry.file.exists()) existing.add(entry);
+        }
+        Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+        File temp = new File(file.getPath() + ".tmp");
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(existing.size());
+            for(Entry entry : existing) {
+                out.writeUTF(entry.file.getPath());
+                out.writeLong(entry.size);
+                out.writeLong(entry.lastModified);
+                out.writeBoolean(entry.fingerprinted);
+                out.writeLong(entry.classesFingerprint);
+                out.writeLong(entry.resourcesFingerprint);
+                out.writeUTF(entry.name);
+                writeStrings(out, entry.provides);
+                writeStrings(out, entry.depends);
+            }
+        } catch(IOException e) {
+            dirty = true;
+            throw e;
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch(IOException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Get the entry of a jar if it is still valid.
+     *
+     * @param jar          The jar file
+     * @param size         The current size of the jar
+     * @param lastModified The current modification time of the jar
+     * @return The entry, null if the jar isn't indexed or changed since it was indexed
+     */
+    public Entry get(File jar, long size, long lastModified) {
+        Entry entry = entries.get(jar);
+        return entry != null && entry.matches(size, lastModified) ? entry : null;
+    }
+
+    /**
+     * Index the descriptor of a jar, replacing its previous entry.
+     *
+     * @param jar          The jar file
+     * @param size         The size of the jar that the descriptor was read from
+     * @param lastModified The modification time of the jar that the descriptor was read from
+     * @param description  The descriptor
+     */
+    public void update(File jar, long size, long lastModified, PluginDescriptionFile description) {
+        entries.put(jar, new Entry(jar, size, lastModified, false, 0, 0,
+            description.getName(), description.getProvides(), description.getDepend()));
+        dirty = true;
+    }
+
+    /**
+     * Store the fingerprints of a snapshot of a jar in the jar's entry, if the entry is of the same version of the jar.
+     *
+     * @param snapshot The snapshot of the jar
+     */
+    public void updateFingerprints(JarSnapshot snapshot) {
+        entries.computeIfPresent(snapshot.getFile(), (jar, entry) -> {
+            if(!entry.matches(snapshot.getSize(), snapshot.getLastModified())) return entry;
+            if(entry.fingerprinted && entry.classesFingerprint == snapshot.getClassesFingerprint()
+                && entry.resourcesFingerprint == snapshot.getResourcesFingerprint()) return entry;
+            dirty = true;
+            return new Entry(jar, entry.size, entry.lastModified, true,
+                snapshot.getClassesFingerprint(), snapshot.getResourcesFingerprint(),
+                entry.name, entry.provides, entry.depends);
+        });
+    }
+
+    /**
+     * Get all entries, including entries that may no longer be valid.
+     *
+     * @return The entries
+     */
+    public Collection<Entry> getEntries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> strings = new ArrayList<>(count);
+        for(int i = 0; i < count; ++i) {
+            strings.add(in.readUTF());
+        }
+        return strings;
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for(String string : strings) {
+            out.writeUTF(string);
+        }
+    }
+
+    /**
+     * An immutable entry of the index.
+     */
+    public static final class Entry {
+        private final File file;
+        private final long size;
+        private final long lastModified;
+        private final boolean fingerprinted;
+        private final long classesFingerprint;
+        private final long resourcesFingerprint;
+        private final String name;
+        private final List<String> provides;
+        private final List<String> depends;
+
+        private Entry(File file, long size, long lastModified, boolean fingerprinted, long classesFingerprint,
+                      long resourcesFingerprint, String name, List<String> provides, List<String> depends) {
+            this.file = file;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.fingerprinted = fingerprinted;
+            this.classesFingerprint = classesFingerprint;
+            this.resourcesFingerprint = resourcesFingerprint;
+            this.name = name;
+            this.provides = Collections.unmodifiableList(new ArrayList<>(provides));
+            this.depends = Collections.unmodifiableList(new ArrayList<>(depends));
+        }
+
+        /**
+         * Check whether this entry was read from the given version of its jar.
+         *
+         * @param size         The size of the jar
+         * @param lastModified The modification time of the jar
+         * @return Whether the size and modification time match
+         */
+        public boolean matches(long size, long lastModified) {
+            return this.size == size && this.lastModified == lastModified;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Get whether the fingerprints of the jar's contents are known.
+         *
+         * @return Whether {@link Entry#getClassesFingerprint()} and {@link Entry#getResourcesFingerprint()} are set
+         */
+        public boolean hasFingerprints() {
+            return fingerprinted;
+        }
+
+        public long getClassesFingerprint() {
+            return classesFingerprint;
+        }
+
+        public long getResourcesFingerprint() {
+            return resourcesFingerprint;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<String> getProvides() {
+            return provides;
+        }
+
+        public List<String> getDepends() {
+            return depends;
+        }
+    }
+}
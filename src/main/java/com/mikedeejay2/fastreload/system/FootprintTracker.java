@@ -0,0 +1,184 @@
+package com.mikedeejay2.fastreload.system;
+
+import java.lang.management.*;
+import java.util.*;
+
+/**
+ * Tracks the memory footprint of plugin reloads. Around every reload, the JVM's loaded class counts, Metaspace usage
+ * and heap usage are sampled and the difference is recorded as a new generation of the reloaded plugin.
+ * <p>
+ * Only accessed from the main thread.
+ *
+ * @author Mikedeejay2
+ */
+public class FootprintTracker {
+    private static final int MAX_GENERATIONS = 32;
+    private static final String METASPACE_POOL = "Metaspace";
+
+    private final ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final MemoryPoolMXBean metaspace = findMetaspacePool();
+    /**
+     * The recorded generations of each plugin. Key = plugin name, value = the latest generations, oldest first
+     */
+    private final Map<String, Deque<Generation>> history = new LinkedHashMap<>();
+    /**
+     * The number of generations ever recorded for each plugin. Key = plugin name, value = generation count
+     */
+    private final Map<String, Integer> generationCounts = new HashMap<>();
+
+    private long metaspaceBefore;
+    private long heapBefore;
+    private long totalLoadedBefore;
+    private long unloadedBefore;
+
+    /**
+     * Sample the JVM before a reload starts.
+     */
+    public void begin() {
+        metaspaceBefore = getMetaspaceUsed();
+        heapBefore = memory.getHeapMemoryUsage().getUsed();
+        totalLoadedBefore = classLoading.getTotalLoadedClassCount();
+        unloadedBefore = classLoading.getUnloadedClassCount();
+    }
+
+    /**
+     * Sample the JVM after a reload ended and record the difference as a new generation of the plugin.
+     *
+     * @param pluginName     The name of the reloaded plugin
+     * @param classesDefined The number of classes defined by the plugin's new class loader, -1 if unknown
+     * @return The recorded generation
+     */
+    public Generation end(String pluginName, int classesDefined) {
+        long metaspaceAfter = getMetaspaceUsed();
+        int number = generationCounts.merge(pluginName, 1, Integer::sum);
+        Generation generation = new Generation(
+            number,
+            System.currentTimeMillis(),
+            metaspaceAfter,
+            metaspaceAfter - metaspaceBefore,
+            memory.getHeapMemoryUsage().getUsed() - heapBefore,
+            classesDefined,
+            classLoading.getTotalLoadedClassCount() - totalLoadedBefore,
+            classLoading.getUnloadedClassCount() - unloadedBefore);
+
+        Deque<Generation> generations = history.computeIfAbsent(pluginName, name -> new ArrayDeque<>());
+        if(generations.size() >= MAX_GENERATIONS) generations.removeFirst();
+        generations.addLast(generation);
+        return generation;
+    }
+
+    /**
+     * Get the recorded generations of a plugin.
+     *
+     * @param pluginName The name of the plugin
+     * @return The latest recorded generations, oldest first. Empty if the plugin was never reloaded.
+     */
+    public List<Generation> getGenerations(String pluginName) {
+        Deque<Generation> generations = history.get(pluginName);
+        return generations == null ? Collections.emptyList() : new ArrayList<>(generations);
+    }
+
+    /**
+     * Get the names of all plugins that have recorded generations.
+     *
+     * @return The plugin names, in order of their first reload
+     */
+    public Set<String> getTrackedPlugins() {
+        return Collections.unmodifiableSet(history.keySet());
+    }
+
+    /**
+     * Get the current Metaspace usage of the JVM.
+     *
+     * @return The used Metaspace in bytes, -1 if the JVM has no Metaspace pool
+     */
+    public long getMetaspaceUsed() {
+        return metaspace == null ? -1 : metaspace.getUsage().getUsed();
+    }
+
+    private static MemoryPoolMXBean findMetaspacePool() {
+        for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if(pool.getName().equals(METASPACE_POOL)) return pool;
+        }
+        return null;
+    }
+
+    /**
+     * The footprint of one reload of a plugin.
+     */
+    public static final class Generation {
+        private final int number;
+        private final long timestamp;
+        private final long metaspaceUsed;
+        private final long metaspaceDelta;
+        private final long heapDelta;
+        private final int classesDefined;
+        private final long classesLoaded;
+        private final long classesUnloaded;
+
+        private Generation(int number, long timestamp, long metaspaceUsed, long metaspaceDelta, long heapDelta,
+                           int classesDefined, long classesLoaded, long classesUnloaded) {
+            this.number = number;
+            this.timestamp = timestamp;
+            this.metaspaceUsed = metaspaceUsed;
+            this.metaspaceDelta = metaspaceDelta;
+            this.heapDelta = heapDelta;
+            this.classesDefined = classesDefined;
+            this.classesLoaded = classesLoaded;
+            this.classesUnloaded = classesUnloaded;
+        }
+
+        /**
+         * Get a short, human readable summary of this generation's footprint.
+         *
+         * @return The summary
+         */
+        public String summary() {
+            return String.format("Metaspace %s, heap %s, %d classes defined",
+                formatDelta(metaspaceDelta), formatDelta(heapDelta), classesDefined);
+        }
+
+        /**
+         * Format a byte difference as signed megabytes.
+         *
+         * @param bytes The difference in bytes
+         * @return The formatted difference, such as <code>+1.25 MB</code>
+         */
+        public static String formatDelta(long bytes) {
+            return String.format("%+.2f MB", bytes / (1024.0 * 1024.0));
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public long getMetaspaceUsed() {
+            return metaspaceUsed;
+        }
+
+        public long getMetaspaceDelta() {
+            return metaspaceDelta;
+        }
+
+        public long getHeapDelta() {
+            return heapDelta;
+        }
+
+        public int getClassesDefined() {
+            return classesDefined;
+        }
+
+        public long getClassesLoaded() {
+            return classesLoaded;
+        }
+
+        public long getClassesUnloaded() {
+            return classesUnloaded;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.mikedeejay2.fastreload.system;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.Method;
+
+/**
+ * Java agent used by {@link HotSwapper} to get access to an {@link Instrumentation} instance.
+ * <p>
+ * This class is copied into a small generated agent jar and loaded by the system class loader when the agent is
+ * attached, so it must not reference any Bukkit or FastReload classes.
+ *
+ * @author Mikedeejay2
+ */
+public final class HotSwapAgent {
+    /**
+     * The instrumentation instance, set when the agent is attached. Read through reflection by {@link HotSwapper}
+     * because the plugin's copy of this class is a different class than the one that the system class loader loads.
+     */
+    public static volatile Instrumentation instrumentation;
+
+    public static void agentmain(String args, Instrumentation inst) {
+        instrumentation = inst;
+    }
+
+    public static void premain(String args, Instrumentation inst) {
+        instrumentation = inst;
+    }
+
+    /**
+     * Entry point of the helper process that is used to attach the agent when the JVM doesn't allow attaching to
+     * itself (Java 9+ without <code>-Djdk.attach.allowAttachSelf=true</code>).
+     *
+     * @param args The process id of the JVM to attach to and the path of the agent jar
+     * @throws Exception If attaching fails for any reason, the exit code of the process is used to report failure
+     */
+    public static void main(String[] args) throws Exception {
+        attach(args[0], args[1]);
+    }
+
+    /**
+     * Attach an agent jar to a JVM using the Attach API. The Attach API is accessed through reflection because it is
+     * not on the compile or run time class path of Java 8.
+     *
+     * @param pid       The process id of the JVM
+     * @param agentPath The path of the agent jar
+     * @throws Exception If attaching fails
+     */
+    static void attach(String pid, String agentPath) throws Exception {
+        Class<?> vmClass = Class.forName("com.sun.tools.attach.VirtualMachine");
+        Object vm = vmClass.getMethod("attach", String.class).invoke(null, pid);
+        try {
+            Method loadAgent = vmClass.getMethod("loadAgent", String.class);
+            loadAgent.invoke(vm, agentPath);
+        } finally {
+            vmClass.getMethod("detach").invoke(vm);
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.mikedeejay2.fastreload.system;
+
+import com.mikedeejay2.fastreload.FastReload;
+import com.mikedeejay2.fastreload.util.ReflectUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.instrument.ClassDefinition;
+import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.logging.Level;
+import java.util.zip.ZipFile;
+
+/**
+ * Hot swapping system for plugins. Instead of disabling and enabling a plugin, the hot swapper redefines the classes
+ * of the plugin's existing class loader through {@link Instrumentation#redefineClasses(ClassDefinition...)}.
+ * <p>
+ * This is only possible when the changes between the loaded generation of a plugin and the new jar are limited to
+ * method bodies. Any other change (added or removed classes, changed fields or method signatures, changed resources)
+ * is reported as not hot swappable and the caller is expected to fall back to a full reload.
+ *
+ * @author Mikedeejay2
+ */
+public class HotSwapper {
+    private static final String AGENT_JAR_NAME = "hotswap-agent.jar";
+    private static final String META_INF = "META-INF/";
+    private static final long ATTACH_TIMEOUT_SECONDS = 30;
+
+    private final FastReload plugin;
+    /**
+     * The snapshots of the currently loaded generation of each plugin. Key = plugin name, value = snapshot of the jar
+     * that the loaded plugin was created from.
+     */
+    private final Map<String, JarSnapshot> generations = new ConcurrentHashMap<>();
+    private volatile Instrumentation instrumentation;
+
+    public HotSwapper(FastReload plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Attach the hot swap agent and snapshot the jars of all currently loaded plugins. Attaching may start a helper
+     * process and reads every plugin jar, so this should be called asynchronously.
+     */
+    public void initialize() {
+        try {
+            this.instrumentation = acquireInstrumentation();
+        } catch(Exception e) {
+            plugin.getLogger().log(Level.WARNING, "Could not attach the hot swap agent, plugins will be fully reloaded", e);
+            return;
+        }
+        for(Plugin curPlugin : Bukkit.getPluginManager().getPlugins()) {
+            snapshot(curPlugin);
+        }
+    }
+
+    /**
+     * Snapshot the jar of a plugin as the currently loaded generation of that plugin. Should be called whenever a
+     * plugin has been loaded from its jar.
+     *
+     * @param target The plugin that was loaded
+     */
+    public void snapshot(Plugin target) {
+        if(instrumentation == null) return;
+        File file = getPluginJar(target);
+        if(file == null) return;
+        try {
+            generations.put(target.getName(), JarSnapshot.read(file, true));
+        } catch(IOException e) {
+            generations.remove(target.getName());
+        }
+    }
+
+    /**
+     * Attempt to hot swap a plugin to the current contents of its jar.
+     *
+     * @param target The plugin to hot swap
+     * @return True if the plugin's classes are now up to date, false if a full reload is required
+     */
+    public boolean hotSwap(Plugin target) {
+        Instrumentation inst = this.instrumentation;
+        if(inst == null) return false;
+        JarSnapshot previous = generations.get(target.getName());
+        File file = getPluginJar(target);
+        if(previous == null || file == null || !file.exists()) {
+            return fallback(target, "the loaded generation has no snapshot");
+        }
+        // Nothing to swap, a reload of an unchanged plugin is a request to restart it
+        if(previous.isUnchangedOnDisk()) return false;
+
+        JarSnapshot current;
+        try {
+            current = JarSnapshot.read(file, true);
+        } catch(IOException e) {
+            return fallback(target, "the jar could not be read");
+        }
+        if(current.getFileKey() != null && current.getFileKey().equals(previous.getFileKey())) {
+            // The old class loader still reads from the same file, it can't load anything from it anymore
+            return fallback(target, "the jar was overwritten in place instead of replaced");
+        }
+        List<String> changedClasses = new ArrayList<>();
+        String reason = findChangedClasses(previous, current, changedClasses);
+        if(reason != null) return fallback(target, reason);
+
+        Map<String, Class<?>> loadedClasses = getLoadedClasses(inst, target.getClass().getClassLoader());
+        List<ClassDefinition> definitions = new ArrayList<>();
+        try(ZipFile zipFile = new ZipFile(file)) {
+            for(String name : changedClasses) {
+                Class<?> loadedClass = loadedClasses.get(JarSnapshot.toClassName(name));
+                if(loadedClass == null) {
+                    // An unloaded class would be lazily loaded from the old jar, which no longer matches the new one
+                    return fallback(target, "changed class \"" + JarSnapshot.toClassName(name) + "\" is not loaded");
+                }
+                definitions.add(new ClassDefinition(loadedClass, JarSnapshot.readEntry(zipFile, zipFile.getEntry(name))));
+            }
+        } catch(IOException e) {
+            return fallback(target, "the jar could not be read");
+        }
+
+        try {
+            inst.redefineClasses(definitions.toArray(new ClassDefinition[0]));
+        } catch(ClassNotFoundException | UnmodifiableClassException | UnsupportedOperationException | LinkageError e) {
+            return fallback(target, "the JVM rejected the new classes (" + e + ")");
+        }
+        generations.put(target.getName(), current);
+        plugin.getLogger().info(String.format("Hot swapped %d classes of plugin \"%s\"", definitions.size(), target.getName()));
+        return true;
+    }
+
+    /**
+     * Forget the loaded generation of a plugin. Should be called when a plugin is unloaded.
+     *
+     * @param pluginName The name of the plugin
+     */
+    public void forget(String pluginName) {
+        generations.remove(pluginName);
+    }
+
+    /**
+     * Find the classes that changed between two generations of a jar, if all changes are limited to method bodies.
+     *
+     * @param previous       The snapshot of the loaded generation
+     * @param current        The snapshot of the new jar
+     * @param changedClasses The list to add the entry names of the changed classes to
+     * @return The reason why the changes can't be hot swapped, null if they can be
+     */
+    static String findChangedClasses(JarSnapshot previous, JarSnapshot current, List<String> changedClasses) {
+        if(!current.getClassSchemas().keySet().equals(previous.getClassSchemas().keySet())) {
+            return "classes were added or removed";
+        }
+        for(Map.Entry<String, Long> entry : current.getEntryCrcs().entrySet()) {
+            String name = entry.getKey();
+            if(entry.getValue().equals(previous.getEntryCrcs().get(name))) continue;
+            if(!JarSnapshot.isClass(name)) {
+                if(name.startsWith(META_INF)) continue;
+                return "resource \"" + name + "\" changed";
+            }
+            if(!current.getClassSchemas().get(name).equals(previous.getClassSchemas().get(name))) {
+                return "class \"" + JarSnapshot.toClassName(name) + "\" changed more than method bodies";
+            }
+            changedClasses.add(name);
+        }
+        for(String name : previous.getEntryCrcs().keySet()) {
+            if(name.startsWith(META_INF) || current.getEntryCrcs().containsKey(name)) continue;
+            return "resource \"" + name + "\" was removed";
+        }
+        return null;
+    }
+
+    private boolean fallback(Plugin target, String reason) {
+        plugin.getLogger().info(String.format("Can't hot swap plugin \"%s\" because %s, fully reloading instead", target.getName(), reason));
+        return false;
+    }
+
+    /**
+     * Get all classes that have been defined by a class loader, keyed by binary name.
+     *
+     * @param inst   The instrumentation instance
+     * @param loader The class loader
+     * @return The defined classes of the class loader
+     */
+    private static Map<String, Class<?>> getLoadedClasses(Instrumentation inst, ClassLoader loader) {
+        Map<String, Class<?>> classes = new HashMap<>();
+        for(Class<?> loadedClass : inst.getAllLoadedClasses()) {
+            if(loadedClass.getClassLoader() != loader) continue;
+            classes.put(loadedClass.getName(), loadedClass);
+        }
+        return classes;
+    }
+
+    /**
+     * Get the jar file that a plugin was loaded from using {@link JavaPlugin}'s protected <code>getFile()</code>
+     * method.
+     *
+     * @param target The plugin
+     * @return The plugin's jar file, null if it could not be retrieved
+     */
+    public static File getPluginJar(Plugin target) {
+        if(!(target instanceof JavaPlugin)) return null;
+        try {
+            return ReflectUtil.invokeMethod("getFile", target, JavaPlugin.class, File.class, new Class[0], new Object[0]);
+        } catch(NoSuchMethodException | InvocationTargetException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the {@link Instrumentation} instance of the hot swap agent, attaching the agent first if required.
+     *
+     * @return The instrumentation instance
+     * @throws Exception If the agent could not be attached
+     */
+    private Instrumentation acquireInstrumentation() throws Exception {
+        Instrumentation inst = getAgentInstrumentation();
+        if(inst != null) return inst;
+
+        File agentJar = writeAgentJar();
+        String pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+        try {
+            HotSwapAgent.attach(pid, agentJar.getAbsolutePath());
+        } catch(Exception e) {
+            // Java 9+ doesn't allow self attaching by default and Java 8 doesn't have the Attach API on the class path
+            attachFromHelperProcess(pid, agentJar);
+        }
+
+        inst = getAgentInstrumentation();
+        if(inst == null) throw new IllegalStateException("The hot swap agent was attached but did not initialize");
+        if(!inst.isRedefineClassesSupported()) throw new UnsupportedOperationException("This JVM can't redefine classes");
+        return inst;
+    }
+
+    /**
+     * Get the instrumentation of the agent class loaded by the system class loader, if the agent has been attached.
+     *
+     * @return The instrumentation instance, null if the agent is not attached
+     */
+    private static Instrumentation getAgentInstrumentation() throws NoSuchFieldException, IllegalAccessException {
+        Class<?> agentClass;
+        try {
+            agentClass = Class.forName(HotSwapAgent.class.getName(), true, ClassLoader.getSystemClassLoader());
+        } catch(ClassNotFoundException e) {
+            return null;
+        }
+        return ReflectUtil.getField("instrumentation", null, agentClass, Instrumentation.class);
+    }
+
+    /**
+     * Launch a second JVM that attaches the agent jar to this JVM.
+     *
+     * @param pid      The process id of this JVM
+     * @param agentJar The agent jar
+     */
+    private static void attachFromHelperProcess(String pid, File agentJar) throws IOException, InterruptedException {
+        File javaHome = new File(System.getProperty("java.home"));
+        String classPath = agentJar.getAbsolutePath();
+        // Java 8 keeps the Attach API in the JDK's tools.jar, java.home points to the JDK's jre folder
+        File toolsJar = new File(javaHome.getParentFile(), "lib" + File.separator + "tools.jar");
+        if(toolsJar.exists()) classPath += File.pathSeparator + toolsJar.getAbsolutePath();
+
+        Process process = new ProcessBuilder(
+            new File(javaHome, "bin" + File.separator + "java").getAbsolutePath(),
+            "-cp", classPath, HotSwapAgent.class.getName(), pid, agentJar.getAbsolutePath())
+            .redirectErrorStream(true)
+            .start();
+        if(!process.waitFor(ATTACH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            process.destroy();
+            throw new IOException("Timed out attaching the hot swap agent");
+        }
+        if(process.exitValue() != 0) {
+            throw new IOException("The hot swap agent helper process exited with code " + process.exitValue());
+        }
+    }
+
+    /**
+     * Write the agent jar into FastReload's data folder. The agent jar only contains {@link HotSwapAgent}.
+     *
+     * @return The agent jar file
+     */
+    private File writeAgentJar() throws IOException {
+        File agentJar = new File(plugin.getDataFolder(), AGENT_JAR_NAME);
+        Files.createDirectories(plugin.getDataFolder().toPath());
+
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.put(Attributes.Name.MAIN_CLASS, HotSwapAgent.class.getName());
+        attributes.putValue("Agent-Class", HotSwapAgent.class.getName());
+        attributes.putValue("Premain-Class", HotSwapAgent.class.getName());
+        attributes.putValue("Can-Redefine-Classes", "true");
+
+        String classEntry = HotSwapAgent.class.getName().replace('.', '/') + ".class";
+        try(JarOutputStream out = new JarOutputStream(Files.newOutputStream(agentJar.toPath()), manifest);
+            InputStream in = HotSwapAgent.class.getClassLoader().getResourceAsStream(classEntry)) {
+            if(in == null) throw new IOException("Could not find " + classEntry);
+            out.putNextEntry(new JarEntry(classEntry));
+            byte[] buffer = new byte[4096];
+            for(int read; (read = in.read(buffer)) != -1;) {
+                out.write(buffer, 0, read);
+            }
+            out.closeEntry();
+        }
+        return agentJar;
+    }
+}
@@ -0,0 +1,81 @@
+package com.mikedeejay2.fastreload.system;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Classification of the changes between two {@link JarSnapshot JarSnapshots} of the same plugin.
+ * <p>
+ * Build metadata under <code>META-INF/</code> (manifests, Maven properties, signatures) is ignored, as is the
+ * <code>version</code> of the plugin's description file (see {@link JarSnapshot}). A rebuild that only stamps a new
+ * build time or version is classified as {@link JarChange#NONE}.
+ *
+ * @author Mikedeejay2
+ */
+public enum JarChange {
+    /**
+     * Nothing meaningful changed, the plugin does not need to be reloaded
+     */
+    NONE("no changes"),
+    /**
+     * Only resources changed, all class files are identical
+     */
+    RESOURCES("resources only"),
+    /**
+     * At least one class file was added, removed or changed
+     */
+    CLASSES("classes");
+
+    private static final String META_INF = "META-INF/";
+
+    private final String description;
+
+    JarChange(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Classify the changes from one snapshot of a jar to another.
+     *
+     * @param previous The snapshot of the currently loaded jar
+     * @param current  The snapshot of the new jar
+     * @return The classification of the changes
+     */
+    public static JarChange between(JarSnapshot previous, JarSnapshot current) {
+        Map<String, Long> previousCrcs = previous.getEntryCrcs();
+        Map<String, Long> currentCrcs = current.getEntryCrcs();
+        boolean resourcesChanged = false;
+
+        Set<String> names = new HashSet<>(previousCrcs.keySet());
+        names.addAll(currentCrcs.keySet());
+        for(String name : names) {
+            if(name.startsWith(META_INF)) continue;
+            Long previousCrc = previousCrcs.get(name);
+            if(previousCrc != null && previousCrc.equals(currentCrcs.get(name))) continue;
+            if(JarSnapshot.isClass(name)) return CLASSES;
+            resourcesChanged = true;
+        }
+        return resourcesChanged ? RESOURCES : NONE;
+    }
+
+    /**
+     * Classify the changes from the fingerprints of a previous snapshot of a jar to a new snapshot. Gives the same
+     * result as {@link JarChange#between(JarSnapshot, JarSnapshot)}, barring fingerprint collisions.
+     *
+     * @param previousClasses   The {@link JarSnapshot#getClassesFingerprint() classes fingerprint} of the currently
+     *                          loaded jar
+     * @param previousResources The {@link JarSnapshot#getResourcesFingerprint() resources fingerprint} of the
+     *                          currently loaded jar
+     * @param current           The snapshot of the new jar
+     * @return The classification of the changes
+     */
+    public static JarChange between(long previousClasses, long previousResources, JarSnapshot current) {
+        if(previousClasses != current.getClassesFingerprint()) return CLASSES;
+        return previousResources != current.getResourcesFingerprint() ? RESOURCES : NONE;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,222 @@
+package com.mikedeejay2.fastreload.system;
+
+import com.mikedeejay2.fastreload.util.ClassSchemaReader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * An immutable snapshot of the contents of a plugin jar at one point in time. The snapshot holds the CRC of every
+ * entry in the jar (read from the zip's central directory, so no entry has to be inflated for it) and optionally the
+ * {@link ClassSchemaReader schema hash} of every class in the jar.
+ * <p>
+ * The CRC of a plugin description file (<code>plugin.yml</code> or <code>paper-plugin.yml</code>) is calculated
+ * without its top level <code>version</code> key, because many builds stamp a new version or build time into it on
+ * every build.
+ * <p>
+ * The snapshot is also summarized into two compact fingerprints, one of its classes and one of its resources (both
+ * excluding <code>META-INF/</code>), which is enough to classify a change with {@link JarChange} when only the
+ * fingerprints of the previous snapshot were kept, see {@link DescriptorIndex}.
+ *
+ * @author Mikedeejay2
+ */
+public final class JarSnapshot {
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String VERSION_KEY = "version:";
+    private static final String META_INF = "META-INF/";
+    private static final Set<String> DESCRIPTION_FILES = new HashSet<>(Arrays.asList("plugin.yml", "paper-plugin.yml"));
+
+    private final File file;
+    private final Object fileKey;
+    private final long lastModified;
+    private final long size;
+    private final Map<String, Long> entryCrcs;
+    private final Map<String, Long> classSchemas;
+    private final long classesFingerprint;
+    private final long resourcesFingerprint;
+
+    private JarSnapshot(File file, BasicFileAttributes attributes, Map<String, Long> entryCrcs, Map<String, Long> classSchemas) {
+        this.file = file;
+        this.fileKey = attributes.fileKey();
+        this.lastModified = attributes.lastModifiedTime().toMillis();
+        this.size = attributes.size();
+        this.entryCrcs = Collections.unmodifiableMap(entryCrcs);
+        this.classSchemas = Collections.unmodifiableMap(classSchemas);
+        long classes = 0;
+        long resources = 0;
+        for(Map.Entry<String, Long> entry : entryCrcs.entrySet()) {
+            String name = entry.getKey();
+            if(name.startsWith(META_INF)) continue;
+            // Summing mixed hashes makes the fingerprint independent of the order of the entries
+            long hash = mix(name.hashCode() * 0x9E3779B97F4A7C15L ^ entry.getValue());
+            if(isClass(name)) {
+                classes += hash;
+            } else {
+                resources += hash;
+            }
+        }
+        this.classesFingerprint = classes;
+        this.resourcesFingerprint = resources;
+    }
+
+    /**
+     * Scramble the bits of a hash (the finalizer of SplitMix64).
+     *
+     * @param hash The hash
+     * @return The scrambled hash
+     */
+    private static long mix(long hash) {
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+
+    /**
+     * Read a new snapshot of a jar file.
+     *
+     * @param file        The jar file to read
+     * @param readSchemas Whether to inflate all classes of the jar to read their schema hashes
+     * @return The new snapshot
+     * @throws IOException If the jar could not be read
+     */
+    public static JarSnapshot read(File file, boolean readSchemas) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        Map<String, Long> entryCrcs = new HashMap<>();
+        Map<String, Long> classSchemas = new HashMap<>();
+        try(ZipFile zipFile = new ZipFile(file)) {
+            for(Enumeration<? extends ZipEntry> entries = zipFile.entries(); entries.hasMoreElements();) {
+                ZipEntry entry = entries.nextElement();
+                if(entry.isDirectory()) continue;
+                entryCrcs.put(entry.getName(), DESCRIPTION_FILES.contains(entry.getName())
+                    ? getDescriptionCrc(readEntry(zipFile, entry))
+                    : entry.getCrc());
+                if(!readSchemas || !isClass(entry.getName())) continue;
+                classSchemas.put(entry.getName(), ClassSchemaReader.readSchemaHash(readEntry(zipFile, entry)));
+            }
+        }
+        return new JarSnapshot(file, attributes, entryCrcs, classSchemas);
+    }
+
+    /**
+     * Calculate the CRC of a plugin description file, skipping the top level <code>version</code> line.
+     *
+     * @param descriptionBytes The bytes of the description file
+     * @return The CRC of the description file without its version
+     */
+    private static long getDescriptionCrc(byte[] descriptionBytes) {
+        CRC32 crc = new CRC32();
+        String description = new String(descriptionBytes, StandardCharsets.UTF_8);
+        for(String line : description.split("\n")) {
+            if(line.startsWith(VERSION_KEY)) continue;
+            crc.update(line.getBytes(StandardCharsets.UTF_8));
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Read the raw bytes of an entry of a zip file.
+     *
+     * @param zipFile The zip file to read from
+     * @param entry   The entry to read
+     * @return The inflated bytes of the entry
+     * @throws IOException If the entry could not be read
+     */
+    public static byte[] readEntry(ZipFile zipFile, ZipEntry entry) throws IOException {
+        try(InputStream in = zipFile.getInputStream(entry)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(entry.getSize() > 0 ? (int) entry.getSize() : 4096);
+            byte[] buffer = new byte[8192];
+            for(int read; (read = in.read(buffer)) != -1;) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Check whether a jar entry name is a class file.
+     *
+     * @param entryName The name of the entry
+     * @return True if the entry is a class file
+     */
+    public static boolean isClass(String entryName) {
+        return entryName.endsWith(CLASS_SUFFIX) && !entryName.endsWith("module-info.class");
+    }
+
+    /**
+     * Convert a class entry name (<code>com/example/Foo.class</code>) to a binary class name
+     * (<code>com.example.Foo</code>).
+     *
+     * @param entryName The name of the class entry
+     * @return The binary name of the class
+     */
+    public static String toClassName(String entryName) {
+        return entryName.substring(0, entryName.length() - CLASS_SUFFIX.length()).replace('/', '.');
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Get the file system key of the jar at the time that it was read. On Unix systems this is the device and inode of
+     * the file, meaning that a jar which was overwritten in place keeps its key while a jar that was replaced
+     * (written elsewhere and then moved into place) gets a new key.
+     *
+     * @return The file key, possibly null if the file system doesn't support file keys
+     */
+    public Object getFileKey() {
+        return fileKey;
+    }
+
+    /**
+     * Check whether the jar file on disk still has the same modification time and size as when it was read.
+     *
+     * @return True if the jar appears to be unchanged
+     */
+    public boolean isUnchangedOnDisk() {
+        return file.lastModified() == lastModified && file.length() == size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Get the fingerprint of the CRCs of all classes in the jar, excluding <code>META-INF/</code>.
+     *
+     * @return The classes fingerprint
+     */
+    public long getClassesFingerprint() {
+        return classesFingerprint;
+    }
+
+    /**
+     * Get the fingerprint of the CRCs of all resources in the jar, excluding <code>META-INF/</code>.
+     *
+     * @return The resources fingerprint
+     */
+    public long getResourcesFingerprint() {
+        return resourcesFingerprint;
+    }
+
+    public Map<String, Long> getEntryCrcs() {
+        return entryCrcs;
+    }
+
+    public Map<String, Long> getClassSchemas() {
+        return classSchemas;
+    }
+}
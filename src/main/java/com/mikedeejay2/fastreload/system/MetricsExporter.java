@@ -0,0 +1,71 @@
+package com.mikedeejay2.fastreload.system;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loopback HTTP endpoint that serves {@link ReloadMetrics} at <code>/metrics</code> for Prometheus to scrape. Requests
+ * are handled on a single daemon thread and only read the metrics' counters, so scrapes never touch the main thread.
+ *
+ * @author Mikedeejay2
+ */
+public class MetricsExporter {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final ReloadMetrics metrics;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Construct and start a new metrics exporter
+     *
+     * @param metrics The metrics to serve
+     * @param port    The loopback port to listen on
+     * @throws IOException If the port could not be bound
+     */
+    public MetricsExporter(ReloadMetrics metrics, int port) throws IOException {
+        this.metrics = metrics;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "FastReload Metrics Exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/metrics", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if(!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = metrics.render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try(OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Stop the HTTP server.
+     */
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,133 @@
+package com.mikedeejay2.fastreload.system;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Keyed;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.Recipe;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.ServicesManager;
+import org.bukkit.plugin.messaging.Messenger;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Removes the runtime resources that a disabled plugin left behind: scheduler tasks, registered services, plugin
+ * messaging channels and recipes.
+ * <p>
+ * The plugin manager already cancels tasks and unregisters services and channels while disabling a plugin, but
+ * anything that a plugin's own threads register during or after <code>onDisable</code> survives that, and recipes are
+ * never removed at all. Every leftover keeps the old generation's class loader alive.
+ *
+ * @author Mikedeejay2
+ */
+public final class PluginTeardown {
+    /**
+     * Remove everything that a disabled plugin still has registered. Must be called on the main thread.
+     *
+     * @param target The disabled plugin
+     * @return The number of resources removed in each category
+     */
+    public static Result teardown(Plugin target) {
+        return new Result(cancelTasks(target), unregisterServices(target), unregisterChannels(target), removeRecipes(target));
+    }
+
+    private static int cancelTasks(Plugin target) {
+        BukkitScheduler scheduler = Bukkit.getScheduler();
+        int tasks = 0;
+        for(BukkitTask task : scheduler.getPendingTasks()) {
+            if(task.getOwner() == target) ++tasks;
+        }
+        if(tasks > 0) scheduler.cancelTasks(target);
+        return tasks;
+    }
+
+    private static int unregisterServices(Plugin target) {
+        ServicesManager servicesManager = Bukkit.getServicesManager();
+        int services = servicesManager.getRegistrations(target).size();
+        if(services > 0) servicesManager.unregisterAll(target);
+        return services;
+    }
+
+    private static int unregisterChannels(Plugin target) {
+        Messenger messenger = Bukkit.getMessenger();
+        int incoming = messenger.getIncomingChannelRegistrations(target).size();
+        int outgoing = messenger.getOutgoingChannels(target).size();
+        if(incoming > 0) messenger.unregisterIncomingPluginChannel(target);
+        if(outgoing > 0) messenger.unregisterOutgoingPluginChannel(target);
+        return incoming + outgoing;
+    }
+
+    /**
+     * Remove all recipes in the plugin's namespace. A plugin's {@link NamespacedKey}s use its lowercase name as their
+     * namespace.
+     *
+     * @param target The disabled plugin
+     * @return The number of recipes removed
+     */
+    private static int removeRecipes(Plugin target) {
+        String namespace = target.getName().toLowerCase(Locale.ROOT);
+        List<NamespacedKey> keys = new ArrayList<>();
+        for(Iterator<Recipe> i = Bukkit.recipeIterator(); i.hasNext();) {
+            Recipe recipe = i.next();
+            if(!(recipe instanceof Keyed)) continue;
+            NamespacedKey key = ((Keyed) recipe).getKey();
+            if(key.getNamespace().equals(namespace)) keys.add(key);
+        }
+        int recipes = 0;
+        for(NamespacedKey key : keys) {
+            if(Bukkit.removeRecipe(key)) ++recipes;
+        }
+        return recipes;
+    }
+
+    /**
+     * The number of resources removed by a teardown, per category.
+     */
+    public static final class Result {
+        private final int tasks;
+        private final int services;
+        private final int channels;
+        private final int recipes;
+
+        private Result(int tasks, int services, int channels, int recipes) {
+            this.tasks = tasks;
+            this.services = services;
+            this.channels = channels;
+            this.recipes = recipes;
+        }
+
+        /**
+         * Get a short, human readable summary of the removed resources.
+         *
+         * @return The summary
+         */
+        public String summary() {
+            return String.format("%d tasks, %d services, %d channels, %d recipes", tasks, services, channels, recipes);
+        }
+
+        public int getTotal() {
+            return tasks + services + channels + recipes;
+        }
+
+        public int getTasks() {
+            return tasks;
+        }
+
+        public int getServices() {
+            return services;
+        }
+
+        public int getChannels() {
+            return channels;
+        }
+
+        public int getRecipes() {
+            return recipes;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.mikedeejay2.fastreload.system;
+
+import com.mikedeejay2.fastreload.FastReload;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight coordinator for reload requests from every trigger.
+ * <p>
+ * A request is merged into a pending reload of the same target instead of scheduling another reload. Once a reload
+ * has started, new requests for the same target are collected into one follow-up reload that runs after it, so there
+ * is never more than one running and one pending reload per target. A pending full reload covers the requests of every
+ * plugin that it reloads, plugins that are excluded from full reloads keep their own pending reload. All merged
+ * requesters receive the messages of the reload that covered their request.
+ * <p>
+ * Manual reloads (<code>/reload</code>, <code>/rl</code> and chat reloads), the automatic reloader, followers of a
+ * shared plugins folder and the deploy watcher schedule their reloads through {@link ReloadCoordinator#submit}. The
+ * reload socket, the reload service and the fallback configuration reload already run on the main thread and need the
+ * result of their own reload, so they reload through {@link ReloadCoordinator#runNow}, which takes over the pending reloads of the same plugins. Only
+ * soak tests bypass the coordinator, since every cycle has to reload.
+ *
+ * @author Mikedeejay2
+ */
+public class ReloadCoordinator {
+    private static final String FULL_RELOAD = "";
+
+    private final ReloadSystem system;
+    private final Executor mainThread;
+    private final Predicate<String> excludedFromFull;
+    /**
+     * The reloads that have been scheduled but haven't started yet. Key = Lowercase target, value = The pending
+     * reload. Guarded by itself.
+     */
+    private final Map<String, PendingReload> pending = new HashMap<>();
+
+    public ReloadCoordinator(FastReload plugin, ReloadSystem system) {
+        this(system, task -> Bukkit.getScheduler().runTask(plugin, task),
+            pluginName -> system.getPolicies().get(pluginName).isExcludeFromFull());
+    }
+
+    /**
+     * Construct a new coordinator
+     *
+     * @param system           The reload system that runs manual reload requests
+     * @param mainThread       The executor that runs scheduled reloads on the main thread
+     * @param excludedFromFull Whether a plugin is left out of full reloads
+     */
+    ReloadCoordinator(ReloadSystem system, Executor mainThread, Predicate<String> excludedFromFull) {
+        this.system = system;
+        this.mainThread = mainThread;
+        this.excludedFromFull = excludedFromFull;
+    }
+
+    /**
+     * Submit a manual reload request. Can be called from any thread.
+     *
+     * @param sender  The <code>CommandSender</code> requesting the reload
+     * @param args    The String of arguments, possibly the name of the plugin, possibly null
+     * @param trigger The source of the request
+     */
+    public void submit(CommandSender sender, String[] args, ReloadTrigger trigger) {
+        String target = args == null || args.length == 0 ? FULL_RELOAD : String.join(" ", args);
+        submit(target, sender, combined -> system.reloadConsumer.reload(combined, args, trigger));
+    }
+
+    /**
+     * Submit a reload request of a single plugin. Can be called from any thread.
+     *
+     * @param pluginName The name of the plugin to reload, empty for a full reload
+     * @param sender     The <code>CommandSender</code> that receives the messages of the reload
+     * @param reload     The reload to run on the main thread if the request isn't merged into a pending reload, given
+     *                   the sender that receives the messages of every merged requester
+     */
+    public void submit(String pluginName, CommandSender sender, Consumer<CommandSender> reload) {
+        String target = pluginName.toLowerCase(Locale.ROOT);
+        PendingReload pendingReload;
+        synchronized(pending) {
+            PendingReload existing = pending.get(target);
+            // A full reload only covers the plugins that it reloads
+            if(existing == null && !target.equals(FULL_RELOAD) && !excludedFromFull.test(pluginName)) {
+                existing = pending.get(FULL_RELOAD);
+            }
+            if(existing != null) {
+                if(!existing.requesters.contains(sender)) existing.requesters.add(sender);
+                sender.sendMessage(ChatColor.YELLOW + "A reload is already pending, your request has been merged into it.");
+                return;
+            }
+            pendingReload = new PendingReload(target, reload, sender);
+            pending.put(target, pendingReload);
+        }
+        mainThread.execute(() -> run(pendingReload));
+    }
+
+    /**
+     * Reload plugins immediately on the main thread. Pending reloads of the same plugins are covered by this reload,
+     * so they are removed and their requesters are told the outcome instead. A pending full reload is left alone.
+     *
+     * @param pluginNames The names of the plugins that are reloaded
+     * @param trigger     The source of the reload
+     * @param reload      The reload to run
+     * @param <T>         The type of the reload's result
+     * @return The result of the reload
+     */
+    public <T> T runNow(Collection<String> pluginNames, ReloadTrigger trigger, Supplier<T> reload) {
+        // Key = Name of the covered plugin, value = The pending reload of the plugin
+        Map<String, PendingReload> covered = new LinkedHashMap<>();
+        synchronized(pending) {
+            for(String pluginName : pluginNames) {
+                PendingReload pendingReload = pending.remove(pluginName.toLowerCase(Locale.ROOT));
+                if(pendingReload != null) covered.put(pluginName, pendingReload);
+            }
+        }
+        T result = reload.get();
+        String triggerName = trigger.name().toLowerCase(Locale.ROOT);
+        for(Map.Entry<String, PendingReload> entry : covered.entrySet()) {
+            Plugin reloaded = Bukkit.getPluginManager().getPlugin(entry.getKey());
+            String message = reloaded != null && reloaded.isEnabled()
+                ? ChatColor.GREEN + String.format("Plugin \"%s\" was reloaded by a %s reload that covered your request.", entry.getKey(), triggerName)
+                : ChatColor.RED + String.format("Plugin \"%s\" failed to reload in a %s reload that covered your request, check the console for errors.", entry.getKey(), triggerName);
+            for(CommandSender requester : entry.getValue().requesters) {
+                requester.sendMessage(message);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Run a pending reload on the main thread. Requests arriving from now on are collected into a follow-up reload.
+     *
+     * @param reload The reload to run
+     */
+    private void run(PendingReload reload) {
+        List<CommandSender> requesters;
+        synchronized(pending) {
+            // Already covered by a reload that ran through runNow
+            if(!pending.remove(reload.target, reload)) return;
+            requesters = new ArrayList<>(reload.requesters);
+        }
+        CommandSender sender = requesters.size() == 1 ? requesters.get(0) : broadcastSender(requesters);
+        reload.reload.accept(sender);
+    }
+
+    /**
+     * Create a <code>CommandSender</code> that acts as the first requester but sends every message to all requesters.
+     *
+     * @param requesters The requesters of a merged reload
+     * @return The combined sender
+     */
+    private static CommandSender broadcastSender(List<CommandSender> requesters) {
+        CommandSender primary = requesters.get(0);
+        return (CommandSender) Proxy.newProxyInstance(
+            CommandSender.class.getClassLoader(),
+            new Class<?>[]{CommandSender.class},
+            (proxy, method, methodArgs) -> {
+                try {
+                    if(!method.getName().equals("sendMessage")) return method.invoke(primary, methodArgs);
+                    for(CommandSender requester : requesters) {
+                        method.invoke(requester, methodArgs);
+                    }
+                    return null;
+                } catch(InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+    }
+
+    private static final class PendingReload {
+        private final String target;
+        private final Consumer<CommandSender> reload;
+        private final List<CommandSender> requesters = new ArrayList<>();
+
+        private PendingReload(String target, Consumer<CommandSender> reload, CommandSender requester) {
+            this.target = target;
+            this.reload = reload;
+            this.requesters.add(requester);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.mikedeejay2.fastreload.system;
+
+import com.mikedeejay2.fastreload.api.ReloadPhase;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append only binary journal of plugin reloads. The journal is a fixed size ring file that is memory mapped once, each
+ * reload overwrites the oldest record. Appending a record writes straight into the mapped buffer and doesn't allocate.
+ * <p>
+ * File layout (big endian):
+ * <pre>
+ * Header (32 bytes)
+ *   0  int   magic
+ *   4  int   format version
+ *   8  int   record size
+ *   12 int   capacity (number of records)
+ *   16 long  total number of records ever appended
+ * Record (160 bytes)
+ *   0  long  timestamp (epoch milliseconds)
+ *   8  byte  trigger ordinal
+ *   9  byte  success (0 or 1)
+ *   10 byte  plugin name length
+ *   12 int   classes loaded (-1 if unknown)
+ *   16 long  nanoseconds per phase, one per {@link ReloadPhase} (8 slots)
+ *   80 bytes plugin name (ASCII, truncated to 64 characters)
+ * </pre>
+ *
+ * @author Mikedeejay2
+ */
+public class ReloadJournal implements Closeable {
+    public static final String FILE_NAME = "reload-journal.bin";
+
+    private static final int MAGIC = 0x46524A4C; // "FRJL"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_SIZE = 160;
+    private static final int MAX_PHASES = 8;
+    private static final int MAX_NAME_LENGTH = 64;
+
+    private static final int HEADER_COUNT = 16;
+    private static final int RECORD_TIMESTAMP = 0;
+    private static final int RECORD_TRIGGER = 8;
+    private static final int RECORD_SUCCESS = 9;
+    private static final int RECORD_NAME_LENGTH = 10;
+    private static final int RECORD_CLASSES = 12;
+    private static final int RECORD_PHASES = 16;
+    private static final int RECORD_NAME = 80;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private long count;
+
+    /**
+     * Open or create a reload journal. An existing journal with a different capacity or format is discarded.
+     *
+     * @param file     The journal file
+     * @param capacity The number of records that the journal holds before the oldest records are overwritten
+     * @throws IOException If the journal file could not be opened or mapped
+     */
+    public ReloadJournal(File file, int capacity) throws IOException {
+        this.capacity = Math.max(1, capacity);
+        Files.createDirectories(file.getParentFile().toPath());
+        this.channel = FileChannel.open(file.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = HEADER_SIZE + (long) this.capacity * RECORD_SIZE;
+        boolean valid = channel.size() == size;
+        // A journal of a larger capacity would otherwise keep its size and be discarded again on every start
+        if(channel.size() > size) channel.truncate(size);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+        valid = valid &&
+            buffer.getInt(0) == MAGIC &&
+            buffer.getInt(4) == VERSION &&
+            buffer.getInt(8) == RECORD_SIZE &&
+            buffer.getInt(12) == this.capacity;
+        if(valid) {
+            this.count = buffer.getLong(HEADER_COUNT);
+        } else {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, RECORD_SIZE);
+            buffer.putInt(12, this.capacity);
+            buffer.putLong(HEADER_COUNT, 0);
+            this.count = 0;
+        }
+    }
+
+    /**
+     * Append a reload record to the journal, overwriting the oldest record if the journal is full.
+     *
+     * @param record The record to append
+     */
+    public void append(ReloadRecord record) {
+        int position = HEADER_SIZE + (int) (count % capacity) * RECORD_SIZE;
+        buffer.putLong(position + RECORD_TIMESTAMP, record.getTimestamp());
+        buffer.put(position + RECORD_TRIGGER, (byte) record.getTrigger().ordinal());
+        buffer.put(position + RECORD_SUCCESS, (byte) (record.isSuccess() ? 1 : 0));
+        buffer.putInt(position + RECORD_CLASSES, record.getClassesLoaded());
+        for(int i = 0; i < MAX_PHASES; ++i) {
+            long nanos = i < ReloadPhase.VALUES.length ? record.getPhaseNanos(ReloadPhase.VALUES[i]) : 0;
+            buffer.putLong(position + RECORD_PHASES + i * 8, nanos);
+        }
+        String name = record.getPluginName();
+        int nameLength = Math.min(name.length(), MAX_NAME_LENGTH);
+        for(int i = 0; i < nameLength; ++i) {
+            char c = name.charAt(i);
+            buffer.put(position + RECORD_NAME + i, (byte) (c < 128 ? c : '?'));
+        }
+        buffer.put(position + RECORD_NAME_LENGTH, (byte) nameLength);
+        // Publish the record by updating the count last
+        buffer.putLong(HEADER_COUNT, ++count);
+    }
+
+    /**
+     * Get the number of records currently held by the journal.
+     *
+     * @return The number of readable records
+     */
+    public int size() {
+        return (int) Math.min(count, capacity);
+    }
+
+    /**
+     * Read the latest records of the journal.
+     *
+     * @param amount The maximum amount of records to read
+     * @return The records, newest first
+     */
+    public List<Entry> readLatest(int amount) {
+        int readable = Math.min(Math.max(amount, 0), size());
+        List<Entry> entries = new ArrayList<>(readable);
+        for(int i = 0; i < readable; ++i) {
+            long index = count - 1 - i;
+            entries.add(readEntry(HEADER_SIZE + (int) (index % capacity) * RECORD_SIZE));
+        }
+        return entries;
+    }
+
+    private Entry readEntry(int position) {
+        long[] phaseNanos = new long[ReloadPhase.VALUES.length];
+        for(int i = 0; i < phaseNanos.length && i < MAX_PHASES; ++i) {
+            phaseNanos[i] = buffer.getLong(position + RECORD_PHASES + i * 8);
+        }
+        int nameLength = buffer.get(position + RECORD_NAME_LENGTH) & 0xFF;
+        char[] name = new char[nameLength];
+        for(int i = 0; i < nameLength; ++i) {
+            name[i] = (char) buffer.get(position + RECORD_NAME + i);
+        }
+        return new Entry(
+            buffer.getLong(position + RECORD_TIMESTAMP),
+            new String(name),
+            ReloadTrigger.fromOrdinal(buffer.get(position + RECORD_TRIGGER)),
+            phaseNanos,
+            buffer.get(position + RECORD_SUCCESS) != 0,
+            buffer.getInt(position + RECORD_CLASSES));
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * A record read back from the journal.
+     */
+    public static final class Entry {
+        private final long timestamp;
+        private final String pluginName;
+        private final ReloadTrigger trigger;
+        private final long[] phaseNanos;
+        private final boolean success;
+        private final int classesLoaded;
+
+        private Entry(long timestamp, String pluginName, ReloadTrigger trigger, long[] phaseNanos, boolean success, int classesLoaded) {
+            this.timestamp = timestamp;
+            this.pluginName = pluginName;
+            this.trigger = trigger;
+            this.phaseNanos = phaseNanos;
+            this.success = success;
+            this.classesLoaded = classesLoaded;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public String getPluginName() {
+            return pluginName;
+        }
+
+        public ReloadTrigger getTrigger() {
+            return trigger;
+        }
+
+        public long getPhaseNanos(ReloadPhase phase) {
+            return phaseNanos[phase.ordinal()];
+        }
+
+        public long getTotalNanos() {
+            long total = 0;
+            for(long nanos : phaseNanos) {
+                total += nanos;
+            }
+            return total;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public int getClassesLoaded() {
+            return classesLoaded;
+        }
+    }
+}
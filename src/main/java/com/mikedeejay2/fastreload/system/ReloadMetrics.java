@@ -0,0 +1,187 @@
+package com.mikedeejay2.fastreload.system;
+
+import com.mikedeejay2.fastreload.api.ReloadPhase;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and histograms of reload activity, rendered in the Prometheus text exposition format by
+ * {@link MetricsExporter}.
+ * <p>
+ * All values are kept in {@link LongAdder}s, so recording never blocks and a scrape never blocks the main thread.
+ * Recording a reload of a plugin that has been reloaded before doesn't allocate.
+ *
+ * @author Mikedeejay2
+ */
+public class ReloadMetrics {
+    /**
+     * Upper bounds of the histogram buckets in seconds
+     */
+    private static final double[] BUCKETS = {0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private final Map<ReloadTrigger, Map<String, LongAdder>> reloads = createPerTrigger();
+    private final Map<ReloadTrigger, Map<String, LongAdder>> failures = createPerTrigger();
+    private final Map<ReloadTrigger, Histogram> reloadDurations = new EnumMap<>(ReloadTrigger.class);
+    private final Histogram syncCommandsDuration = new Histogram();
+    private final Histogram scanDuration = new Histogram();
+    private final LongAdder scans = new LongAdder();
+    private final LongAdder jarsScanned = new LongAdder();
+    private final LongAdder changesFound = new LongAdder();
+
+    public ReloadMetrics() {
+        for(ReloadTrigger trigger : ReloadTrigger.values()) {
+            reloadDurations.put(trigger, new Histogram());
+        }
+    }
+
+    private static Map<ReloadTrigger, Map<String, LongAdder>> createPerTrigger() {
+        Map<ReloadTrigger, Map<String, LongAdder>> map = new EnumMap<>(ReloadTrigger.class);
+        for(ReloadTrigger trigger : ReloadTrigger.values()) {
+            map.put(trigger, new ConcurrentHashMap<>());
+        }
+        return map;
+    }
+
+    /**
+     * Record a finished plugin reload.
+     *
+     * @param record The record of the reload
+     */
+    public void recordReload(ReloadRecord record) {
+        ReloadTrigger trigger = record.getTrigger();
+        reloads.get(trigger).computeIfAbsent(record.getPluginName(), name -> new LongAdder()).increment();
+        if(!record.isSuccess()) {
+            failures.get(trigger).computeIfAbsent(record.getPluginName(), name -> new LongAdder()).increment();
+        }
+        reloadDurations.get(trigger).observe(record.getTotalNanos());
+        long syncNanos = record.getPhaseNanos(ReloadPhase.SYNC_COMMANDS);
+        if(syncNanos > 0) syncCommandsDuration.observe(syncNanos);
+    }
+
+    /**
+     * Record a command tree sync that wasn't part of a single plugin's reload.
+     *
+     * @param nanos The time spent syncing commands in nanoseconds
+     */
+    public void recordSyncCommands(long nanos) {
+        syncCommandsDuration.observe(nanos);
+    }
+
+    /**
+     * Record a scan of the plugins folder by the {@link AutoReloaderRunnable}.
+     *
+     * @param nanos   The duration of the scan in nanoseconds
+     * @param jars    The number of jars scanned
+     * @param changes The number of new or changed jars found
+     */
+    public void recordScan(long nanos, int jars, int changes) {
+        scans.increment();
+        jarsScanned.add(jars);
+        changesFound.add(changes);
+        scanDuration.observe(nanos);
+    }
+
+    /**
+     * Render all metrics in the Prometheus text exposition format (version 0.0.4).
+     *
+     * @return The rendered metrics
+     */
+    public String render() {
+        StringBuilder out = new StringBuilder(4096);
+        header(out, "fastreload_reloads_total", "counter", "Plugin reloads by plugin and trigger.");
+        renderPerTrigger(out, "fastreload_reloads_total", reloads);
+        header(out, "fastreload_reload_failures_total", "counter", "Failed plugin reloads by plugin and trigger.");
+        renderPerTrigger(out, "fastreload_reload_failures_total", failures);
+
+        header(out, "fastreload_reload_duration_seconds", "histogram", "Duration of plugin reloads by trigger.");
+        for(Map.Entry<ReloadTrigger, Histogram> entry : reloadDurations.entrySet()) {
+            entry.getValue().render(out, "fastreload_reload_duration_seconds", "trigger=\"" + label(entry.getKey()) + "\",");
+        }
+        header(out, "fastreload_sync_commands_duration_seconds", "histogram", "Time spent rebuilding and sending the command tree.");
+        syncCommandsDuration.render(out, "fastreload_sync_commands_duration_seconds", "");
+
+        header(out, "fastreload_scans_total", "counter", "Scans of the plugins folder by the automatic reloader.");
+        sample(out, "fastreload_scans_total", "", scans.sum());
+        header(out, "fastreload_scan_jars_total", "counter", "Jars read by the automatic reloader.");
+        sample(out, "fastreload_scan_jars_total", "", jarsScanned.sum());
+        header(out, "fastreload_scan_changes_total", "counter", "New or changed jars found by the automatic reloader.");
+        sample(out, "fastreload_scan_changes_total", "", changesFound.sum());
+        header(out, "fastreload_scan_duration_seconds", "histogram", "Duration of scans of the plugins folder.");
+        scanDuration.render(out, "fastreload_scan_duration_seconds", "");
+        return out.toString();
+    }
+
+    private static void renderPerTrigger(StringBuilder out, String name, Map<ReloadTrigger, Map<String, LongAdder>> counters) {
+        for(Map.Entry<ReloadTrigger, Map<String, LongAdder>> triggerEntry : counters.entrySet()) {
+            String trigger = label(triggerEntry.getKey());
+            for(Map.Entry<String, LongAdder> entry : triggerEntry.getValue().entrySet()) {
+                sample(out, name, "plugin=\"" + escape(entry.getKey()) + "\",trigger=\"" + trigger + "\"", entry.getValue().sum());
+            }
+        }
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name);
+        if(!labels.isEmpty()) out.append('{').append(labels).append('}');
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static String label(ReloadTrigger trigger) {
+        return trigger.name().toLowerCase();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * A histogram of durations with the fixed buckets in {@link ReloadMetrics#BUCKETS}.
+     */
+    private static final class Histogram {
+        private final long[] boundsNanos = new long[BUCKETS.length];
+        private final LongAdder[] buckets = new LongAdder[BUCKETS.length];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumNanos = new LongAdder();
+
+        private Histogram() {
+            for(int i = 0; i < BUCKETS.length; ++i) {
+                boundsNanos[i] = (long) (BUCKETS[i] * 1_000_000_000L);
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        private void observe(long nanos) {
+            // Buckets are stored non-cumulative and summed up when rendering
+            for(int i = 0; i < boundsNanos.length; ++i) {
+                if(nanos > boundsNanos[i]) continue;
+                buckets[i].increment();
+                break;
+            }
+            sumNanos.add(nanos);
+            count.increment();
+        }
+
+        private void render(StringBuilder out, String name, String labels) {
+            long cumulative = 0;
+            for(int i = 0; i < BUCKETS.length; ++i) {
+                cumulative += buckets[i].sum();
+                sample(out, name + "_bucket", labels + "le=\"" + BUCKETS[i] + "\"", cumulative);
+            }
+            long total = count.sum();
+            sample(out, name + "_bucket", labels + "le=\"+Inf\"", Math.max(total, cumulative));
+            String plainLabels = labels.isEmpty() ? "" : labels.substring(0, labels.length() - 1);
+            out.append(name).append("_sum");
+            if(!plainLabels.isEmpty()) out.append('{').append(plainLabels).append('}');
+            out.append(' ').append(sumNanos.sum() / 1_000_000_000.0).append('\n');
+            sample(out, name + "_count", plainLabels, Math.max(total, cumulative));
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.mikedeejay2.fastreload.system;
+
+import com.mikedeejay2.fastreload.config.FastReloadConfig;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Table of per-plugin reload policies, compiled once when the configuration is loaded.
+ * <p>
+ * Policies are matched by plugin name, case insensitively. A rule's <code>Match</code> is either an exact plugin name,
+ * a glob (<code>glob:Test*</code>, or any name containing <code>*</code> or <code>?</code>) or a regular expression
+ * (<code>regex:^Test.*$</code>). Exact names are looked up in a hash map, patterns are tried in configuration order and
+ * the first matching rule wins. Settings that a rule doesn't specify use the defaults. The <code>Filter List</code> is
+ * applied on top: filtered plugins are excluded from full reloads and automatic reloads. Rules and filter entries with
+ * an invalid regular expression are logged and skipped.
+ * <p>
+ * The resolved policy of every plugin name is cached, so lookups during scans are a single hash map lookup.
+ *
+ * @author Mikedeejay2
+ */
+public final class ReloadPolicies {
+    private static final String GLOB_PREFIX = "glob:";
+    private static final String REGEX_PREFIX = "regex:";
+
+    private final Policy defaults;
+    private final Map<String, Policy> exactRules = new HashMap<>();
+    private final List<PatternRule> patternRules = new ArrayList<>();
+    private final Set<String> exactFilter = new HashSet<>();
+    private final List<Pattern> patternFilter = new ArrayList<>();
+    private final boolean filterWhitelist;
+    private final Map<String, Policy> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Compile the policy table from the configuration
+     *
+     * @param config The loaded configuration
+     * @param logger The logger to report invalid rules to
+     */
+    public ReloadPolicies(FastReloadConfig config, Logger logger) {
+        this.defaults = new Policy(true, (long) (config.AUTO_RELOAD_WAIT.get() * 1000), false, false);
+        this.filterWhitelist = config.FILTER_MODE.get().equalsIgnoreCase("whitelist");
+
+        for(String entry : config.FILTER_LIST.get()) {
+            Pattern pattern;
+            try {
+                pattern = compilePattern(entry);
+            } catch(PatternSyntaxException e) {
+                logger.warning(String.format("Skipping filter list entry \"%s\", its regular expression is invalid: %s", entry, e.getDescription()));
+                continue;
+            }
+            if(pattern == null) {
+                exactFilter.add(entry.toLowerCase(Locale.ROOT));
+            } else {
+                patternFilter.add(pattern);
+            }
+        }
+        for(Map<?, ?> rule : config.PLUGIN_POLICIES.get()) {
+            Object match = rule.get("Match");
+            if(match == null) continue;
+            Policy policy = new Policy(
+                getBoolean(rule, "Auto Reload", defaults.autoReload),
+                rule.get("Debounce Time") instanceof Number
+                    ? (long) (((Number) rule.get("Debounce Time")).doubleValue() * 1000)
+                    : defaults.debounceMillis,
+                getBoolean(rule, "Cascade Dependents", defaults.cascadeDependents),
+                getBoolean(rule, "Exclude From Full Reload", defaults.excludeFromFull));
+            Pattern pattern;
+            try {
+                pattern = compilePattern(match.toString());
+            } catch(PatternSyntaxException e) {
+                logger.warning(String.format("Skipping plugin policy \"%s\", its regular expression is invalid: %s", match, e.getDescription()));
+                continue;
+            }
+            if(pattern == null) {
+                exactRules.putIfAbsent(match.toString().toLowerCase(Locale.ROOT), policy);
+            } else {
+                patternRules.add(new PatternRule(pattern, policy));
+            }
+        }
+    }
+
+    /**
+     * Get the policy of a plugin.
+     *
+     * @param pluginName The name of the plugin
+     * @return The plugin's policy
+     */
+    public Policy get(String pluginName) {
+        Policy policy = cache.get(pluginName);
+        if(policy != null) return policy;
+        return cache.computeIfAbsent(pluginName, this::resolve);
+    }
+
+    /**
+     * Get the policy of plugins that no rule matches.
+     *
+     * @return The default policy
+     */
+    public Policy getDefaults() {
+        return defaults;
+    }
+
+    private Policy resolve(String pluginName) {
+        String lowerName = pluginName.toLowerCase(Locale.ROOT);
+        Policy policy = exactRules.get(lowerName);
+        if(policy == null) {
+            policy = defaults;
+            for(PatternRule rule : patternRules) {
+                if(!rule.pattern.matcher(pluginName).matches()) continue;
+                policy = rule.policy;
+                break;
+            }
+        }
+        if(isFiltered(pluginName, lowerName)) {
+            policy = new Policy(false, policy.debounceMillis, policy.cascadeDependents, true);
+        }
+        return policy;
+    }
+
+    private boolean isFiltered(String pluginName, String lowerName) {
+        boolean listed = exactFilter.contains(lowerName);
+        for(int i = 0; !listed && i < patternFilter.size(); ++i) {
+            listed = patternFilter.get(i).matcher(pluginName).matches();
+        }
+        return filterWhitelist ^ listed;
+    }
+
+    /**
+     * Compile a glob or regular expression into a case insensitive pattern.
+     *
+     * @param match The match string of a rule
+     * @return The compiled pattern, null if the match string is an exact name
+     * @throws PatternSyntaxException If the regular expression is invalid
+     */
+    private static Pattern compilePattern(String match) {
+        if(match.startsWith(REGEX_PREFIX)) {
+            return Pattern.compile(match.substring(REGEX_PREFIX.length()), Pattern.CASE_INSENSITIVE);
+        }
+        boolean explicitGlob = match.startsWith(GLOB_PREFIX);
+        String glob = explicitGlob ? match.substring(GLOB_PREFIX.length()) : match;
+        if(!explicitGlob && glob.indexOf('*') == -1 && glob.indexOf('?') == -1) return null;
+        StringBuilder regex = new StringBuilder();
+        for(char c : glob.toCharArray()) {
+            if(c == '*') {
+                regex.append(".*");
+            } else if(c == '?') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE);
+    }
+
+    private static boolean getBoolean(Map<?, ?> rule, String key, boolean def) {
+        Object value = rule.get(key);
+        return value instanceof Boolean ? (Boolean) value : def;
+    }
+
+    /**
+     * The reload settings of a plugin.
+     */
+    public static final class Policy {
+        private final boolean autoReload;
+        private final long debounceMillis;
+        private final boolean cascadeDependents;
+        private final boolean excludeFromFull;
+
+        private Policy(boolean autoReload, long debounceMillis, boolean cascadeDependents, boolean excludeFromFull) {
+            this.autoReload = autoReload;
+            this.debounceMillis = debounceMillis;
+            this.cascadeDependents = cascadeDependents;
+            this.excludeFromFull = excludeFromFull;
+        }
+
+        /**
+         * @return Whether the automatic reloader may load and reload the plugin
+         */
+        public boolean isAutoReload() {
+            return autoReload;
+        }
+
+        /**
+         * @return The time in milliseconds that the plugin's jar must be unchanged before it is automatically reloaded
+         */
+        public long getDebounceMillis() {
+            return debounceMillis;
+        }
+
+        /**
+         * @return Whether plugins depending on the plugin are reloaded together with it when it is automatically
+         * reloaded
+         */
+        public boolean isCascadeDependents() {
+            return cascadeDependents;
+        }
+
+        /**
+         * @return Whether the plugin is skipped when all plugins are reloaded
+         */
+        public boolean isExcludeFromFull() {
+            return excludeFromFull;
+        }
+    }
+
+    private static final class PatternRule {
+        private final Pattern pattern;
+        private final Policy policy;
+
+        private PatternRule(Pattern pattern, Policy policy) {
+            this.pattern = pattern;
+            this.policy = policy;
+        }
+    }
+}
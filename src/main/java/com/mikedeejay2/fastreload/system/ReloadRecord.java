@@ -0,0 +1,153 @@
+package com.mikedeejay2.fastreload.system;
+
+import com.mikedeejay2.fastreload.api.ReloadPhase;
+import com.mikedeejay2.fastreload.system.jfr.ReloadEvents;
+
+/**
+ * Mutable record of the reload of a single plugin. {@link ReloadSystem} reuses one instance for every reload, so a
+ * record is only valid until the next reload starts and should only be accessed from the main thread.
+ * <p>
+ * Every timed phase is also emitted as a JFR event through {@link ReloadEvents} and watched by the
+ * {@link ReloadWatchdog}.
+ *
+ * @author Mikedeejay2
+ */
+public final class ReloadRecord {
+    private final long[] phaseNanos = new long[ReloadPhase.VALUES.length];
+    private final long[] phaseStarts = new long[ReloadPhase.VALUES.length];
+    private final long[] phaseSizes = new long[ReloadPhase.VALUES.length];
+    private final Object[] phaseEvents = new Object[ReloadPhase.VALUES.length];
+    private final ReloadWatchdog watchdog;
+    private long timestamp;
+    private String pluginName;
+    private ReloadTrigger trigger;
+    private boolean success;
+    private int classesLoaded;
+
+    /**
+     * Construct a new record
+     *
+     * @param watchdog The watchdog to report the start and end of every phase to
+     */
+    ReloadRecord(ReloadWatchdog watchdog) {
+        this.watchdog = watchdog;
+    }
+
+    /**
+     * Reset this record for the start of a new reload.
+     *
+     * @param pluginName The name of the plugin being reloaded
+     * @param trigger    The source of the reload
+     */
+    void begin(String pluginName, ReloadTrigger trigger) {
+        this.timestamp = System.currentTimeMillis();
+        this.pluginName = pluginName;
+        this.trigger = trigger;
+        this.success = false;
+        this.classesLoaded = -1;
+        for(int i = 0; i < phaseNanos.length; ++i) {
+            phaseNanos[i] = 0;
+            phaseSizes[i] = 0;
+        }
+        watchdog.clear();
+    }
+
+    /**
+     * Start timing a phase.
+     *
+     * @param phase The phase that is starting
+     */
+    void beginPhase(ReloadPhase phase) {
+        phaseEvents[phase.ordinal()] = ReloadEvents.get().beginPhase(phase);
+        watchdog.beginPhase(pluginName, phase);
+        phaseStarts[phase.ordinal()] = System.nanoTime();
+    }
+
+    /**
+     * Stop timing a phase, adding the time since {@link ReloadRecord#beginPhase(ReloadPhase)} to the phase.
+     *
+     * @param phase The phase that ended
+     * @param size  The size of the phase's work, reported in the phase's JFR event
+     */
+    void endPhase(ReloadPhase phase, long size) {
+        int index = phase.ordinal();
+        long nanos = System.nanoTime() - phaseStarts[index];
+        phaseNanos[index] += nanos;
+        phaseSizes[index] += size;
+        watchdog.endPhase(pluginName, phase, nanos);
+        ReloadEvents.get().endPhase(phaseEvents[index], pluginName, trigger, size);
+        phaseEvents[index] = null;
+    }
+
+    /**
+     * Mark this reload as finished.
+     *
+     * @param success       Whether the plugin was successfully reloaded
+     * @param classesLoaded The number of classes that the new plugin's class loader defined, -1 if unknown
+     */
+    void finish(boolean success, int classesLoaded) {
+        this.success = success;
+        this.classesLoaded = classesLoaded;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getPluginName() {
+        return pluginName;
+    }
+
+    public ReloadTrigger getTrigger() {
+        return trigger;
+    }
+
+    public long getPhaseNanos(ReloadPhase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * Get the size of a phase's work as reported in the phase's JFR event, such as the number of resources removed in
+     * {@link ReloadPhase#TEARDOWN} or the number of commands and permissions unregistered in
+     * {@link ReloadPhase#UNREGISTER}.
+     *
+     * @param phase The phase
+     * @return The size of the phase's work, 0 if the phase didn't run
+     */
+    public long getPhaseSize(ReloadPhase phase) {
+        return phaseSizes[phase.ordinal()];
+    }
+
+    public long getTotalNanos() {
+        long total = 0;
+        for(long nanos : phaseNanos) {
+            total += nanos;
+        }
+        return total;
+    }
+
+    /**
+     * Format the timings of all phases that ran, such as <code>disable 1.2 ms, load 20.5 ms</code>.
+     *
+     * @return The formatted phase timings
+     */
+    public String formatPhases() {
+        StringBuilder builder = new StringBuilder();
+        for(ReloadPhase phase : ReloadPhase.VALUES) {
+            long nanos = phaseNanos[phase.ordinal()];
+            if(nanos == 0) continue;
+            if(builder.length() > 0) builder.append(", ");
+            builder.append(phase.name().toLowerCase()).append(' ')
+                .append(String.format("%.1f", nanos / 1_000_000.0)).append(" ms");
+        }
+        return builder.toString();
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public int getClassesLoaded() {
+        return classesLoaded;
+    }
+}
@@ -0,0 +1,300 @@
+package com.mikedeejay2.fastreload.system;
+
+import com.mikedeejay2.fastreload.FastReload;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+
+/**
+ * Loopback socket that lets build tools trigger reloads directly instead of waiting for the automatic reloader to
+ * notice a new jar.
+ * <p>
+ * The protocol is line based (UTF-8). Every request line is answered with exactly one response line, and a connection
+ * may send any number of requests:
+ * <pre>
+ * &lt;token&gt; reload &lt;plugin name&gt;     Reload (or load) a plugin by name
+ * &lt;token&gt; jar &lt;path&gt;               A jar in the plugins folder is ready, load or reload its plugin
+ *
+ * OK &lt;plugin&gt; &lt;milliseconds&gt; ms [&lt;phase timings&gt;] (&lt;footprint&gt;)
+ * ERROR &lt;message&gt;
+ * </pre>
+ * Requests are put into a bounded queue which is drained on the main thread every tick.
+ * <p>
+ * Connections are handled by a small fixed number of threads, further connections are closed immediately. A connection
+ * is closed when it sends an invalid token, a line longer than {@link ReloadSocketServer#MAX_LINE_LENGTH} bytes, or
+ * nothing for {@link ReloadSocketServer#READ_TIMEOUT_MILLIS} milliseconds.
+ *
+ * @author Mikedeejay2
+ */
+public class ReloadSocketServer {
+    private static final long RESPONSE_TIMEOUT_SECONDS = 300;
+    private static final int MAX_CONNECTIONS = 4;
+    static final int MAX_LINE_LENGTH = 4096;
+    private static final int READ_TIMEOUT_MILLIS = 30_000;
+    static final String INVALID_TOKEN = "ERROR Invalid token";
+
+    private final FastReload plugin;
+    private final ReloadSystem system;
+    private final byte[] token;
+    private final ServerSocket serverSocket;
+    private final BlockingQueue<Request> queue;
+    private final Set<Socket> connections = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final ExecutorService connectionExecutor;
+    private final BukkitTask drainTask;
+
+    /**
+     * Construct and start a new reload socket server
+     *
+     * @param plugin    A reference to the <code>FastReload</code> plugin
+     * @param system    The reload system to run reloads on
+     * @param port      The loopback port to listen on
+     * @param token     The shared secret that every request has to start with
+     * @param queueSize The maximum number of requests waiting for the main thread
+     * @throws IOException If the socket could not be bound
+     */
+    public ReloadSocketServer(FastReload plugin, ReloadSystem system, int port, String token, int queueSize) throws IOException {
+        this.plugin = plugin;
+        this.system = system;
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.drainTask = Bukkit.getScheduler().runTaskTimer(plugin, this::drain, 1, 1);
+        // No queue, a connection that arrives while every thread is busy is rejected instead of waiting
+        this.connectionExecutor = new ThreadPoolExecutor(0, MAX_CONNECTIONS, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "FastReload Socket Connection");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Thread acceptThread = new Thread(this::acceptConnections, "FastReload Socket Listener");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    /**
+     * Stop listening and close all open connections. Requests that are still queued are answered with an error.
+     */
+    public void close() {
+        drainTask.cancel();
+        try {
+            serverSocket.close();
+        } catch(IOException ignored) {
+            // Closing anyways
+        }
+        for(Socket connection : connections) {
+            closeQuietly(connection);
+        }
+        connectionExecutor.shutdownNow();
+        for(Request request; (request = queue.poll()) != null;) {
+            request.response.complete("ERROR FastReload is shutting down");
+        }
+    }
+
+    private void acceptConnections() {
+        while(!serverSocket.isClosed()) {
+            Socket connection;
+            try {
+                connection = serverSocket.accept();
+            } catch(IOException e) {
+                return;
+            }
+            connections.add(connection);
+            try {
+                connectionExecutor.execute(() -> handleConnection(connection));
+            } catch(RejectedExecutionException e) {
+                connections.remove(connection);
+                closeQuietly(connection);
+            }
+        }
+    }
+
+    private static void closeQuietly(Socket connection) {
+        try {
+            connection.close();
+        } catch(IOException ignored) {
+            // Closing anyways
+        }
+    }
+
+    /**
+     * Read request lines from a connection until it is closed, answering each one after it has been processed.
+     *
+     * @param connection The connection to handle
+     */
+    private void handleConnection(Socket connection) {
+        try(Socket socket = connection;
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+            for(String line; (line = readLine(in)) != null;) {
+                String response = handleLine(line.trim());
+                out.write(response);
+                out.write('\n');
+                out.flush();
+                // Don't let a client guess tokens over a single connection
+                if(INVALID_TOKEN.equals(response)) return;
+            }
+        } catch(SocketException | SocketTimeoutException ignored) {
+            // Connection closed by the client or by close(), or idle for too long
+        } catch(LineTooLongException e) {
+            plugin.getLogger().warning("Closed a reload socket connection that sent a line longer than " + MAX_LINE_LENGTH + " bytes");
+        } catch(IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Error while handling a reload socket connection", e);
+        } finally {
+            connections.remove(connection);
+        }
+    }
+
+    /**
+     * Read a single UTF-8 line, without its line terminator.
+     *
+     * @param in The stream to read from
+     * @return The line, null if the stream ended before any byte of a new line
+     * @throws IOException If the line is longer than {@link ReloadSocketServer#MAX_LINE_LENGTH} bytes or the stream
+     *                     could not be read
+     */
+    static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        for(int read; (read = in.read()) != -1;) {
+            if(read == '\n') return line.toString(StandardCharsets.UTF_8.name());
+            if(line.size() >= MAX_LINE_LENGTH) throw new LineTooLongException();
+            line.write(read);
+        }
+        return line.size() == 0 ? null : line.toString(StandardCharsets.UTF_8.name());
+    }
+
+    /**
+     * Authenticate and parse a request line, queue it for the main thread and wait for its response.
+     *
+     * @param line The request line
+     * @return The response line
+     */
+    private String handleLine(String line) {
+        String[] parts = line.split(" ", 3);
+        String error = checkRequest(token, parts);
+        if(error != null) return error;
+
+        Request request;
+        switch(parts[1].toLowerCase()) {
+            case "reload":
+                request = new Request(parts[2], null);
+                break;
+            case "jar":
+                request = new Request(null, new File(parts[2]));
+                break;
+            default:
+                return "ERROR Unknown request \"" + parts[1] + "\"";
+        }
+        if(!queue.offer(request)) return "ERROR Too many queued requests";
+        try {
+            return request.response.get(RESPONSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "ERROR Interrupted";
+        } catch(ExecutionException | TimeoutException e) {
+            return "ERROR " + e;
+        }
+    }
+
+    /**
+     * Check the token and the shape of a request line.
+     *
+     * @param token The shared secret
+     * @param parts The request line split into at most 3 parts at spaces
+     * @return The error response line, null if the request is well formed
+     */
+    static String checkRequest(byte[] token, String[] parts) {
+        if(!MessageDigest.isEqual(token, parts[0].getBytes(StandardCharsets.UTF_8))) return INVALID_TOKEN;
+        if(parts.length < 3) return "ERROR Expected \"<token> reload <plugin>\" or \"<token> jar <path>\"";
+        return null;
+    }
+
+    /**
+     * Process all queued requests. Called on the main thread every tick.
+     */
+    private void drain() {
+        for(Request request; (request = queue.poll()) != null;) {
+            try {
+                request.response.complete(process(request));
+            } catch(Throwable throwable) {
+                plugin.getLogger().log(Level.SEVERE, "Error while processing a reload socket request", throwable);
+                request.response.complete("ERROR " + throwable);
+            }
+        }
+    }
+
+    /**
+     * Process a single request on the main thread.
+     *
+     * @param request The request to process
+     * @return The response line
+     */
+    private String process(Request request) throws IOException {
+        String pluginName = request.pluginName;
+        if(request.jar != null) {
+            File pluginsDirectory = ReloadSystem.PLUGINS_DIRECTORY.getCanonicalFile();
+            File jar = resolveJar(pluginsDirectory, request.jar);
+            if(jar == null) return "ERROR The jar must be inside " + pluginsDirectory.getPath();
+            PluginDescriptionFile description = system.getPluginDescription(jar, false);
+            if(description == null) return "ERROR Could not read the plugin description of " + jar.getPath();
+            pluginName = description.getName();
+        }
+
+        Plugin target = Bukkit.getPluginManager().getPlugin(pluginName);
+        if(target == null && system.getPluginFile(pluginName) == null) {
+            return "ERROR Unknown plugin \"" + pluginName + "\"";
+        }
+        plugin.getServer().getConsoleSender().sendMessage(String.format("Reload socket requested a reload of plugin \"%s\"", pluginName));
+
+        long startTime = System.currentTimeMillis();
+        final String name = pluginName;
+        boolean success = system.coordinator.runNow(Collections.singletonList(pluginName), ReloadTrigger.SOCKET, () -> target == null
+            ? system.loadNewPlugin(name, ReloadTrigger.SOCKET)
+            : system.reloadPlugin(target, ReloadTrigger.SOCKET));
+        long differenceTime = System.currentTimeMillis() - startTime;
+
+        if(!success) return String.format("ERROR Plugin \"%s\" failed to reload after %d ms", pluginName, differenceTime);
+        return String.format("OK %s %d ms [%s] (%s)",
+            pluginName, differenceTime, system.record.formatPhases(), system.getLastFootprint().summary());
+    }
+
+    /**
+     * Resolve the jar of a request, with all links and relative parts of its path resolved.
+     *
+     * @param pluginsDirectory The canonical plugins directory
+     * @param jar              The requested jar
+     * @return The canonical jar, null if it isn't directly inside the plugins directory
+     * @throws IOException If the path could not be resolved
+     */
+    static File resolveJar(File pluginsDirectory, File jar) throws IOException {
+        File canonicalJar = jar.getCanonicalFile();
+        return pluginsDirectory.equals(canonicalJar.getParentFile()) ? canonicalJar : null;
+    }
+
+    static final class LineTooLongException extends IOException {}
+
+    private static final class Request {
+        private final String pluginName;
+        private final File jar;
+        private final CompletableFuture<String> response = new CompletableFuture<>();
+
+        private Request(String pluginName, File jar) {
+            this.pluginName = pluginName;
+            this.jar = jar;
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package com.mikedeejay2.fastreload.system;
 
 import com.mikedeejay2.fastreload.FastReload;
+import com.mikedeejay2.fastreload.api.ReloadPhase;
 import com.mikedeejay2.fastreload.commands.FastReloadCommand;
 import com.mikedeejay2.fastreload.config.FastReloadConfig;
 import com.mikedeejay2.fastreload.listeners.ChatListener;
 import com.mikedeejay2.fastreload.util.FieldsBase;
+import com.mikedeejay2.fastreload.util.PluginDescriptorReader;
 import com.mikedeejay2.fastreload.util.ReflectUtil;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
@@ -15,18 +17,17 @@ import org.bukkit.plugin.*;
 import org.bukkit.scheduler.BukkitTask;
 import org.yaml.snakeyaml.error.YAMLException;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
-import java.util.function.BiConsumer;
 import java.util.function.Predicate;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 import java.util.logging.Level;
-import java.util.stream.Collectors;
 
 /**
  * Main reloading system class.
@@ -38,13 +39,32 @@ public class ReloadSystem implements FastReloadConfig.LoadListener {
     protected final FastReload plugin;
     protected final ConsoleCommandSender serverSender;
     protected final FieldsBase fields;
-    protected BiConsumer<CommandSender, String[]> reloadConsumer;
+    protected final ReloadWatchdog watchdog;
+    protected ReloadRecord record;
+    protected final FootprintTracker footprintTracker = new FootprintTracker();
+    protected final ReloadMetrics metrics = new ReloadMetrics();
+    protected final DescriptorIndex descriptorIndex;
+    protected FootprintTracker.Generation lastFootprint;
+    protected PluginTeardown.Result lastTeardown;
+    protected Reloader reloadConsumer;
+    protected final ReloadCoordinator coordinator;
     protected Predicate<CommandSender> permissionPredicate;
     protected ChatListener chatListener;
     protected FastReloadCommand commandExecutor;
-    protected List<String> pluginFilterList;
-    protected boolean filterWhitelist;
+    protected ReloadPolicies policies;
     protected BukkitTask autoReloader;
+    protected AutoReloaderRunnable autoReloaderRunnable;
+    protected HotSwapper hotSwapper;
+    protected DataFolderWatcher dataFolderWatcher;
+    protected ReloadJournal journal;
+    protected ReloadSocketServer socketServer;
+    protected DeployWatcher deployWatcher;
+    protected ThreadLeakDetector threadLeakDetector;
+    protected MetricsExporter metricsExporter;
+    protected StateHandoffService stateHandoff;
+    protected SharedScanCoordinator sharedScan;
+    protected CommandSyncBatcher commandSyncBatcher;
+    protected final BatchedReloadService reloadService;
 
     /**
      * Construct a new reloading system
@@ -55,31 +75,143 @@ public class ReloadSystem implements FastReloadConfig.LoadListener {
         this.plugin = plugin;
         this.fields = fields;
         this.serverSender = plugin.getServer().getConsoleSender();
-        this.chatListener = new ChatListener(this::reload);
-        this.commandExecutor = new FastReloadCommand(this::reload);
+        this.chatListener = new ChatListener((sender, args) -> reload(sender, args, ReloadTrigger.CHAT));
+        this.commandExecutor = new FastReloadCommand((sender, args) -> reload(sender, args, ReloadTrigger.COMMAND));
         this.permissionPredicate = plugin::checkPermission;
+        this.coordinator = new ReloadCoordinator(plugin, this);
+        this.watchdog = new ReloadWatchdog(plugin);
+        this.record = new ReloadRecord(watchdog);
+        this.descriptorIndex = new DescriptorIndex(new File(plugin.getDataFolder(), DescriptorIndex.FILE_NAME));
+        try {
+            descriptorIndex.load();
+        } catch(IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not read the plugin descriptor index, rebuilding it", e);
+        }
         loadCommands();
         plugin.getServer().getPluginManager().registerEvents(chatListener, plugin);
         this.reloadConsumer = null;
 
         this.plugin.config().registerListener(this);
         this.plugin.config().registerListener(chatListener);
+        this.reloadService = new BatchedReloadService(plugin, this);
     }
 
     @Override
     public void onConfigLoad(FastReloadConfig config) {
         this.reloadConsumer = config.ONLY_PLUGINS.get() ? this::reloadPlugins : this::reloadFull;
-        this.pluginFilterList = config.FILTER_LIST.get()
-            .stream().map(String::toLowerCase).collect(Collectors.toList());
-        this.filterWhitelist = config.FILTER_MODE.get().equalsIgnoreCase("whitelist");
+        this.policies = new ReloadPolicies(config, plugin.getLogger());
+
+        if(this.sharedScan != null) sharedScan.close();
+        this.sharedScan = null;
+        if(!config.SHARED_PLUGINS_DIRECTORY.get().isEmpty()) {
+            try {
+                this.sharedScan = new SharedScanCoordinator(plugin.getLogger(), new File(config.SHARED_PLUGINS_DIRECTORY.get()));
+            } catch(IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Could not open the shared plugins directory", e);
+            }
+        }
 
         if(config.AUTO_RELOAD_PLUGINS.get()) {
             if(this.autoReloader != null) autoReloader.cancel();
             int autoReloadTime = config.AUTO_RELOAD_TIME.get();
-            double autoReloadWait = config.AUTO_RELOAD_WAIT.get();
+            this.autoReloaderRunnable = new AutoReloaderRunnable(plugin, this);
             this.autoReloader = Bukkit.getScheduler().runTaskTimerAsynchronously(
-                plugin, new AutoReloaderRunnable(plugin, this, autoReloadWait),
-                autoReloadTime, autoReloadTime);
+                plugin, autoReloaderRunnable, autoReloadTime, autoReloadTime);
+        }
+
+        if(!config.HOT_SWAP.get()) {
+            this.hotSwapper = null;
+        } else if(this.hotSwapper == null) {
+            this.hotSwapper = new HotSwapper(plugin);
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, hotSwapper::initialize);
+        }
+
+        if(!config.DETECT_THREAD_LEAKS.get()) {
+            this.threadLeakDetector = null;
+        } else if(this.threadLeakDetector == null) {
+            this.threadLeakDetector = new ThreadLeakDetector(plugin, config.INTERRUPT_LEAKED_THREADS.get());
+        } else {
+            threadLeakDetector.setInterruptLeaks(config.INTERRUPT_LEAKED_THREADS.get());
+        }
+
+        if(!config.WATCH_DATA_FOLDERS.get()) {
+            if(this.dataFolderWatcher != null) dataFolderWatcher.close();
+            this.dataFolderWatcher = null;
+        } else {
+            if(this.dataFolderWatcher == null) {
+                try {
+                    this.dataFolderWatcher = new DataFolderWatcher(plugin, this);
+                } catch(IOException e) {
+                    plugin.getLogger().log(Level.SEVERE, "Could not start watching plugin data folders", e);
+                }
+            }
+            if(this.dataFolderWatcher != null) dataFolderWatcher.onConfigLoad(config);
+        }
+
+        if(this.socketServer != null) socketServer.close();
+        this.socketServer = null;
+        if(config.RELOAD_SOCKET.get()) {
+            if(config.RELOAD_SOCKET_TOKEN.get().isEmpty()) {
+                plugin.getLogger().warning("The reload socket is enabled but has no token, not starting it");
+            } else {
+                try {
+                    this.socketServer = new ReloadSocketServer(plugin, this,
+                        config.RELOAD_SOCKET_PORT.get(), config.RELOAD_SOCKET_TOKEN.get(), config.RELOAD_SOCKET_QUEUE.get());
+                } catch(IOException e) {
+                    plugin.getLogger().log(Level.SEVERE, "Could not start the reload socket", e);
+                }
+            }
+        }
+
+        if(this.deployWatcher != null) deployWatcher.close();
+        this.deployWatcher = null;
+        if(!config.DEPLOY_SOURCES.get().isEmpty()) {
+            try {
+                this.deployWatcher = new DeployWatcher(plugin, this,
+                    config.DEPLOY_SOURCES.get(), config.DEPLOY_STABLE_TIME.get());
+            } catch(IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Could not start watching deploy sources", e);
+            }
+        }
+
+        watchdog.configure(config.RELOAD_WATCHDOG.get(), config.RELOAD_WATCHDOG_DEADLINE.get(), config.RELOAD_WATCHDOG_INTERVAL.get());
+
+        if(!config.BATCHED_COMMAND_SYNC.get()) {
+            if(this.commandSyncBatcher != null) commandSyncBatcher.close();
+            this.commandSyncBatcher = null;
+        } else if(this.commandSyncBatcher == null) {
+            this.commandSyncBatcher = new CommandSyncBatcher(plugin, fields.knownCommands(), config.COMMAND_SYNC_BATCH_SIZE.get());
+            plugin.getServer().getPluginManager().registerEvents(commandSyncBatcher, plugin);
+        } else {
+            commandSyncBatcher.setBatchSize(config.COMMAND_SYNC_BATCH_SIZE.get());
+        }
+
+        long handoffTimeout = (long) (config.STATE_HANDOFF_TIMEOUT.get() * 1000);
+        long handoffLimit = config.STATE_HANDOFF_LIMIT.get() * 1024L * 1024L;
+        if(this.stateHandoff == null) {
+            this.stateHandoff = new StateHandoffService(plugin, handoffTimeout, handoffLimit);
+        } else {
+            stateHandoff.setLimits(handoffTimeout, handoffLimit);
+        }
+
+        if(this.metricsExporter != null) metricsExporter.close();
+        this.metricsExporter = null;
+        if(config.METRICS_EXPORTER.get()) {
+            try {
+                this.metricsExporter = new MetricsExporter(metrics, config.METRICS_EXPORTER_PORT.get());
+            } catch(IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Could not start the metrics exporter", e);
+            }
+        }
+
+        closeJournal();
+        if(config.RELOAD_JOURNAL.get()) {
+            try {
+                this.journal = new ReloadJournal(
+                    new File(plugin.getDataFolder(), ReloadJournal.FILE_NAME), config.RELOAD_JOURNAL_SIZE.get());
+            } catch(IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Could not open the reload journal", e);
+            }
         }
     }
 
@@ -111,12 +243,54 @@ public class ReloadSystem implements FastReloadConfig.LoadListener {
     }
 
     /**
-     * Command to disable all runnables in the reload system. Currently, this includes the automatic plugin reloader if
-     * it is enabled in the configuration file
+     * Command to disable all runnables in the reload system. Currently, this includes the automatic plugin reloader, the
+     * data folder watcher, the reload socket and the deploy watcher if they are enabled in the configuration file
      */
     public void disable() {
         if(this.autoReloader != null) autoReloader.cancel();
         autoReloader = null;
+        if(this.sharedScan != null) sharedScan.close();
+        sharedScan = null;
+        if(this.commandSyncBatcher != null) commandSyncBatcher.close();
+        commandSyncBatcher = null;
+        watchdog.close();
+        reloadService.close();
+        if(this.dataFolderWatcher != null) dataFolderWatcher.close();
+        dataFolderWatcher = null;
+        if(this.socketServer != null) socketServer.close();
+        socketServer = null;
+        if(this.deployWatcher != null) deployWatcher.close();
+        deployWatcher = null;
+        if(this.metricsExporter != null) metricsExporter.close();
+        metricsExporter = null;
+        if(this.stateHandoff != null) stateHandoff.close();
+        stateHandoff = null;
+        saveDescriptorIndex();
+        closeJournal();
+    }
+
+    /**
+     * Save the plugin descriptor index if it changed. Can be called from any thread.
+     */
+    protected void saveDescriptorIndex() {
+        try {
+            descriptorIndex.save();
+        } catch(IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not save the plugin descriptor index", e);
+        }
+    }
+
+    /**
+     * Close the reload journal if it is open.
+     */
+    protected void closeJournal() {
+        if(this.journal == null) return;
+        try {
+            journal.close();
+        } catch(IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not close the reload journal", e);
+        }
+        journal = null;
     }
 
     /**
@@ -127,9 +301,24 @@ public class ReloadSystem implements FastReloadConfig.LoadListener {
      * @param args   The String of arguments, possibly the name of the plugin, possibly null
      */
     public void reload(final CommandSender sender, String[] args) {
+        reload(sender, args, ReloadTrigger.COMMAND);
+    }
+
+    /**
+     * Submit a <code>CommandSender</code> request to reload the server, taking in arguments as
+     * well in case they were specifying a specific command.
+     * <p>
+     * Requests are coalesced by the {@link ReloadCoordinator}, so a request for a reload that is already pending is
+     * merged into it instead of reloading again.
+     *
+     * @param sender  The <code>CommandSender</code> requesting the reload
+     * @param args    The String of arguments, possibly the name of the plugin, possibly null
+     * @param trigger The source of the request
+     */
+    public void reload(final CommandSender sender, String[] args, ReloadTrigger trigger) {
         if(!permissionPredicate.test(sender)) return;
-        // Schedule task on sync because of Async chat event
-        Bukkit.getScheduler().runTask(plugin, () -> reloadConsumer.accept(sender, args));
+        // The coordinator schedules the reload on sync because of Async chat event
+        coordinator.submit(sender, args, trigger);
     }
 
     /**
@@ -141,14 +330,15 @@ public class ReloadSystem implements FastReloadConfig.LoadListener {
      * <p>
      * However, this method is only ran if "Only Plugins" in commands is set to false.
      *
-     * @param sender The <code>CommandSender</code> requesting the reload
-     * @param args   The String of arguments, possibly the name of the plugin, possibly null
+     * @param sender  The <code>CommandSender</code> requesting the reload
+     * @param args    The String of arguments, possibly the name of the plugin, possibly null
+     * @param trigger The source of the request
      */
-    protected void reloadFull(final CommandSender sender, String[] args) {
+    protected void reloadFull(final CommandSender sender, String[] args, ReloadTrigger trigger) {
         if(args == null || args.length == 0) {
             vanillaReload(sender);
         } else {
-            reloadPlugin(sender, args);
+            reloadPlugin(sender, args, trigger);
         }
     }
 
@@ -179,14 +369,15 @@ public class ReloadSystem implements FastReloadConfig.LoadListener {
      * If <code>args</code> is not empty, it will instead attempt to reload just the plugin
      * specified.
      *
-     * @param sender The <code>CommandSender</code> requesting the reload
-     * @param args   The String of arguments, possibly the name of the plugin, possibly null
+     * @param sender  The <code>CommandSender</code> requesting the reload
+     * @param args    The String of arguments, possibly the name of the plugin, possibly null
+     * @param trigger The source of the request
      */
-    protected void reloadPlugins(final CommandSender sender, String[] args) {
+    protected void reloadPlugins(final CommandSender sender, String[] args, ReloadTrigger trigger) {
         if(args == null || args.length == 0) {
-            reloadAllPlugins(sender);
+            reloadAllPlugins(sender, trigger);
         } else {
-            reloadPlugin(sender, args);
+            reloadPlugin(sender, args, trigger);
         }
     }
 
@@ -196,9 +387,10 @@ public class ReloadSystem implements FastReloadConfig.LoadListener {
      * This does essentially just what {@link Bukkit#reload()} does but only reloading
      * plugins and nothing else.
      *
-     * @param sender The <code>CommandSender</code> requesting the reload
+     * @param sender  The <code>CommandSender</code> requesting the reload
+     * @param trigger The source of the request
      */
-    protected void reloadAllPlugins(final CommandSender sender) {
+    protected void reloadAllPlugins(final CommandSender sender, ReloadTrigger trigger) {
         sender.sendMessage(ChatColor.YELLOW + "The server is reloading all plugins...");
         serverSender.sendMessage(String.format(ChatColor.RED + "Player %s reloaded the server's plugins!", sender.getName()));
 
@@ -206,17 +398,23 @@ public class ReloadSystem implements FastReloadConfig.LoadListener {
 
         long startTime = System.currentTimeMillis();
 
-        // Reload all commands, take into account the black/whitelist filter in the config
+        // Reload all commands, take into account the black/whitelist filter and policies in the config
+        List<Plugin> selected = new ArrayList<>();
         for(Plugin curPlugin : pluginManager.getPlugins()) {
-            if(filterWhitelist ^ pluginFilterList.contains(curPlugin.getName().toLowerCase())) {
+            if(policies.get(curPlugin.getName()).isExcludeFromFull()) {
                 continue;
             }
-            reloadPlugin(curPlugin);
+            selected.add(curPlugin);
         }
+        BulkReload bulkReload = new BulkReload(this, selected, trigger);
+        bulkReload.run();
 
         long endTime = System.currentTimeMillis();
         long differenceTime = endTime - startTime;
-        sender.sendMessage(ChatColor.GREEN + "The server has successfully reloaded all plugins in " + differenceTime + "ms.");
+        if(bulkReload.getFailed() > 0) {
+            sender.sendMessage(ChatColor.RED + String.format("%d plugins failed to reload, check the console for errors.", bulkReload.getFailed()));
+        }
+        sender.sendMessage(ChatColor.GREEN + "The server has successfully reloaded all plugins in " + differenceTime + "ms. (" + bulkReload.formatPhases() + ")");
     }
 
     /**
@@ -228,10 +426,11 @@ public class ReloadSystem implements FastReloadConfig.LoadListener {
      * What that means is that this method utilizes methods which emulate the act of a single
      * plugin being unregistered and reloaded.
      *
-     * @param sender The <code>CommandSender</code> requesting the reload
-     * @param args   The String of arguments, possibly the name of the plugin, possibly null
+     * @param sender  The <code>CommandSender</code> requesting the reload
+     * @param args    The String of arguments, possibly the name of the plugin, possibly null
+     * @param trigger The source of the request
      */
-    protected void reloadPlugin(final CommandSender sender, String[] args) {
+    protected void reloadPlugin(final CommandSender sender, String[] args, ReloadTrigger trigger) {
         String pluginName = String.join(" ", args);
         sender.sendMessage(ChatColor.YELLOW + String.format("The server is reloading plugin \"%s\"...", pluginName));
         serverSender.sendMessage(String.format(ChatColor.RED + "Player %s reloaded the server's plugins!", sender.getName()));
@@ -246,16 +445,21 @@ public class ReloadSystem implements FastReloadConfig.LoadListener {
 
         long startTime = System.currentTimeMillis();
 
-        reloadPlugin(selectedPlugin);
+        boolean success = reloadPlugin(selectedPlugin, trigger);
 
         long endTime = System.currentTimeMillis();
         long differenceTime = endTime - startTime;
 
-        sender.sendMessage(ChatColor.GREEN + String.format("The server has successfully reloaded plugin \"%s\" in %d ms.", pluginName, differenceTime));
+        if(!success) {
+            sender.sendMessage(ChatColor.RED + String.format("The plugin \"%s\" failed to reload after %d ms, check the console for errors.", pluginName, differenceTime));
+            return;
+        }
+        sender.sendMessage(ChatColor.GREEN + String.format("The server has successfully reloaded plugin \"%s\" in %d ms. (%s)", pluginName, differenceTime, lastFootprint.summary()));
     }
 
     /**
-     * Reload a specified plugin. This method does the following in order
+     * Reload a specified plugin. If hot swapping is enabled and the plugin's jar only changed method bodies, the
+     * plugin's classes are redefined in place instead. Otherwise, this method does the following in order
      * <ol>
      *     <li>Disable the plugin.</li>
      *     <li>Unregister the plugin (commands, lookups, permissions)</li>
@@ -263,11 +467,63 @@ public class ReloadSystem implements FastReloadConfig.LoadListener {
      *     <li>Enable the plugin</li>
      * </ol>
      *
+     * The time of each phase is recorded and appended to the reload journal if it is enabled.
+     *
      * @param thePlugin The plugin to reload
+     * @param trigger   The source of the reload
+     * @return Whether the plugin was successfully reloaded and is enabled
      */
-    protected void reloadPlugin(Plugin thePlugin) {
+    protected boolean reloadPlugin(Plugin thePlugin, ReloadTrigger trigger) {
+        record.begin(thePlugin.getName(), trigger);
+        footprintTracker.begin();
+        if(hotSwapper != null) {
+            record.beginPhase(ReloadPhase.HOT_SWAP);
+            boolean swapped;
+            try {
+                swapped = hotSwapper.hotSwap(thePlugin);
+            } finally {
+                record.endPhase(ReloadPhase.HOT_SWAP, getPluginJarSize(thePlugin));
+            }
+            if(swapped) {
+                return finishRecord(thePlugin);
+            }
+        }
         disableAndUnregisterPlugin(thePlugin);
-        loadAndEnablePlugin(thePlugin.getName());
+        return finishRecord(loadAndEnablePlugin(thePlugin.getName()));
+    }
+
+    /**
+     * Load and enable a plugin that is not loaded yet, recording it as a reload in the reload journal.
+     *
+     * @param pluginName The name of the plugin to load
+     * @param trigger    The source of the load
+     * @return Whether the plugin was successfully loaded and is enabled
+     */
+    protected boolean loadNewPlugin(String pluginName, ReloadTrigger trigger) {
+        record.begin(pluginName, trigger);
+        footprintTracker.begin();
+        return finishRecord(loadAndEnablePlugin(pluginName));
+    }
+
+    /**
+     * Finish the current reload record, append it to the reload journal and record the reload's footprint.
+     *
+     * @param newPlugin The plugin after the reload, null if it could not be loaded
+     * @return Whether the reload succeeded
+     */
+    protected boolean finishRecord(Plugin newPlugin) {
+        boolean success = newPlugin != null && newPlugin.isEnabled();
+        int classesLoaded = newPlugin == null ? -1 : getLoadedClassCount(newPlugin);
+        record.finish(success, classesLoaded);
+        if(journal != null) journal.append(record);
+        metrics.recordReload(record);
+        lastFootprint = footprintTracker.end(record.getPluginName(), classesLoaded);
+        if(success && autoReloaderRunnable != null) {
+            // Don't let the automatic reloader repeat a reload of a jar that is already loaded
+            File jar = HotSwapper.getPluginJar(newPlugin);
+            if(jar != null) autoReloaderRunnable.markCurrent(jar);
+        }
+        return success;
     }
 
     /**
@@ -276,11 +532,35 @@ public class ReloadSystem implements FastReloadConfig.LoadListener {
      * @param thePlugin The plugin to disable
      */
     protected void disableAndUnregisterPlugin(Plugin thePlugin) {
-        disablePlugin(thePlugin);
-        unregisterPlugin(thePlugin);
-        unregisterCommands(thePlugin);
-        unregisterLookups(thePlugin);
-        unregisterPermissions(thePlugin);
+        record.beginPhase(ReloadPhase.DISABLE);
+        try {
+            disablePlugin(thePlugin);
+        } finally {
+            record.endPhase(ReloadPhase.DISABLE, 0);
+        }
+        record.beginPhase(ReloadPhase.TEARDOWN);
+        PluginTeardown.Result teardown = null;
+        try {
+            teardown = PluginTeardown.teardown(thePlugin);
+        } finally {
+            record.endPhase(ReloadPhase.TEARDOWN, teardown == null ? 0 : teardown.getTotal());
+        }
+        lastTeardown = teardown;
+        if(lastTeardown.getTotal() > 0) {
+            plugin.getLogger().warning(String.format("Plugin \"%s\" left resources behind after disabling, removed %s", thePlugin.getName(), lastTeardown.summary()));
+        }
+        if(threadLeakDetector != null) threadLeakDetector.afterDisable(thePlugin);
+        record.beginPhase(ReloadPhase.UNREGISTER);
+        int unregistered = 0;
+        try {
+            unregisterPlugin(thePlugin);
+            unregistered += unregisterCommands(thePlugin);
+            unregisterLookups(thePlugin);
+            unregistered += unregisterPermissions(thePlugin);
+            if(hotSwapper != null) hotSwapper.forget(thePlugin.getName());
+        } finally {
+            record.endPhase(ReloadPhase.UNREGISTER, unregistered);
+        }
     }
 
     /**
@@ -291,11 +571,82 @@ public class ReloadSystem implements FastReloadConfig.LoadListener {
      * CraftBukkit before calling this method! If not, bad things will probably happen.
      *
      * @param pluginName The name of the plugin to load
+     * @return The newly loaded plugin, null if it could not be loaded
+     */
+    protected Plugin loadAndEnablePlugin(String pluginName) {
+        record.beginPhase(ReloadPhase.LOAD);
+        Plugin newPlugin = null;
+        try {
+            newPlugin = loadPlugin(pluginName);
+        } finally {
+            record.endPhase(ReloadPhase.LOAD, newPlugin == null ? 0 : getPluginJarSize(newPlugin));
+        }
+        return enableLoadedPlugin(newPlugin, true);
+    }
+
+    /**
+     * Load and enable a plugin from a known jar file.
+     *
+     * @param pluginFile   The jar file of the plugin
+     * @param syncCommands Whether the command tree should be sent to players after enabling. Bulk reloads send it
+     *                     once after all plugins have been enabled instead.
+     * @return The newly loaded plugin, null if it could not be loaded
+     */
+    protected Plugin loadAndEnablePlugin(File pluginFile, boolean syncCommands) {
+        record.beginPhase(ReloadPhase.LOAD);
+        Plugin newPlugin = null;
+        try {
+            newPlugin = loadPlugin(pluginFile);
+        } finally {
+            record.endPhase(ReloadPhase.LOAD, newPlugin == null ? 0 : getPluginJarSize(newPlugin));
+        }
+        return enableLoadedPlugin(newPlugin, syncCommands);
+    }
+
+    /**
+     * Enable a plugin that was just loaded and start tracking it.
+     *
+     * @param newPlugin    The loaded plugin, possibly null
+     * @param syncCommands Whether the command tree should be sent to players after enabling
+     * @return The enabled plugin, null if <code>newPlugin</code> was null
      */
-    protected void loadAndEnablePlugin(String pluginName) {
-        Plugin newPlugin = loadPlugin(pluginName);
-        if(newPlugin == null) return;
-        plugin.getServer().getPluginManager().enablePlugin(newPlugin);
+    protected Plugin enableLoadedPlugin(Plugin newPlugin, boolean syncCommands) {
+        if(newPlugin == null) return null;
+        record.beginPhase(ReloadPhase.ENABLE);
+        try {
+            plugin.getServer().getPluginManager().enablePlugin(newPlugin);
+        } finally {
+            record.endPhase(ReloadPhase.ENABLE, getLoadedClassCount(newPlugin));
+        }
+        if(hotSwapper != null) {
+            final HotSwapper swapper = hotSwapper;
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> swapper.snapshot(newPlugin));
+        }
+        if(dataFolderWatcher != null) dataFolderWatcher.watch(newPlugin);
+        if(!syncCommands) return newPlugin;
+        record.beginPhase(ReloadPhase.SYNC_COMMANDS);
+        try {
+            syncCommands();
+        } finally {
+            record.endPhase(ReloadPhase.SYNC_COMMANDS, fields.knownCommands().size());
+        }
+        return newPlugin;
+    }
+
+    /**
+     * Rebuild the server's command tree and send it to all online players. If batched command sync is enabled, the
+     * tree is sent over several ticks, see {@link CommandSyncBatcher}.
+     */
+    protected void syncCommands() {
+        if(commandSyncBatcher != null && commandSyncBatcher.sync(this::invokeSyncCommands)) return;
+        invokeSyncCommands();
+    }
+
+    /**
+     * Invoke the server's <code>syncCommands</code>, which rebuilds the command tree and sends it to all online players
+     * in the same tick.
+     */
+    protected void invokeSyncCommands() {
         try {
             ReflectUtil.invokeMethod("syncCommands", plugin.getServer(), plugin.getServer().getClass(), new Class[0], new Object[0]);
         } catch(NoSuchMethodException | InvocationTargetException | IllegalAccessException ex) {
@@ -303,6 +654,33 @@ public class ReloadSystem implements FastReloadConfig.LoadListener {
         }
     }
 
+    /**
+     * Get the size of the jar file that a plugin was loaded from.
+     *
+     * @param thePlugin The plugin
+     * @return The size of the jar in bytes, 0 if the jar could not be found
+     */
+    protected long getPluginJarSize(Plugin thePlugin) {
+        File jar = HotSwapper.getPluginJar(thePlugin);
+        return jar == null ? 0 : jar.length();
+    }
+
+    /**
+     * Get the number of classes that the class loader of a plugin has defined. This reads the <code>classes</code>
+     * map of the plugin's <code>PluginClassLoader</code>.
+     *
+     * @param thePlugin The plugin
+     * @return The number of loaded classes, -1 if it could not be determined
+     */
+    protected int getLoadedClassCount(Plugin thePlugin) {
+        ClassLoader loader = thePlugin.getClass().getClassLoader();
+        try {
+            return ReflectUtil.getField("classes", loader, loader.getClass(), Map.class).size();
+        } catch(NoSuchFieldException | IllegalAccessException | ClassCastException e) {
+            return -1;
+        }
+    }
+
     /**
      * Helper method to disable a plugin using {@link SimplePluginManager#disablePlugin(Plugin)}.
      * This method DOES NOT fully unregister the plugin!
@@ -333,9 +711,17 @@ public class ReloadSystem implements FastReloadConfig.LoadListener {
      * @return The loaded plugin, null if not found
      */
     protected Plugin loadPlugin(String pluginName) {
-        PluginManager manager = plugin.getServer().getPluginManager();
+        return loadPlugin(getPluginFile(pluginName));
+    }
 
-        File pluginFile = getPluginFile(pluginName);
+    /**
+     * Load a plugin from its jar file.
+     *
+     * @param pluginFile The jar file of the plugin
+     * @return The loaded plugin, null if it could not be loaded
+     */
+    protected Plugin loadPlugin(File pluginFile) {
+        PluginManager manager = plugin.getServer().getPluginManager();
 
         try {
             return manager.loadPlugin(pluginFile);
@@ -356,10 +742,7 @@ public class ReloadSystem implements FastReloadConfig.LoadListener {
      */
     protected File getPluginFile(String pluginName) {
         for (File file : ReloadSystem.getPluginFiles()) {
-            PluginDescriptionFile curDescription = getPluginDescription(file, true);
-            if(curDescription == null) continue;
-
-            if(pluginName.equals(curDescription.getName())) {
+            if(pluginName.equals(getPluginName(file, true))) {
                 return file;
             }
         }
@@ -367,11 +750,40 @@ public class ReloadSystem implements FastReloadConfig.LoadListener {
         return null;
     }
 
+    /**
+     * Get the name of the plugin in a jar file. The name is taken from the {@link DescriptorIndex} if the jar hasn't
+     * changed since it was indexed, otherwise the jar's descriptor is read and indexed.
+     *
+     * @param pluginFile  The plugin File to get the name of
+     * @param throwErrors Whether to throw errors or not
+     * @return The name of the plugin, null if error occurred
+     */
+    protected String getPluginName(File pluginFile, boolean throwErrors) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(pluginFile.toPath(), BasicFileAttributes.class);
+        } catch(IOException e) {
+            return null;
+        }
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        DescriptorIndex.Entry entry = descriptorIndex.get(pluginFile, size, lastModified);
+        if(entry != null) return entry.getName();
+
+        PluginDescriptionFile description = getPluginDescription(pluginFile, throwErrors);
+        if(description == null) return null;
+        descriptorIndex.update(pluginFile, size, lastModified, description);
+        return description.getName();
+    }
+
     /**
      * Remove all permissions from a plugin. This should be used when disabling a single
      * plugin, as {@link SimplePluginManager#disablePlugin(Plugin)} doesn't do this.
+     *
+     * @param selectedPlugin The plugin to remove permissions from
+     * @return The number of permissions that were removed
      */
-    protected void unregisterPermissions(Plugin selectedPlugin) {
+    protected int unregisterPermissions(Plugin selectedPlugin) {
         List<Permission> permissions = selectedPlugin.getDescription().getPermissions();
 
         PluginManager manager = plugin.getServer().getPluginManager();
@@ -380,6 +792,7 @@ public class ReloadSystem implements FastReloadConfig.LoadListener {
             fields.defaultPerms().get(true).remove(permission);
             fields.defaultPerms().get(false).remove(permission);
         }
+        return permissions.size();
     }
 
     /**
@@ -422,8 +835,10 @@ public class ReloadSystem implements FastReloadConfig.LoadListener {
      * as {@link SimplePluginManager#disablePlugin(Plugin)} doesn't do this.
      *
      * @param selectedPlugin The plugin to unregister commands from
+     * @return The number of command entries (including aliases) that were removed
      */
-    protected void unregisterCommands(Plugin selectedPlugin) {
+    protected int unregisterCommands(Plugin selectedPlugin) {
+        int removed = 0;
         Collection<Command> origSet = fields.knownCommands().values();
         for(Iterator<Command> i = origSet.iterator(); i.hasNext();) {
             Command command = i.next();
@@ -435,11 +850,14 @@ public class ReloadSystem implements FastReloadConfig.LoadListener {
                 pluginCommand.unregister(fields.commandMap());
             }
             i.remove();
+            ++removed;
         }
+        return removed;
     }
 
     /**
-     * Get the {@link PluginDescriptionFile} of a <code>File</code> representing a plugin jar file.
+     * Get the {@link PluginDescriptionFile} of a <code>File</code> representing a plugin jar file. Only the jar's
+     * central directory and descriptor entry are read, see {@link PluginDescriptorReader}.
      *
      * @param pluginFile The plugin File to get the description from
      * @param throwErrors Whether to throw errors or not
@@ -447,9 +865,10 @@ public class ReloadSystem implements FastReloadConfig.LoadListener {
      */
     protected PluginDescriptionFile getPluginDescription(File pluginFile, boolean throwErrors) {
         PluginDescriptionFile curDescription = null;
-        try(JarFile jarFile = new JarFile(pluginFile)) {
-            JarEntry entry = jarFile.getJarEntry("plugin.yml");
-            curDescription = createPluginDescription(jarFile, entry);
+        try {
+            byte[] descriptor = PluginDescriptorReader.readDescriptor(pluginFile);
+            if(descriptor == null) throw new InvalidDescriptionException("Jar does not contain plugin.yml");
+            curDescription = createPluginDescription(descriptor);
         } catch (IOException | InvalidDescriptionException ex) {
             if(!throwErrors) return null;
             plugin.getServer().getLogger().log(
@@ -461,17 +880,15 @@ public class ReloadSystem implements FastReloadConfig.LoadListener {
     }
 
     /**
-     * Create a {@link PluginDescriptionFile} from a provided {@link JarFile} and {@link JarEntry}.
+     * Create a {@link PluginDescriptionFile} from the contents of a plugin's <code>plugin.yml</code>.
      *
-     * @param file The {@link JarFile} of the plugin.
-     * @param config The {@link JarEntry} of the <code>plugin.yml</code> contained within the {@link JarFile}. In most
-     *               cases this {@link JarEntry} should be the <code>plugin.yml</code>.
+     * @param descriptor The contents of the <code>plugin.yml</code>
      * @return The create {@link PluginDescriptionFile}
      * @throws InvalidDescriptionException If the <code>plugin.yml</code> of the jar file is invalid.
      */
-    protected PluginDescriptionFile createPluginDescription(JarFile file, JarEntry config) throws InvalidDescriptionException {
+    protected PluginDescriptionFile createPluginDescription(byte[] descriptor) throws InvalidDescriptionException {
         PluginDescriptionFile descriptionFile;
-        try(InputStream inputStream = file.getInputStream(config)) {
+        try(InputStream inputStream = new ByteArrayInputStream(descriptor)) {
             descriptionFile = new PluginDescriptionFile(inputStream);
         } catch(IOException | YAMLException ex) {
             throw new InvalidDescriptionException(ex);
@@ -480,6 +897,100 @@ public class ReloadSystem implements FastReloadConfig.LoadListener {
         return descriptionFile;
     }
 
+    public FootprintTracker getFootprintTracker() {
+        return footprintTracker;
+    }
+
+    /**
+     * Get the metrics of all reload activity.
+     *
+     * @return The reload metrics
+     */
+    public ReloadMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Get the service that hands plugin state across reloads.
+     *
+     * @return The state handoff service, null if the configuration hasn't been loaded yet
+     */
+    public StateHandoffService getStateHandoff() {
+        return stateHandoff;
+    }
+
+    /**
+     * Get the coordinator of the servers sharing the plugins folder.
+     *
+     * @return The shared scan coordinator, null if the plugins folder isn't shared
+     */
+    public SharedScanCoordinator getSharedScan() {
+        return sharedScan;
+    }
+
+    /**
+     * Get the service that reloads plugins for other plugins, also registered in Bukkit's services manager.
+     *
+     * @return The reload service
+     */
+    public BatchedReloadService getReloadService() {
+        return reloadService;
+    }
+
+    /**
+     * Get the watchdog of reload phases, which also records the worst enable and disable time of every plugin.
+     *
+     * @return The reload watchdog
+     */
+    public ReloadWatchdog getWatchdog() {
+        return watchdog;
+    }
+
+    /**
+     * Get the persistent index of the plugin descriptors in the plugins folder.
+     *
+     * @return The descriptor index
+     */
+    public DescriptorIndex getDescriptorIndex() {
+        return descriptorIndex;
+    }
+
+    /**
+     * Get the compiled reload policies of all plugins.
+     *
+     * @return The reload policies
+     */
+    public ReloadPolicies getPolicies() {
+        return policies;
+    }
+
+    /**
+     * Get the footprint of the latest plugin reload.
+     *
+     * @return The footprint of the latest reload, null if no plugin has been reloaded yet
+     */
+    public FootprintTracker.Generation getLastFootprint() {
+        return lastFootprint;
+    }
+
+    /**
+     * Get the resources that were removed from the latest disabled plugin.
+     *
+     * @return The teardown result of the latest disabled plugin, null if no plugin has been disabled yet
+     */
+    public PluginTeardown.Result getLastTeardown() {
+        return lastTeardown;
+    }
+
+    /**
+     * Get the reload journal.
+     *
+     * @return The reload journal, null if the journal is disabled
+     */
+    public ReloadJournal getJournal() {
+        return journal;
+    }
+
     /**
      * Get an array of all plugin files in the plugins directory.
      *
@@ -488,4 +999,12 @@ public class ReloadSystem implements FastReloadConfig.LoadListener {
     public static File[] getPluginFiles() {
         return PLUGINS_DIRECTORY.listFiles(file -> file.isFile() && file.getName().endsWith(".jar"));
     }
+
+    /**
+     * A reload operation requested by a <code>CommandSender</code>.
+     */
+    @FunctionalInterface
+    protected interface Reloader {
+        void reload(CommandSender sender, String[] args, ReloadTrigger trigger);
+    }
 }
@@ -0,0 +1,56 @@
+package com.mikedeejay2.fastreload.system;
+
+/**
+ * The source that triggered a reload.
+ * <p>
+ * The trigger names are also listed in the description of the JFR phase events, a new trigger has to be added there
+ * as well.
+ *
+ * @author Mikedeejay2
+ */
+public enum ReloadTrigger {
+    /**
+     * A reload command such as <code>/reload</code> or <code>/rl</code>
+     */
+    COMMAND,
+    /**
+     * A reload message typed into chat
+     */
+    CHAT,
+    /**
+     * The automatic reloader detected a changed or new plugin jar
+     */
+    AUTO,
+    /**
+     * The data folder watcher fell back to a full reload after a configuration change
+     */
+    CONFIG,
+    /**
+     * A build tool requested the reload through the reload socket
+     */
+    SOCKET,
+    /**
+     * A build artifact from a configured deploy source was moved into the plugins folder
+     */
+    DEPLOY,
+    /**
+     * A soak test reloading the same plugin repeatedly, see {@link SoakTest}
+     */
+    SOAK,
+    /**
+     * Another plugin requested the reload through the {@link com.mikedeejay2.fastreload.api.ReloadService}
+     */
+    API;
+
+    private static final ReloadTrigger[] VALUES = values();
+
+    /**
+     * Get a trigger by its ordinal without allocating a new values array.
+     *
+     * @param ordinal The ordinal of the trigger
+     * @return The trigger, null if the ordinal is out of range
+     */
+    public static ReloadTrigger fromOrdinal(int ordinal) {
+        return ordinal >= 0 && ordinal < VALUES.length ? VALUES[ordinal] : null;
+    }
+}
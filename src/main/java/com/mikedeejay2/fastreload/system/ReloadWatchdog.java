@@ -0,0 +1,222 @@
+package com.mikedeejay2.fastreload.system;
+
+import com.mikedeejay2.fastreload.FastReload;
+import com.mikedeejay2.fastreload.api.ReloadPhase;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the phases of reloads for plugins that block the main thread, for example with a DNS lookup or a synchronous
+ * database connection in <code>onEnable</code>.
+ * <p>
+ * When a phase runs longer than the configured deadline, a watchdog thread logs the stack trace of the main thread
+ * together with the plugin and phase, and repeats that at the configured interval until the phase completes. The
+ * worst enable and disable time of every plugin is recorded whether or not the watchdog thread is running.
+ *
+ * @author Mikedeejay2
+ */
+public class ReloadWatchdog {
+    private static final int ENABLE = 0;
+    private static final int DISABLE = 1;
+
+    private final FastReload plugin;
+    private final Thread mainThread;
+    private final Object lock = new Object();
+    /**
+     * The worst phase times of every plugin. Key = Plugin name, value = Worst enable and disable time in nanoseconds
+     */
+    private final Map<String, long[]> worstNanos = new ConcurrentHashMap<>();
+    private volatile Thread thread;
+    private volatile long deadlineNanos;
+    private volatile long intervalNanos;
+    /**
+     * The phase that is currently running, guarded by {@link ReloadWatchdog#lock}
+     */
+    private Watch current;
+
+    /**
+     * Construct a new watchdog. Must be called on the main thread.
+     *
+     * @param plugin The <code>FastReload</code> plugin instance
+     */
+    public ReloadWatchdog(FastReload plugin) {
+        this.plugin = plugin;
+        this.mainThread = Thread.currentThread();
+    }
+
+    /**
+     * Start, reconfigure or stop the watchdog thread.
+     *
+     * @param enabled         Whether the watchdog thread should run
+     * @param deadlineSeconds The time a phase may take before the main thread's stack is logged
+     * @param intervalSeconds The time between repeated logs of the same phase
+     */
+    public void configure(boolean enabled, double deadlineSeconds, double intervalSeconds) {
+        this.deadlineNanos = (long) (deadlineSeconds * 1_000_000_000L);
+        this.intervalNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(100), (long) (intervalSeconds * 1_000_000_000L));
+        if(!enabled) {
+            close();
+        } else if(thread == null) {
+            Thread watchdogThread = new Thread(this::run, "FastReload Watchdog");
+            watchdogThread.setDaemon(true);
+            this.thread = watchdogThread;
+            watchdogThread.start();
+        } else {
+            synchronized(lock) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Start watching a phase. Called on the main thread.
+     *
+     * @param pluginName The name of the plugin being reloaded
+     * @param phase      The phase that is starting
+     */
+    void beginPhase(String pluginName, ReloadPhase phase) {
+        if(thread == null) return;
+        synchronized(lock) {
+            current = new Watch(pluginName, phase, System.nanoTime());
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Stop watching a phase and record its time. Called on the main thread.
+     *
+     * @param pluginName The name of the plugin being reloaded
+     * @param phase      The phase that ended
+     * @param nanos      The time that the phase took
+     */
+    void endPhase(String pluginName, ReloadPhase phase, long nanos) {
+        if(phase == ReloadPhase.ENABLE || phase == ReloadPhase.DISABLE) {
+            long[] worst = worstNanos.computeIfAbsent(pluginName, name -> new long[2]);
+            int index = phase == ReloadPhase.ENABLE ? ENABLE : DISABLE;
+            if(nanos > worst[index]) worst[index] = nanos;
+        }
+        if(thread == null) return;
+        Watch watch;
+        synchronized(lock) {
+            watch = current;
+            current = null;
+        }
+        if(watch != null && watch.reports > 0) {
+            plugin.getLogger().warning(String.format("Plugin \"%s\" finished the %s phase of its reload after %d ms",
+                pluginName, phaseName(phase), TimeUnit.NANOSECONDS.toMillis(nanos)));
+        }
+    }
+
+    /**
+     * Stop watching the current phase without recording it, for a reload that ended without finishing its phase.
+     */
+    void clear() {
+        if(thread == null) return;
+        synchronized(lock) {
+            current = null;
+        }
+    }
+
+    private void run() {
+        synchronized(lock) {
+            while(thread == Thread.currentThread()) {
+                try {
+                    Watch watch = current;
+                    if(watch == null) {
+                        lock.wait();
+                        continue;
+                    }
+                    long due = watch.start + deadlineNanos + watch.reports * intervalNanos;
+                    long remaining = due - System.nanoTime();
+                    if(remaining > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                        continue;
+                    }
+                    ++watch.reports;
+                    report(watch);
+                } catch(InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Log the stack trace of the main thread for a phase that is over its deadline.
+     *
+     * @param watch The phase that is over its deadline
+     */
+    private void report(Watch watch) {
+        StringBuilder message = new StringBuilder(String.format(
+            "Plugin \"%s\" has been in the %s phase of its reload for %d ms, the server is not responding. Main thread stack:",
+            watch.pluginName, phaseName(watch.phase), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - watch.start)));
+        for(StackTraceElement element : mainThread.getStackTrace()) {
+            message.append("\n\tat ").append(element);
+        }
+        plugin.getLogger().warning(message.toString());
+    }
+
+    /**
+     * Get the worst enable time of a plugin.
+     *
+     * @param pluginName The name of the plugin
+     * @return The worst enable time in nanoseconds, 0 if the plugin was never enabled by a reload
+     */
+    public long getWorstEnableNanos(String pluginName) {
+        long[] worst = worstNanos.get(pluginName);
+        return worst == null ? 0 : worst[ENABLE];
+    }
+
+    /**
+     * Get the worst disable time of a plugin.
+     *
+     * @param pluginName The name of the plugin
+     * @return The worst disable time in nanoseconds, 0 if the plugin was never disabled by a reload
+     */
+    public long getWorstDisableNanos(String pluginName) {
+        long[] worst = worstNanos.get(pluginName);
+        return worst == null ? 0 : worst[DISABLE];
+    }
+
+    /**
+     * Get the names of all plugins with recorded phase times.
+     *
+     * @return The plugin names
+     */
+    public Iterable<String> getRecordedPlugins() {
+        return Collections.unmodifiableSet(worstNanos.keySet());
+    }
+
+    /**
+     * Stop the watchdog thread. Phase times are still recorded.
+     */
+    public void close() {
+        Thread watchdogThread = thread;
+        if(watchdogThread == null) return;
+        thread = null;
+        synchronized(lock) {
+            current = null;
+            lock.notifyAll();
+        }
+    }
+
+    private static String phaseName(ReloadPhase phase) {
+        return phase.name().toLowerCase();
+    }
+
+    private static final class Watch {
+        private final String pluginName;
+        private final ReloadPhase phase;
+        private final long start;
+        private int reports;
+
+        private Watch(String pluginName, ReloadPhase phase, long start) {
+            this.pluginName = pluginName;
+            this.phase = phase;
+            this.start = start;
+        }
+    }
+}
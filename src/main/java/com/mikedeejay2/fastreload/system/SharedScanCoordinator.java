@@ -0,0 +1,233 @@
+package com.mikedeejay2.fastreload.system;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Coordinates the automatic reloaders of several servers that share their plugin jars through one directory, so that
+ * only one server scans the jars and the others reload as soon as it finds a change.
+ * <p>
+ * The servers elect a leader by taking an exclusive {@link FileLock} on a lock file in the shared directory. The leader
+ * scans its own plugins folder as usual, and also scans the shared directory and publishes a notice for every new or
+ * changed jar in it to a memory mapped ring file in the shared directory. Jars of plugins that the leader doesn't load
+ * itself are published as well. The other servers (followers) only poll the ring for new notices and look the plugins
+ * up in their own plugins folders. If the leader stops, the operating
+ * system releases its lock and the next follower to try the lock takes over.
+ * <p>
+ * Notices file layout (big endian):
+ * <pre>
+ * Header (64 bytes):
+ *   0  int   magic "FRSN"
+ *   4  int   format version
+ *   8  int   slot count
+ *  16  long  sequence number of the latest notice, 0 if none
+ * Slot (128 bytes), notice N is stored in slot N % slot count:
+ *   0  long  sequence number of the notice, written last
+ *   8  long  timestamp in milliseconds
+ *  16  byte  {@link JarChange} ordinal, -1 for a new plugin
+ *  17  byte  length of the plugin name
+ *  18  ...   UTF-8 plugin name
+ * </pre>
+ *
+ * @author Mikedeejay2
+ */
+public class SharedScanCoordinator {
+    public static final String LOCK_FILE_NAME = ".fastreload.lock";
+    public static final String NOTICES_FILE_NAME = ".fastreload-notices";
+
+    private static final int MAGIC = 0x4652534E;
+    private static final int VERSION = 1;
+    private static final int SLOTS = 256;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 128;
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_SLOTS = 8;
+    private static final int HEADER_SEQUENCE = 16;
+    private static final int SLOT_SEQUENCE = 0;
+    private static final int SLOT_TIMESTAMP = 8;
+    private static final int SLOT_CHANGE = 16;
+    private static final int SLOT_NAME_LENGTH = 17;
+    private static final int SLOT_NAME = 18;
+    private static final int MAX_NAME_LENGTH = SLOT_SIZE - SLOT_NAME;
+
+    private final Logger logger;
+    private final File directory;
+    private final FileChannel lockChannel;
+    private final FileChannel noticesChannel;
+    private final MappedByteBuffer notices;
+    private FileLock lock;
+    /**
+     * The sequence number of the latest notice that this server has seen or published
+     */
+    private long lastSeen;
+
+    /**
+     * Construct a new coordinator as a follower
+     *
+     * @param logger    The logger to report taking over the scanning to
+     * @param directory The shared directory of the plugin jars
+     * @throws IOException If the lock or notices file could not be opened
+     */
+    public SharedScanCoordinator(Logger logger, File directory) throws IOException {
+        this.logger = logger;
+        this.directory = directory;
+        this.lockChannel = FileChannel.open(new File(directory, LOCK_FILE_NAME).toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            this.noticesChannel = FileChannel.open(new File(directory, NOTICES_FILE_NAME).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.notices = noticesChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) SLOTS * SLOT_SIZE);
+        } catch(IOException e) {
+            lockChannel.close();
+            throw e;
+        }
+        this.lastSeen = isInitialized() ? notices.getLong(HEADER_SEQUENCE) : 0;
+    }
+
+    /**
+     * Become the leader if no other server is. A server stays leader until it is closed.
+     *
+     * @return Whether this server is the leader
+     */
+    public synchronized boolean tryLead() {
+        if(lock != null && lock.isValid()) return true;
+        try {
+            lock = lockChannel.tryLock();
+        } catch(IOException | OverlappingFileLockException e) {
+            lock = null;
+        }
+        if(lock == null) return false;
+
+        if(!isInitialized()) {
+            notices.putInt(HEADER_VERSION, VERSION);
+            notices.putInt(HEADER_SLOTS, SLOTS);
+            notices.putLong(HEADER_SEQUENCE, 0);
+            notices.putInt(HEADER_MAGIC, MAGIC);
+        }
+        lastSeen = notices.getLong(HEADER_SEQUENCE);
+        logger.info("This server is now scanning the shared plugins directory for all servers sharing it");
+        return true;
+    }
+
+    /**
+     * Publish a notice of a new or changed jar in the shared directory to the followers. Only has an effect on the leader.
+     *
+     * @param pluginName The name of the plugin
+     * @param change     The classification of the change, null if the plugin is new
+     */
+    public synchronized void publish(String pluginName, JarChange change) {
+        if(lock == null || !lock.isValid()) return;
+        long sequence = lastSeen + 1;
+        int slot = slotPosition(sequence);
+        byte[] name = pluginName.getBytes(StandardCharsets.UTF_8);
+        int nameLength = Math.min(name.length, MAX_NAME_LENGTH);
+
+        // Invalidate the slot first so a follower never reads a half written notice
+        notices.putLong(slot + SLOT_SEQUENCE, 0);
+        notices.putLong(slot + SLOT_TIMESTAMP, System.currentTimeMillis());
+        notices.put(slot + SLOT_CHANGE, (byte) (change == null ? -1 : change.ordinal()));
+        notices.put(slot + SLOT_NAME_LENGTH, (byte) nameLength);
+        for(int i = 0; i < nameLength; ++i) {
+            notices.put(slot + SLOT_NAME + i, name[i]);
+        }
+        notices.putLong(slot + SLOT_SEQUENCE, sequence);
+        notices.putLong(HEADER_SEQUENCE, sequence);
+        lastSeen = sequence;
+    }
+
+    /**
+     * Read the notices that the leader published since the last poll. Notices that were overwritten before they could
+     * be read are skipped.
+     *
+     * @return The new notices, oldest first
+     */
+    public synchronized List<Notice> poll() {
+        List<Notice> result = new ArrayList<>();
+        if(!isInitialized()) return result;
+        long latest = notices.getLong(HEADER_SEQUENCE);
+        if(latest < lastSeen) lastSeen = latest; // The ring was recreated
+        for(long sequence = Math.max(lastSeen + 1, latest - SLOTS + 1); sequence <= latest; ++sequence) {
+            int slot = slotPosition(sequence);
+            if(notices.getLong(slot + SLOT_SEQUENCE) != sequence) continue;
+            byte changeOrdinal = notices.get(slot + SLOT_CHANGE);
+            byte[] name = new byte[Math.min(notices.get(slot + SLOT_NAME_LENGTH) & 0xFF, MAX_NAME_LENGTH)];
+            for(int i = 0; i < name.length; ++i) {
+                name[i] = notices.get(slot + SLOT_NAME + i);
+            }
+            // The slot was overwritten while it was being read
+            if(notices.getLong(slot + SLOT_SEQUENCE) != sequence) continue;
+            JarChange change = changeOrdinal < 0 || changeOrdinal >= JarChange.values().length
+                ? null : JarChange.values()[changeOrdinal];
+            result.add(new Notice(new String(name, StandardCharsets.UTF_8), change));
+        }
+        lastSeen = latest;
+        return result;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public synchronized boolean isLeader() {
+        return lock != null && lock.isValid();
+    }
+
+    /**
+     * Give up leadership and close the shared files.
+     */
+    public synchronized void close() {
+        try {
+            if(lock != null) lock.release();
+        } catch(IOException ignored) {}
+        lock = null;
+        try {
+            lockChannel.close();
+            noticesChannel.close();
+        } catch(IOException ignored) {}
+    }
+
+    private boolean isInitialized() {
+        return notices.getInt(HEADER_MAGIC) == MAGIC && notices.getInt(HEADER_VERSION) == VERSION
+            && notices.getInt(HEADER_SLOTS) == SLOTS;
+    }
+
+    private static int slotPosition(long sequence) {
+        return HEADER_SIZE + (int) (sequence % SLOTS) * SLOT_SIZE;
+    }
+
+    /**
+     * A change that the leader found.
+     */
+    public static final class Notice {
+        private final String pluginName;
+        private final JarChange change;
+
+        private Notice(String pluginName, JarChange change) {
+            this.pluginName = pluginName;
+            this.change = change;
+        }
+
+        public String getPluginName() {
+            return pluginName;
+        }
+
+        /**
+         * Get the classification of the change.
+         *
+         * @return The change, null if the plugin is new
+         */
+        public JarChange getChange() {
+            return change;
+        }
+    }
+}
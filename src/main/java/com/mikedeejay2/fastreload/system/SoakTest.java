@@ -0,0 +1,226 @@
+package com.mikedeejay2.fastreload.system;
+
+import com.mikedeejay2.fastreload.FastReload;
+import com.mikedeejay2.fastreload.config.FastReloadConfig;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.logging.Level;
+
+/**
+ * Reloads a plugin over and over, one reload per tick, and measures how reloads degrade over many cycles.
+ * <p>
+ * After every cycle the duration of the reload, the Metaspace usage, the number of loaded classes and the number of
+ * open file descriptors are sampled. With <code>Soak Test Force GC</code> enabled, a garbage collection is requested
+ * before sampling so that class loaders of old generations that can be unloaded are. It is off by default since it
+ * stalls the main thread every tick, so Metaspace and class counts only drop when the JVM collects on its own and their
+ * trends are noisier. When the run ends, the per-cycle trend (least squares slope, excluding the
+ * warmup cycles) of every metric is compared against the configured maximum slopes, and all samples are written to a
+ * CSV file in <code>plugins/FastReload/soak</code>.
+ *
+ * @author Mikedeejay2
+ */
+public class SoakTest implements Runnable {
+    private static final int METRICS = 4;
+    private static final int DURATION = 0;
+    private static final int METASPACE = 1;
+    private static final int CLASSES = 2;
+    private static final int FILE_DESCRIPTORS = 3;
+    private static final String[] METRIC_NAMES = {"duration_ms", "metaspace_kb", "loaded_classes", "open_fds"};
+    private static final String[] METRIC_UNITS = {"ms", "KB", "classes", "fds"};
+
+    private final FastReload plugin;
+    private final ReloadSystem system;
+    private final CommandSender sender;
+    private final String pluginName;
+    private final int cycles;
+    private final int warmup;
+    private final double[] maxSlopes;
+    private final boolean forceGc;
+    private final double[][] samples;
+    private final ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+    private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    private BukkitTask task;
+    private int cycle;
+
+    /**
+     * Construct a new soak test
+     *
+     * @param plugin     The <code>FastReload</code> plugin instance
+     * @param system     The reload system
+     * @param sender     The sender to report progress and results to
+     * @param pluginName The name of the plugin to reload
+     * @param cycles     The number of reload cycles
+     */
+    public SoakTest(FastReload plugin, ReloadSystem system, CommandSender sender, String pluginName, int cycles) {
+        FastReloadConfig config = plugin.config();
+        this.plugin = plugin;
+        this.system = system;
+        this.sender = sender;
+        this.pluginName = pluginName;
+        this.cycles = cycles;
+        this.warmup = Math.min(config.SOAK_WARMUP_CYCLES.get(), cycles / 2);
+        this.maxSlopes = new double[]{
+            config.SOAK_MAX_TIME_SLOPE.get(),
+            config.SOAK_MAX_METASPACE_SLOPE.get(),
+            config.SOAK_MAX_CLASS_SLOPE.get(),
+            config.SOAK_MAX_FD_SLOPE.get()};
+        this.forceGc = config.SOAK_FORCE_GC.get();
+        this.samples = new double[METRICS][cycles];
+    }
+
+    /**
+     * Start running one cycle per tick.
+     */
+    public void start() {
+        sender.sendMessage(ChatColor.YELLOW + String.format("Starting soak test of plugin \"%s\" with %d reloads...", pluginName, cycles));
+        this.task = Bukkit.getScheduler().runTaskTimer(plugin, this, 1, 1);
+    }
+
+    /**
+     * Stop the soak test before all cycles have run and evaluate the cycles that did.
+     */
+    public void stop() {
+        if(isRunning()) finish("stopped");
+    }
+
+    public boolean isRunning() {
+        return task != null && !task.isCancelled();
+    }
+
+    @Override
+    public void run() {
+        Plugin target = Bukkit.getPluginManager().getPlugin(pluginName);
+        if(target == null) {
+            finish(String.format("the plugin was not loaded at cycle %d", cycle + 1));
+            return;
+        }
+        long startTime = System.nanoTime();
+        boolean success = system.reloadPlugin(target, ReloadTrigger.SOAK);
+        long duration = System.nanoTime() - startTime;
+        if(!success) {
+            finish(String.format("the reload failed at cycle %d", cycle + 1));
+            return;
+        }
+
+        if(forceGc) System.gc();
+        samples[DURATION][cycle] = duration / 1_000_000.0;
+        samples[METASPACE][cycle] = system.getFootprintTracker().getMetaspaceUsed() / 1024.0;
+        samples[CLASSES][cycle] = classLoading.getLoadedClassCount();
+        samples[FILE_DESCRIPTORS][cycle] = getOpenFileDescriptors();
+        ++cycle;
+
+        if(cycle == cycles) {
+            finish(null);
+        } else if(cycle % Math.max(1, cycles / 10) == 0) {
+            sender.sendMessage(ChatColor.GRAY + String.format("Soak test: %d/%d reloads, latest %.2f ms, Metaspace %.2f MB",
+                cycle, cycles, samples[DURATION][cycle - 1], samples[METASPACE][cycle - 1] / 1024.0));
+        }
+    }
+
+    /**
+     * End the soak test, evaluate the trends and write the samples.
+     *
+     * @param abortReason The reason that the test ended early, null if all cycles have run
+     */
+    private void finish(String abortReason) {
+        task.cancel();
+        if(abortReason != null) {
+            sender.sendMessage(ChatColor.RED + String.format("Soak test of plugin \"%s\" ended early: %s.", pluginName, abortReason));
+        }
+        writeSamples();
+
+        int start = Math.min(warmup, cycle);
+        if(cycle - start < 3) {
+            sender.sendMessage(ChatColor.RED + String.format("Only %d cycles ran after the warmup, not enough to measure a trend.", cycle - start));
+            return;
+        }
+        boolean passed = abortReason == null;
+        for(int metric = 0; metric < METRICS; ++metric) {
+            if(metric == FILE_DESCRIPTORS && samples[metric][0] < 0) continue;
+            double slope = slope(samples[metric], start, cycle);
+            boolean metricPassed = slope <= maxSlopes[metric];
+            passed &= metricPassed;
+            sender.sendMessage((metricPassed ? ChatColor.GRAY : ChatColor.RED) + String.format(
+                "%s: %.4f %s per reload (max %.4f), first %.2f, last %.2f",
+                METRIC_NAMES[metric], slope, METRIC_UNITS[metric], maxSlopes[metric],
+                samples[metric][start], samples[metric][cycle - 1]));
+        }
+        sender.sendMessage((passed ? ChatColor.GREEN + "Soak test passed" : ChatColor.RED + "Soak test failed") +
+            String.format(" after %d reloads of plugin \"%s\".", cycle, pluginName));
+    }
+
+    /**
+     * Calculate the least squares slope of a range of samples against their cycle number.
+     *
+     * @param values The samples
+     * @param from   The first sample, inclusive
+     * @param to     The last sample, exclusive
+     * @return The slope in units per cycle
+     */
+    static double slope(double[] values, int from, int to) {
+        int count = to - from;
+        double meanX = (from + to - 1) / 2.0;
+        double meanY = 0;
+        for(int i = from; i < to; ++i) {
+            meanY += values[i];
+        }
+        meanY /= count;
+        double covariance = 0;
+        double variance = 0;
+        for(int i = from; i < to; ++i) {
+            double dx = i - meanX;
+            covariance += dx * (values[i] - meanY);
+            variance += dx * dx;
+        }
+        return covariance / variance;
+    }
+
+    /**
+     * Write the samples of all cycles that ran to a CSV file.
+     */
+    private void writeSamples() {
+        File folder = new File(plugin.getDataFolder(), "soak");
+        String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        File file = new File(folder, String.format("%s-%s.csv", pluginName, timestamp));
+        try {
+            Files.createDirectories(folder.toPath());
+            try(PrintWriter out = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+                out.println("cycle," + String.join(",", METRIC_NAMES));
+                for(int i = 0; i < cycle; ++i) {
+                    out.printf(Locale.ROOT, "%d,%.3f,%.1f,%.0f,%.0f%n", i + 1,
+                        samples[DURATION][i], samples[METASPACE][i], samples[CLASSES][i], samples[FILE_DESCRIPTORS][i]);
+                }
+            }
+            sender.sendMessage(ChatColor.GRAY + String.format("Soak test samples written to %s", file.getPath()));
+        } catch(IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not write the soak test samples", e);
+        }
+    }
+
+    /**
+     * Get the number of file descriptors opened by this process.
+     *
+     * @return The number of open file descriptors, -1 if not available on this platform
+     */
+    private long getOpenFileDescriptors() {
+        if(os instanceof com.sun.management.UnixOperatingSystemMXBean) {
+            return ((com.sun.management.UnixOperatingSystemMXBean) os).getOpenFileDescriptorCount();
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,201 @@
+package com.mikedeejay2.fastreload.system;
+
+import com.mikedeejay2.fastreload.FastReload;
+import com.mikedeejay2.fastreload.api.StateHandoff;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.ServicePriority;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Implementation of {@link StateHandoff}, registered in Bukkit's services manager.
+ * <p>
+ * Deposited state is copied into direct <code>ByteBuffers</code>. Buffers are freed as soon as their state is claimed,
+ * replaced or discarded, and a sweep task discards state that hasn't been claimed within the configured timeout.
+ *
+ * @author Mikedeejay2
+ */
+public class StateHandoffService implements StateHandoff {
+    /**
+     * <code>Unsafe.invokeCleaner(ByteBuffer)</code> (Java 9+) for freeing direct buffers immediately, null if
+     * unavailable, in which case buffers are freed by the garbage collector.
+     */
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch(ReflectiveOperationException | RuntimeException ignored) {}
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final FastReload plugin;
+    private final Logger logger;
+    /**
+     * The state that is waiting to be claimed. Key = Plugin name, value = The deposited state
+     */
+    private final Map<String, Deposit> deposits = new ConcurrentHashMap<>();
+    private final AtomicLong totalSize = new AtomicLong();
+    private BukkitTask sweepTask;
+    private volatile long timeoutMillis;
+    private volatile long maxSize;
+
+    /**
+     * Construct a new state handoff service and register it in the services manager
+     *
+     * @param plugin        The <code>FastReload</code> plugin instance
+     * @param timeoutMillis The time in milliseconds after which unclaimed state is discarded
+     * @param maxSize       The maximum number of bytes of state held at once
+     */
+    public StateHandoffService(FastReload plugin, long timeoutMillis, long maxSize) {
+        this(plugin, plugin.getLogger(), timeoutMillis, maxSize);
+        this.sweepTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () -> sweep(System.currentTimeMillis()), 20, 20);
+        plugin.getServer().getServicesManager().register(StateHandoff.class, this, plugin, ServicePriority.Normal);
+    }
+
+    /**
+     * Construct a new state handoff service without registering it or starting its sweep task
+     *
+     * @param plugin        The <code>FastReload</code> plugin instance
+     * @param logger        The logger to report discarded state to
+     * @param timeoutMillis The time in milliseconds after which unclaimed state is discarded
+     * @param maxSize       The maximum number of bytes of state held at once
+     */
+    StateHandoffService(FastReload plugin, Logger logger, long timeoutMillis, long maxSize) {
+        this.plugin = plugin;
+        this.logger = logger;
+        this.timeoutMillis = timeoutMillis;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Update the limits of this service from the configuration.
+     *
+     * @param timeoutMillis The time in milliseconds after which unclaimed state is discarded
+     * @param maxSize       The maximum number of bytes of state held at once
+     */
+    public void setLimits(long timeoutMillis, long maxSize) {
+        this.timeoutMillis = timeoutMillis;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public void deposit(Plugin depositor, byte[] state) {
+        String name = depositor.getName();
+        Deposit previous = deposits.remove(name);
+        if(previous != null) free(previous);
+        if(totalSize.addAndGet(state.length) > maxSize) {
+            totalSize.addAndGet(-state.length);
+            throw new IllegalStateException(String.format(
+                "Depositing %d bytes of state for plugin \"%s\" would exceed the state handoff limit of %d bytes",
+                state.length, name, maxSize));
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(state.length);
+        buffer.put(state).flip();
+        previous = deposits.put(name, new Deposit(buffer, System.currentTimeMillis()));
+        if(previous != null) free(previous);
+    }
+
+    @Override
+    public byte[] claim(Plugin claimer) {
+        Deposit deposit = deposits.remove(claimer.getName());
+        if(deposit == null) return null;
+        byte[] state = new byte[deposit.buffer.remaining()];
+        deposit.buffer.duplicate().get(state);
+        free(deposit);
+        return state;
+    }
+
+    @Override
+    public boolean hasState(Plugin owner) {
+        return deposits.containsKey(owner.getName());
+    }
+
+    @Override
+    public void discard(Plugin owner) {
+        Deposit deposit = deposits.remove(owner.getName());
+        if(deposit != null) free(deposit);
+    }
+
+    /**
+     * Get the number of bytes of state currently held.
+     *
+     * @return The number of bytes held
+     */
+    public long getTotalSize() {
+        return totalSize.get();
+    }
+
+    /**
+     * Discard state that has been waiting longer than the timeout.
+     *
+     * @param now The current time in milliseconds
+     */
+    void sweep(long now) {
+        for(Iterator<Map.Entry<String, Deposit>> i = deposits.entrySet().iterator(); i.hasNext();) {
+            Map.Entry<String, Deposit> entry = i.next();
+            Deposit deposit = entry.getValue();
+            if(now - deposit.time < timeoutMillis) continue;
+            if(!deposits.remove(entry.getKey(), deposit)) continue;
+            free(deposit);
+            logger.info(String.format(
+                "Discarded %d bytes of unclaimed state of plugin \"%s\"", deposit.buffer.capacity(), entry.getKey()));
+        }
+    }
+
+    /**
+     * Stop the sweep task, free all held state and unregister the service.
+     */
+    public void close() {
+        sweepTask.cancel();
+        for(Iterator<Deposit> i = deposits.values().iterator(); i.hasNext();) {
+            Deposit deposit = i.next();
+            i.remove();
+            free(deposit);
+        }
+        plugin.getServer().getServicesManager().unregister(this);
+    }
+
+    /**
+     * Free the buffer of a deposit that has been removed from the deposits.
+     *
+     * @param deposit The removed deposit
+     */
+    private void free(Deposit deposit) {
+        totalSize.addAndGet(-deposit.buffer.capacity());
+        if(INVOKE_CLEANER == null) return;
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, deposit.buffer);
+        } catch(ReflectiveOperationException e) {
+            logger.log(Level.FINE, "Could not free a state handoff buffer", e);
+        }
+    }
+
+    private static final class Deposit {
+        private final ByteBuffer buffer;
+        private final long time;
+
+        private Deposit(ByteBuffer buffer, long time) {
+            this.buffer = buffer;
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.mikedeejay2.fastreload.system;
+
+import com.mikedeejay2.fastreload.FastReload;
+import com.mikedeejay2.fastreload.util.ReflectUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Finds threads that a plugin left running after it was disabled. Such threads keep running stale work and pin the
+ * old generation's class loader, so every reload leaks another copy of the plugin.
+ * <p>
+ * A live thread is attributed to a disabled plugin if any of these is true:
+ * <ul>
+ *     <li>The thread's context class loader is the plugin's class loader</li>
+ *     <li>The thread's class was defined by the plugin's class loader</li>
+ * </ul>
+ * Only attributed threads are interrupted. A thread that is currently executing a class with the name of one of the
+ * plugin's classes is only reported as suspected: stack frames only name their class, and another plugin that shades
+ * the same library without relocating it runs classes of the same names. Classes that the reloaded generation of the
+ * plugin also defines can't be told apart from the old ones at all, so their frames are not used, and threads of the
+ * reloaded generation are never attributed to the old one.
+ * When a thread was started is deliberately not used: server scheduler workers, common pool workers and the threads of
+ * network libraries and other plugins are started lazily while any plugin happens to be enabling, and interrupting
+ * them would break the server.
+ * <p>
+ * Threads are checked a second after the plugin was disabled to give executors that were shut down in
+ * <code>onDisable</code> time to finish. Only accessed from the main thread.
+ *
+ * @author Mikedeejay2
+ */
+public class ThreadLeakDetector {
+    private static final long CHECK_DELAY = 20;
+
+    private final FastReload plugin;
+    private boolean interruptLeaks;
+
+    /**
+     * Construct a new thread leak detector
+     *
+     * @param plugin         A reference to the <code>FastReload</code> plugin
+     * @param interruptLeaks Whether leaked threads should be interrupted
+     */
+    public ThreadLeakDetector(FastReload plugin, boolean interruptLeaks) {
+        this.plugin = plugin;
+        this.interruptLeaks = interruptLeaks;
+    }
+
+    public void setInterruptLeaks(boolean interruptLeaks) {
+        this.interruptLeaks = interruptLeaks;
+    }
+
+    /**
+     * Schedule a check for threads that a plugin left running after it was disabled. Leaks are logged and, if
+     * configured, interrupted.
+     *
+     * @param oldPlugin The plugin that was disabled
+     */
+    public void afterDisable(Plugin oldPlugin) {
+        String pluginName = oldPlugin.getName();
+        ClassLoader loader = oldPlugin.getClass().getClassLoader();
+        Set<String> classNames = getDefinedClassNames(loader);
+        Bukkit.getScheduler().runTaskLater(plugin, () -> check(pluginName, loader, classNames), CHECK_DELAY);
+    }
+
+    private void check(String pluginName, ClassLoader loader, Set<String> classNames) {
+        Plugin current = Bukkit.getPluginManager().getPlugin(pluginName);
+        // The class loader of the reloaded generation, null if the plugin wasn't loaded again
+        ClassLoader currentLoader = current == null || current.getClass().getClassLoader() == loader
+            ? null : current.getClass().getClassLoader();
+        Set<String> oldClassNames = classNames;
+        if(currentLoader != null) {
+            oldClassNames = new HashSet<>(classNames);
+            oldClassNames.removeAll(getDefinedClassNames(currentLoader));
+        }
+        List<Thread> leaked = new ArrayList<>();
+        List<Thread> suspected = new ArrayList<>();
+        for(Map.Entry<Thread, StackTraceElement[]> entry : Thread.getAllStackTraces().entrySet()) {
+            Thread thread = entry.getKey();
+            if(thread == Thread.currentThread() || !thread.isAlive()) continue;
+            if(currentLoader != null && thread.getContextClassLoader() == currentLoader) continue;
+            switch(attribute(thread, entry.getValue(), loader, oldClassNames)) {
+                case LOADER:
+                    leaked.add(thread);
+                    break;
+                case STACK:
+                    suspected.add(thread);
+                    break;
+            }
+        }
+
+        if(!suspected.isEmpty()) {
+            plugin.getLogger().warning(String.format("%d threads are still running classes named like classes of plugin \"%s\" after it was disabled, they may have been left by it or belong to another plugin shading the same classes: %s",
+                suspected.size(), pluginName, formatThreads(suspected)));
+        }
+        if(leaked.isEmpty()) return;
+        plugin.getLogger().warning(String.format("Plugin \"%s\" left %d threads running after it was disabled: %s",
+            pluginName, leaked.size(), formatThreads(leaked)));
+        if(!interruptLeaks) return;
+        leaked.forEach(Thread::interrupt);
+        plugin.getLogger().warning(String.format("Interrupted %d leaked threads of plugin \"%s\"", leaked.size(), pluginName));
+    }
+
+    private static String formatThreads(List<Thread> threads) {
+        return threads.stream()
+            .map(thread -> String.format("\"%s\" (%s)", thread.getName(), thread.getState()))
+            .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Attribute a thread to the class loader of a disabled plugin.
+     *
+     * @param thread     The thread
+     * @param stackTrace The current stack trace of the thread
+     * @param loader     The class loader of the disabled plugin
+     * @param classNames The names of the classes that only the disabled plugin's class loader defined
+     * @return How the thread is attributed to the class loader
+     */
+    static Attribution attribute(Thread thread, StackTraceElement[] stackTrace, ClassLoader loader, Set<String> classNames) {
+        if(thread.getContextClassLoader() == loader) return Attribution.LOADER;
+        if(thread.getClass().getClassLoader() == loader) return Attribution.LOADER;
+        for(StackTraceElement element : stackTrace) {
+            if(classNames.contains(element.getClassName())) return Attribution.STACK;
+        }
+        return Attribution.NONE;
+    }
+
+    /**
+     * Get the names of all classes that a plugin's class loader has defined. This reads the <code>classes</code> map
+     * of the <code>PluginClassLoader</code>.
+     *
+     * @param loader The plugin's class loader
+     * @return The class names, empty if they could not be determined
+     */
+    private static Set<String> getDefinedClassNames(ClassLoader loader) {
+        try {
+            Map<?, ?> classes = ReflectUtil.getField("classes", loader, loader.getClass(), Map.class);
+            Set<String> names = new HashSet<>();
+            for(Object name : classes.keySet()) {
+                names.add(String.valueOf(name));
+            }
+            return names;
+        } catch(NoSuchFieldException | IllegalAccessException | ClassCastException e) {
+            return Collections.emptySet();
+        }
+    }
+
+    /**
+     * How a thread is attributed to the class loader of a disabled plugin.
+     */
+    enum Attribution {
+        /**
+         * The thread isn't attributed to the class loader
+         */
+        NONE,
+        /**
+         * The thread's context class loader or class belongs to the class loader
+         */
+        LOADER,
+        /**
+         * The thread is running a class with the name of a class of the class loader, which may belong to another class
+         * loader
+         */
+        STACK
+    }
+}
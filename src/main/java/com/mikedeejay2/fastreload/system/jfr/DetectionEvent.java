@@ -0,0 +1,22 @@
+package com.mikedeejay2.fastreload.system.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * JFR event for one scan of the plugins folder by the automatic reloader.
+ *
+ * @author Mikedeejay2
+ */
+@Name("com.mikedeejay2.fastreload.Detection")
+@Label("Plugin Change Detection")
+@Description("Scan of the plugins folder for new or changed plugin jars")
+@Category({"FastReload", "Auto Reload"})
+@StackTrace(false)
+final class DetectionEvent extends Event {
+    @Label("Jars Scanned")
+    int jarsScanned;
+
+    @Label("Changes")
+    @Description("Number of new or changed plugins found")
+    int changes;
+}
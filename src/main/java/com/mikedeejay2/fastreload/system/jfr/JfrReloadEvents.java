@@ -0,0 +1,60 @@
+package com.mikedeejay2.fastreload.system.jfr;
+
+import com.mikedeejay2.fastreload.api.ReloadPhase;
+import com.mikedeejay2.fastreload.system.ReloadTrigger;
+
+/**
+ * JFR implementation of {@link ReloadEvents}. Only loaded when <code>jdk.jfr</code> is available.
+ *
+ * @author Mikedeejay2
+ */
+final class JfrReloadEvents extends ReloadEvents {
+    @Override
+    public Object beginPhase(ReloadPhase phase) {
+        ReloadPhaseEvent event;
+        switch(phase) {
+            case HOT_SWAP: event = new ReloadPhaseEvent.HotSwap(); break;
+            case DISABLE: event = new ReloadPhaseEvent.Disable(); break;
+            case TEARDOWN: event = new ReloadPhaseEvent.Teardown(); break;
+            case UNREGISTER: event = new ReloadPhaseEvent.Unregister(); break;
+            case LOAD: event = new ReloadPhaseEvent.Load(); break;
+            case ENABLE: event = new ReloadPhaseEvent.Enable(); break;
+            case SYNC_COMMANDS: event = new ReloadPhaseEvent.SyncCommands(); break;
+            default: return null;
+        }
+        if(!event.isEnabled()) return null;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endPhase(Object event, String pluginName, ReloadTrigger trigger, long size) {
+        if(event == null) return;
+        ReloadPhaseEvent phaseEvent = (ReloadPhaseEvent) event;
+        phaseEvent.end();
+        if(!phaseEvent.shouldCommit()) return;
+        phaseEvent.plugin = pluginName;
+        phaseEvent.trigger = trigger == null ? null : trigger.name();
+        phaseEvent.size = size;
+        phaseEvent.commit();
+    }
+
+    @Override
+    public Object beginDetection() {
+        DetectionEvent event = new DetectionEvent();
+        if(!event.isEnabled()) return null;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endDetection(Object event, int jarsScanned, int changes) {
+        if(event == null) return;
+        DetectionEvent detectionEvent = (DetectionEvent) event;
+        detectionEvent.end();
+        if(!detectionEvent.shouldCommit()) return;
+        detectionEvent.jarsScanned = jarsScanned;
+        detectionEvent.changes = changes;
+        detectionEvent.commit();
+    }
+}
@@ -0,0 +1,90 @@
+package com.mikedeejay2.fastreload.system.jfr;
+
+import com.mikedeejay2.fastreload.api.ReloadPhase;
+import com.mikedeejay2.fastreload.system.ReloadTrigger;
+
+/**
+ * Facade for emitting Java Flight Recorder events for FastReload's work. On runtimes without JFR
+ * (<code>jdk.jfr</code>) a no-op implementation is used, so no JFR class is ever loaded there.
+ *
+ * @see JfrReloadEvents
+ * @author Mikedeejay2
+ */
+public abstract class ReloadEvents {
+    private static final ReloadEvents INSTANCE = create();
+
+    /**
+     * Get the active event implementation.
+     *
+     * @return The JFR implementation if JFR is available, otherwise a no-op implementation
+     */
+    public static ReloadEvents get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Begin timing a reload phase.
+     *
+     * @param phase The phase that is starting
+     * @return The started event, to be passed to {@link ReloadEvents#endPhase}. Possibly null.
+     */
+    public abstract Object beginPhase(ReloadPhase phase);
+
+    /**
+     * End and commit a reload phase event.
+     *
+     * @param event      The event returned from {@link ReloadEvents#beginPhase(ReloadPhase)}
+     * @param pluginName The name of the plugin being reloaded
+     * @param trigger    The source of the reload
+     * @param size       The size of the phase's work, the meaning depends on the phase
+     */
+    public abstract void endPhase(Object event, String pluginName, ReloadTrigger trigger, long size);
+
+    /**
+     * Begin timing a scan of the plugins folder by the automatic reloader.
+     *
+     * @return The started event, to be passed to {@link ReloadEvents#endDetection}. Possibly null.
+     */
+    public abstract Object beginDetection();
+
+    /**
+     * End and commit a detection event.
+     *
+     * @param event       The event returned from {@link ReloadEvents#beginDetection()}
+     * @param jarsScanned The number of plugin jars that were scanned
+     * @param changes     The number of new or changed plugins that were found
+     */
+    public abstract void endDetection(Object event, int jarsScanned, int changes);
+
+    private static ReloadEvents create() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            // Loaded by name so that the JFR implementation isn't linked unless JFR exists
+            return (ReloadEvents) Class.forName(ReloadEvents.class.getPackage().getName() + ".JfrReloadEvents")
+                .getDeclaredConstructor().newInstance();
+        } catch(ReflectiveOperationException | LinkageError e) {
+            return new NoOp();
+        }
+    }
+
+    /**
+     * Implementation used when JFR isn't available.
+     */
+    private static final class NoOp extends ReloadEvents {
+        @Override
+        public Object beginPhase(ReloadPhase phase) {
+            return null;
+        }
+
+        @Override
+        public void endPhase(Object event, String pluginName, ReloadTrigger trigger, long size) {}
+
+        @Override
+        public Object beginDetection() {
+            return null;
+        }
+
+        @Override
+        public void endDetection(Object event, int jarsScanned, int changes) {}
+    }
+}
@@ -0,0 +1,60 @@
+package com.mikedeejay2.fastreload.system.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Base JFR event for a single phase of a plugin reload. Each phase has its own event type so that phases can be
+ * enabled, thresholded and viewed separately in a recording.
+ *
+ * @author Mikedeejay2
+ */
+@Category({"FastReload", "Reload"})
+@StackTrace(false)
+abstract class ReloadPhaseEvent extends Event {
+    @Label("Plugin")
+    String plugin;
+
+    // Annotation values must be constants, keep this list in sync with ReloadTrigger
+    @Label("Trigger")
+    @Description("What requested the reload: COMMAND, CHAT, AUTO, CONFIG, SOCKET, DEPLOY, SOAK or API")
+    String trigger;
+
+    @Label("Size")
+    @Description("Amount of work done in the phase, see the event's description for the unit")
+    long size;
+
+    @Name("com.mikedeejay2.fastreload.HotSwap")
+    @Label("Plugin Hot Swap")
+    @Description("Attempt to redefine a plugin's classes in place. Size is the jar size in bytes.")
+    static final class HotSwap extends ReloadPhaseEvent {}
+
+    @Name("com.mikedeejay2.fastreload.Disable")
+    @Label("Plugin Disable")
+    @Description("Disabling a plugin through the plugin manager. Size is unused.")
+    static final class Disable extends ReloadPhaseEvent {}
+
+    @Name("com.mikedeejay2.fastreload.Teardown")
+    @Label("Plugin Teardown")
+    @Description("Removing the tasks, services, channels and recipes a disabled plugin left behind. Size is the number of resources removed.")
+    static final class Teardown extends ReloadPhaseEvent {}
+
+    @Name("com.mikedeejay2.fastreload.Unregister")
+    @Label("Plugin Unregister")
+    @Description("Unregistering a plugin's commands, lookup names and permissions. Size is the number of commands and permissions removed.")
+    static final class Unregister extends ReloadPhaseEvent {}
+
+    @Name("com.mikedeejay2.fastreload.Load")
+    @Label("Plugin Load")
+    @Description("Loading a plugin from its jar. Size is the jar size in bytes.")
+    static final class Load extends ReloadPhaseEvent {}
+
+    @Name("com.mikedeejay2.fastreload.Enable")
+    @Label("Plugin Enable")
+    @Description("Enabling a newly loaded plugin. Size is the number of classes its class loader defined.")
+    static final class Enable extends ReloadPhaseEvent {}
+
+    @Name("com.mikedeejay2.fastreload.SyncCommands")
+    @Label("Sync Commands")
+    @Description("Rebuilding and sending the command tree. Size is the number of known commands.")
+    static final class SyncCommands extends ReloadPhaseEvent {}
+}
@@ -0,0 +1,147 @@
+package com.mikedeejay2.fastreload.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * Utility class to read the "schema" of a class file. The schema of a class is everything that
+ * {@link java.lang.instrument.Instrumentation#redefineClasses(java.lang.instrument.ClassDefinition...)} is not able to
+ * change: access flags, class name, super class, interfaces, and the declarations (not bodies) of all fields and
+ * methods.
+ * <p>
+ * Two class files with the same schema hash only differ in method bodies, constant pool layout and attributes.
+ *
+ * @author Mikedeejay2
+ */
+public final class ClassSchemaReader {
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Read the schema hash of a class file.
+     *
+     * @param classBytes The bytes of the class file
+     * @return A 64 bit hash of the schema of the class
+     * @throws IOException If the class file is malformed
+     */
+    public static long readSchemaHash(byte[] classBytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(classBytes));
+        if(in.readInt() != MAGIC) throw new IOException("Not a class file");
+        in.readUnsignedShort(); // minor version
+        in.readUnsignedShort(); // major version
+
+        ConstantPool pool = readConstantPool(in);
+        long hash = FNV_OFFSET;
+
+        hash = mix(hash, in.readUnsignedShort());                  // access flags
+        hash = mix(hash, pool.className(in.readUnsignedShort()));  // this class
+        hash = mix(hash, pool.className(in.readUnsignedShort()));  // super class
+        int interfaceCount = in.readUnsignedShort();
+        hash = mix(hash, interfaceCount);
+        for(int i = 0; i < interfaceCount; ++i) {
+            hash = mix(hash, pool.className(in.readUnsignedShort()));
+        }
+        // Fields and methods share the same member structure
+        for(int memberType = 0; memberType < 2; ++memberType) {
+            int memberCount = in.readUnsignedShort();
+            hash = mix(hash, memberCount);
+            for(int i = 0; i < memberCount; ++i) {
+                hash = mix(hash, in.readUnsignedShort());            // access flags
+                hash = mix(hash, pool.utf8[in.readUnsignedShort()]); // name
+                hash = mix(hash, pool.utf8[in.readUnsignedShort()]); // descriptor
+                skipAttributes(in);
+            }
+        }
+        return hash;
+    }
+
+    private static ConstantPool readConstantPool(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        String[] utf8 = new String[count];
+        int[] classIndices = new int[count];
+        for(int i = 1; i < count; ++i) {
+            int tag = in.readUnsignedByte();
+            switch(tag) {
+                case 1: // Utf8
+                    utf8[i] = in.readUTF();
+                    break;
+                case 7: // Class
+                    classIndices[i] = in.readUnsignedShort();
+                    break;
+                case 8:  // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    in.skipBytes(2);
+                    break;
+                case 15: // MethodHandle
+                    in.skipBytes(3);
+                    break;
+                case 3:  // Integer
+                case 4:  // Float
+                case 9:  // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    in.skipBytes(4);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    in.skipBytes(8);
+                    ++i; // Longs and doubles take two constant pool slots
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+        return new ConstantPool(utf8, classIndices);
+    }
+
+    private static void skipAttributes(DataInputStream in) throws IOException {
+        int attributeCount = in.readUnsignedShort();
+        for(int i = 0; i < attributeCount; ++i) {
+            in.skipBytes(2);
+            in.skipBytes(in.readInt());
+        }
+    }
+
+    private static long mix(long hash, int value) {
+        for(int i = 0; i < 4; ++i) {
+            hash ^= (value >>> (i * 8)) & 0xFF;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, String value) {
+        for(int i = 0; i < value.length(); ++i) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        // Terminator so that "ab" + "c" doesn't equal "a" + "bc"
+        hash ^= 0xFF;
+        hash *= FNV_PRIME;
+        return hash;
+    }
+
+    /**
+     * The parts of a class file's constant pool that are needed to resolve member and class names.
+     */
+    private static final class ConstantPool {
+        private final String[] utf8;
+        private final int[] classIndices;
+
+        private ConstantPool(String[] utf8, int[] classIndices) {
+            this.utf8 = utf8;
+            this.classIndices = classIndices;
+        }
+
+        private String className(int index) {
+            return index == 0 ? "" : utf8[classIndices[index]];
+        }
+    }
+}
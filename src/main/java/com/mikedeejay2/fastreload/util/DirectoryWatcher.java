@@ -0,0 +1,126 @@
+package com.mikedeejay2.fastreload.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Small wrapper around a {@link WatchService} that watches directories on its own daemon thread and reports every
+ * created, modified or deleted path to a listener together with the owner that the directory was registered for.
+ * <p>
+ * The listener is called on the watcher thread, so it should only record the change and hand it off.
+ *
+ * @param <T> The type of owner that directories are registered for
+ * @author Mikedeejay2
+ */
+public final class DirectoryWatcher<T> implements Closeable {
+    private final WatchService watchService;
+    private final BiConsumer<T, Path> listener;
+    private final Map<WatchKey, Registration<T>> registrations = new ConcurrentHashMap<>();
+    private final Thread thread;
+
+    /**
+     * Construct and start a new directory watcher
+     *
+     * @param threadName The name of the watcher thread
+     * @param listener   The listener that is called with the owner of a directory and the path that changed
+     * @throws IOException If the file system's watch service could not be created
+     */
+    public DirectoryWatcher(String threadName, BiConsumer<T, Path> listener) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.listener = listener;
+        this.thread = new Thread(this::run, threadName);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Register a directory to be watched
+     *
+     * @param directory The directory to watch
+     * @param owner     The owner of the directory, passed to the listener for every change in the directory
+     * @param recursive Whether sub directories (including ones created later) should be watched as well
+     * @throws IOException If the directory could not be registered
+     */
+    public void register(Path directory, T owner, boolean recursive) throws IOException {
+        if(!recursive) {
+            registerSingle(directory, owner, false);
+            return;
+        }
+        try(Stream<Path> directories = Files.walk(directory)) {
+            for(Path subDirectory : (Iterable<Path>) directories.filter(Files::isDirectory)::iterator) {
+                registerSingle(subDirectory, owner, true);
+            }
+        }
+    }
+
+    private void registerSingle(Path directory, T owner, boolean recursive) throws IOException {
+        WatchKey key = directory.register(watchService,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_DELETE);
+        registrations.put(key, new Registration<>(directory, owner, recursive));
+    }
+
+    /**
+     * Check whether a directory is currently being watched. A directory stops being watched when it is deleted.
+     *
+     * @param directory The directory to check
+     * @return True if the directory is registered and its registration is still valid
+     */
+    public boolean isWatching(Path directory) {
+        for(Map.Entry<WatchKey, Registration<T>> entry : registrations.entrySet()) {
+            if(entry.getValue().directory.equals(directory) && entry.getKey().isValid()) return true;
+        }
+        return false;
+    }
+
+    private void run() {
+        while(!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch(InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Registration<T> registration = registrations.get(key);
+            if(registration != null) {
+                for(WatchEvent<?> event : key.pollEvents()) {
+                    if(event.kind() == StandardWatchEventKinds.OVERFLOW) continue;
+                    Path changed = registration.directory.resolve((Path) event.context());
+                    if(registration.recursive && event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                        try {
+                            register(changed, registration.owner, true);
+                        } catch(IOException ignored) {
+                            // The directory was removed again before it could be registered
+                        }
+                    }
+                    listener.accept(registration.owner, changed);
+                }
+            }
+            if(!key.reset()) registrations.remove(key);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        thread.interrupt();
+        watchService.close();
+    }
+
+    private static final class Registration<T> {
+        private final Path directory;
+        private final T owner;
+        private final boolean recursive;
+
+        private Registration(Path directory, T owner, boolean recursive) {
+            this.directory = directory;
+            this.owner = owner;
+            this.recursive = recursive;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.mikedeejay2.fastreload.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads the <code>plugin.yml</code> of a plugin jar without opening it as a {@link java.util.jar.JarFile}. Jars that
+ * only have a <code>paper-plugin.yml</code> are not Bukkit plugins and are treated like jars without a descriptor.
+ * <p>
+ * Only the end of central directory record and the central directory itself are read, in chunks through a reusable
+ * buffer, and entry names are compared as raw bytes without creating any per-entry objects. Only the descriptor entry
+ * is inflated. Opening a <code>JarFile</code> instead builds an index of every entry and reads the manifest, which is
+ * most of the cost of scanning large shaded jars.
+ * <p>
+ * Jars that this reader doesn't handle (ZIP64, data before the archive, unusual compression) are read through
+ * {@link ZipFile} instead. The jar is read with positional reads rather than being memory mapped, since a mapping keeps
+ * the file open until it is garbage collected, which prevents the jar from being replaced on some platforms.
+ *
+ * @author Mikedeejay2
+ */
+public final class PluginDescriptorReader {
+    /**
+     * The name of the descriptor entry
+     */
+    public static final String DESCRIPTOR_NAME = "plugin.yml";
+
+    private static final byte[] DESCRIPTOR_NAME_BYTES = DESCRIPTOR_NAME.getBytes(StandardCharsets.UTF_8);
+    /**
+     * Returned by {@link PluginDescriptorReader#findDescriptor(Window)} for jars without a descriptor
+     */
+    private static final Entry MISSING = new Entry(-1, 0, 0, 0);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_DESCRIPTOR_SIZE = 16 * 1024 * 1024;
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int EOCD_SIZE = 22;
+    private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+    private static final int CEN_SIGNATURE = 0x02014b50;
+    private static final int CEN_SIZE = 46;
+    private static final int LOC_SIGNATURE = 0x04034b50;
+    private static final int LOC_SIZE = 30;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+
+    private static final ThreadLocal<ByteBuffer> BUFFERS =
+        ThreadLocal.withInitial(() -> ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN));
+
+    /**
+     * Read the plugin descriptor of a jar.
+     *
+     * @param jar The plugin jar
+     * @return The contents of <code>plugin.yml</code>, null if the jar has none
+     * @throws IOException If the jar could not be read or is not a valid zip file
+     */
+    public static byte[] readDescriptor(File jar) throws IOException {
+        try(FileChannel channel = FileChannel.open(jar.toPath(), StandardOpenOption.READ)) {
+            Window window = new Window(channel, BUFFERS.get());
+            Entry entry = findDescriptor(window);
+            if(entry == null) return readWithZipFile(jar);
+            if(entry == MISSING) return null;
+            byte[] content = readEntry(window, entry);
+            return content != null ? content : readWithZipFile(jar);
+        }
+    }
+
+    /**
+     * Locate the descriptor entry through the central directory.
+     *
+     * @param window The read window over the jar
+     * @return The descriptor entry, {@link PluginDescriptorReader#MISSING} if the jar has none. Null if the jar has to
+     * be read with {@link ZipFile} instead.
+     */
+    private static Entry findDescriptor(Window window) throws IOException {
+        long eocd = findEndOfCentralDirectory(window);
+        if(eocd < 0) throw new IOException("Not a zip file");
+        window.fill(eocd, EOCD_SIZE);
+        ByteBuffer buffer = window.buffer;
+        int at = window.offset(eocd);
+        int entries = buffer.getShort(at + 10) & 0xFFFF;
+        long directorySize = buffer.getInt(at + 12) & 0xFFFFFFFFL;
+        long directoryOffset = buffer.getInt(at + 16) & 0xFFFFFFFFL;
+        // ZIP64 archives and archives with data in front of them (offsets not matching) aren't handled here
+        if(entries == 0xFFFF || directorySize == 0xFFFFFFFFL || directoryOffset == 0xFFFFFFFFL) return null;
+        if(directoryOffset + directorySize != eocd) return null;
+
+        long position = directoryOffset;
+        for(int i = 0; i < entries; ++i) {
+            if(!window.fill(position, CEN_SIZE)) return null;
+            at = window.offset(position);
+            if(buffer.getInt(at) != CEN_SIGNATURE) throw new IOException("Invalid central directory");
+            int nameLength = buffer.getShort(at + 28) & 0xFFFF;
+            int extraLength = buffer.getShort(at + 30) & 0xFFFF;
+            int commentLength = buffer.getShort(at + 32) & 0xFFFF;
+            int match = matchDescriptorName(window, position, nameLength);
+            if(match < 0) return null;
+            if(match > 0) {
+                at = window.offset(position);
+                return new Entry(
+                    buffer.getShort(at + 10) & 0xFFFF,
+                    buffer.getInt(at + 20) & 0xFFFFFFFFL,
+                    buffer.getInt(at + 24) & 0xFFFFFFFFL,
+                    buffer.getInt(at + 42) & 0xFFFFFFFFL);
+            }
+            position += CEN_SIZE + nameLength + extraLength + commentLength;
+        }
+        return MISSING;
+    }
+
+    /**
+     * Compare the name of a central directory entry against the descriptor name without decoding it.
+     *
+     * @param window     The read window over the jar
+     * @param position   The position of the central directory entry
+     * @param nameLength The length of the entry's name
+     * @return 1 if the name matches, 0 if it doesn't, -1 if the name can't be read
+     */
+    private static int matchDescriptorName(Window window, long position, int nameLength) throws IOException {
+        if(DESCRIPTOR_NAME_BYTES.length != nameLength) return 0;
+        if(!window.fill(position, CEN_SIZE + nameLength)) return -1;
+        int at = window.offset(position) + CEN_SIZE;
+        for(int i = 0; i < DESCRIPTOR_NAME_BYTES.length; ++i) {
+            if(window.buffer.get(at + i) != DESCRIPTOR_NAME_BYTES[i]) return 0;
+        }
+        return 1;
+    }
+
+    /**
+     * Find the end of central directory record by searching backwards from the end of the file.
+     *
+     * @param window The read window over the jar
+     * @return The position of the record, -1 if the file has none
+     */
+    private static long findEndOfCentralDirectory(Window window) throws IOException {
+        long size = window.channel.size();
+        if(size < EOCD_SIZE) return -1;
+        // Fast path: no archive comment
+        long last = size - EOCD_SIZE;
+        if(window.fill(last, EOCD_SIZE) && window.buffer.getInt(window.offset(last)) == EOCD_SIGNATURE) return last;
+
+        long searchStart = Math.max(0, size - EOCD_SIZE - MAX_COMMENT_LENGTH);
+        int length = (int) (size - searchStart);
+        ByteBuffer tail = length <= window.buffer.capacity()
+            ? window.buffer
+            : ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        Window tailWindow = tail == window.buffer ? window : new Window(window.channel, tail);
+        if(!tailWindow.fill(searchStart, length)) return -1;
+        int base = tailWindow.offset(searchStart);
+        for(int i = length - EOCD_SIZE; i >= 0; --i) {
+            if(tail.getInt(base + i) != EOCD_SIGNATURE) continue;
+            int commentLength = tail.getShort(base + i + 20) & 0xFFFF;
+            if(i + EOCD_SIZE + commentLength == length) return searchStart + i;
+        }
+        return -1;
+    }
+
+    /**
+     * Read and inflate a single entry.
+     *
+     * @param window The read window over the jar
+     * @param entry  The entry to read
+     * @return The contents of the entry, null if the entry has to be read with {@link ZipFile} instead
+     */
+    private static byte[] readEntry(Window window, Entry entry) throws IOException {
+        if(entry.compressedSize > MAX_DESCRIPTOR_SIZE || entry.size > MAX_DESCRIPTOR_SIZE) return null;
+        if(entry.method != METHOD_STORED && entry.method != METHOD_DEFLATED) return null;
+        if(!window.fill(entry.localOffset, LOC_SIZE)) return null;
+        int at = window.offset(entry.localOffset);
+        if(window.buffer.getInt(at) != LOC_SIGNATURE) throw new IOException("Invalid local file header");
+        long dataOffset = entry.localOffset + LOC_SIZE
+            + (window.buffer.getShort(at + 26) & 0xFFFF)
+            + (window.buffer.getShort(at + 28) & 0xFFFF);
+
+        ByteBuffer compressed = ByteBuffer.allocate((int) entry.compressedSize);
+        readFully(window.channel, compressed, dataOffset);
+        if(entry.method == METHOD_STORED) return compressed.array();
+
+        byte[] content = new byte[(int) entry.size];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed.array());
+            int inflated = 0;
+            while(inflated < content.length && !inflater.finished()) {
+                int count = inflater.inflate(content, inflated, content.length - inflated);
+                if(count == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                inflated += count;
+            }
+            if(inflated != content.length) throw new IOException("Truncated descriptor entry");
+        } catch(DataFormatException e) {
+            throw new IOException("Invalid descriptor entry", e);
+        } finally {
+            inflater.end();
+        }
+        return content;
+    }
+
+    /**
+     * Read the descriptor through {@link ZipFile}, for archives that this reader doesn't handle.
+     *
+     * @param jar The plugin jar
+     * @return The contents of the descriptor, null if the jar has none
+     */
+    private static byte[] readWithZipFile(File jar) throws IOException {
+        try(ZipFile zipFile = new ZipFile(jar)) {
+            ZipEntry entry = zipFile.getEntry(DESCRIPTOR_NAME);
+            if(entry == null) return null;
+            try(InputStream in = zipFile.getInputStream(entry)) {
+                return readAll(in);
+            }
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        byte[] content = new byte[4096];
+        int length = 0;
+        for(int count; (count = in.read(content, length, content.length - length)) != -1;) {
+            length += count;
+            if(length == content.length) content = Arrays.copyOf(content, content.length * 2);
+        }
+        return Arrays.copyOf(content, length);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            int count = channel.read(buffer, position + buffer.position());
+            if(count < 0) throw new IOException("Unexpected end of file");
+        }
+    }
+
+    /**
+     * A region of the jar that is currently held in the read buffer.
+     */
+    private static final class Window {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private long start = -1;
+        private int length;
+
+        private Window(FileChannel channel, ByteBuffer buffer) {
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Make sure that a region of the file is held in the buffer, reading from the region's start if it isn't.
+         *
+         * @param position The start of the region
+         * @param size     The size of the region
+         * @return Whether the region is now held in the buffer. False if the region is larger than the buffer or
+         * extends past the end of the file.
+         */
+        private boolean fill(long position, int size) throws IOException {
+            if(start >= 0 && position >= start && position + size <= start + length) return true;
+            if(size > buffer.capacity()) return false;
+            long remaining = channel.size() - position;
+            if(remaining < size) return false;
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), remaining));
+            readFully(channel, buffer, position);
+            start = position;
+            length = buffer.limit();
+            return true;
+        }
+
+        /**
+         * Get the buffer index of a file position that is held in the buffer.
+         *
+         * @param position The file position
+         * @return The index in the buffer
+         */
+        private int offset(long position) {
+            return (int) (position - start);
+        }
+    }
+
+    /**
+     * The location and sizes of a central directory entry.
+     */
+    private static final class Entry {
+        private final int method;
+        private final long compressedSize;
+        private final long size;
+        private final long localOffset;
+
+        private Entry(int method, long compressedSize, long size, long localOffset) {
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localOffset = localOffset;
+        }
+    }
+}
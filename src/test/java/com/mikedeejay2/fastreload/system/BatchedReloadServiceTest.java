@@ -0,0 +1,140 @@
+package com.mikedeejay2.fastreload.system;
+
+import com.mikedeejay2.fastreload.api.ReloadOptions;
+import com.mikedeejay2.fastreload.api.ReloadPhase;
+import com.mikedeejay2.fastreload.api.ReloadResult;
+import org.bukkit.plugin.Plugin;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests how a {@link BatchedReloadService.Batch} merges the plugins of several requests and maps the results of the
+ * reloaded plugins back to every request.
+ *
+ * @author Mikedeejay2
+ */
+public class BatchedReloadServiceTest {
+    private final Plugin self = plugin("FastReload");
+    /**
+     * The loaded plugins. Key = Lowercase plugin name or provided name, value = Plugin
+     */
+    private final Map<String, Plugin> loaded = new HashMap<>();
+    private final Set<String> pluginsFolder = new HashSet<>();
+    /**
+     * The plugins that depend on each plugin. Key = Plugin, value = The plugin and its dependents
+     */
+    private final Map<Plugin, List<Plugin>> dependents = new HashMap<>();
+    private final BatchedReloadService.Batch batch = new BatchedReloadService.Batch(self,
+        pluginName -> loaded.get(pluginName.toLowerCase(Locale.ROOT)),
+        pluginsFolder::contains,
+        thePlugin -> dependents.getOrDefault(thePlugin, Collections.singletonList(thePlugin)));
+
+    private static Plugin plugin(String name) {
+        return (Plugin) Proxy.newProxyInstance(Plugin.class.getClassLoader(), new Class<?>[]{Plugin.class},
+            (proxy, method, args) -> {
+                switch(method.getName()) {
+                    case "getName":
+                        return name;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return null;
+                }
+            });
+    }
+
+    private Plugin load(String name) {
+        Plugin thePlugin = plugin(name);
+        loaded.put(name.toLowerCase(Locale.ROOT), thePlugin);
+        return thePlugin;
+    }
+
+    private BatchedReloadService.Request request(ReloadOptions options, String... pluginNames) {
+        BatchedReloadService.Request request = new BatchedReloadService.Request(Arrays.asList(pluginNames), options);
+        batch.add(request);
+        return request;
+    }
+
+    private static ReloadResult.PluginResult success(String pluginName) {
+        return new BatchedReloadResult.BatchedPluginResult(pluginName, true, null, new long[ReloadPhase.VALUES.length], 0, 0);
+    }
+
+    private void complete(BatchedReloadService.Request... requests) {
+        for(BatchedReloadService.Request request : requests) {
+            batch.complete(request, 0, 0, 0);
+        }
+    }
+
+    private static List<String> names(BatchedReloadService.Request request) {
+        List<String> names = new ArrayList<>();
+        for(ReloadResult.PluginResult result : request.future.join().getPlugins()) {
+            names.add(result.getName() + (result.isSuccess() ? "" : " failed"));
+        }
+        return names;
+    }
+
+    @Test
+    public void pluginsOfSeveralRequestsAreReloadedOnce() {
+        load("First");
+        load("Second");
+        BatchedReloadService.Request firstRequest = request(ReloadOptions.defaults(), "First", "Second");
+        BatchedReloadService.Request secondRequest = request(ReloadOptions.defaults(), "second", "FIRST", "First");
+        assertEquals(Arrays.asList("First", "Second"), batch.getPluginNames());
+
+        batch.putResult("First", success("First"));
+        batch.putResult("Second", success("Second"));
+        complete(firstRequest, secondRequest);
+        assertEquals(Arrays.asList("First", "Second"), names(firstRequest));
+        // Every request gets the results of its own plugins once, in its own order
+        assertEquals(Arrays.asList("Second", "First"), names(secondRequest));
+    }
+
+    @Test
+    public void providedNamesMapToTheLoadedPlugin() {
+        Plugin thePlugin = load("Economy");
+        loaded.put("vault", thePlugin);
+        BatchedReloadService.Request request = request(ReloadOptions.defaults(), "Vault", "Economy");
+        assertEquals(Collections.singletonList("Economy"), batch.getPluginNames());
+        batch.putResult("Economy", success("Economy"));
+        complete(request);
+        assertEquals(Collections.singletonList("Economy"), names(request));
+    }
+
+    @Test
+    public void unreloadablePluginsFailImmediately() {
+        loaded.put("fastreload", self);
+        pluginsFolder.add("New");
+        BatchedReloadService.Request request = request(ReloadOptions.defaults(), "FastReload", "Missing", "New");
+        assertEquals(Collections.singletonList("New"), batch.getPluginNames());
+
+        batch.putResult("New", success("New"));
+        complete(request);
+        assertEquals(Arrays.asList("FastReload failed", "Missing failed", "New"), names(request));
+        List<ReloadResult.PluginResult> results = request.future.join().getPlugins();
+        assertEquals("FastReload can't reload itself", results.get(0).getFailureReason());
+        assertEquals("No plugin with this name is loaded or in the plugins folder", results.get(1).getFailureReason());
+    }
+
+    @Test
+    public void cascadeAddsDependentsExceptItself() {
+        Plugin library = load("Library");
+        Plugin addon = load("Addon");
+        dependents.put(library, Arrays.asList(library, addon, self));
+        BatchedReloadService.Request cascading = request(ReloadOptions.defaults().withCascadeDependents(true), "Library");
+        BatchedReloadService.Request single = request(ReloadOptions.defaults(), "Addon");
+        assertEquals(Arrays.asList("Library", "Addon"), batch.getPluginNames());
+
+        batch.putResult("Library", success("Library"));
+        complete(cascading, single);
+        // A plugin without a result wasn't reloaded
+        assertEquals(Arrays.asList("Library", "addon failed"), names(cascading));
+        assertEquals(Collections.singletonList("addon failed"), names(single));
+        assertEquals("The plugin was not reloaded", single.future.join().getPlugins().get(0).getFailureReason());
+    }
+}
@@ -0,0 +1,80 @@
+package com.mikedeejay2.fastreload.system;
+
+import org.bukkit.plugin.InvalidDescriptionException;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the dependency order that {@link BulkReload} loads and enables plugins in.
+ *
+ * @author Mikedeejay2
+ */
+public class BulkReloadTest {
+    /**
+     * Descriptions of the plugins being sorted. Key = Plugin name, value = Description
+     */
+    private final Map<String, PluginDescriptionFile> descriptions = new HashMap<>();
+
+    private void plugin(String name, String extra) throws InvalidDescriptionException {
+        String yaml = "name: " + name + "\nversion: 1.0\nmain: test." + name + "\n" + extra;
+        descriptions.put(name, new PluginDescriptionFile(new ByteArrayInputStream(yaml.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private List<String> sort(String... names) {
+        return BulkReload.sortByDependencies(Arrays.asList(names), descriptions::get);
+    }
+
+    @Test
+    public void keepsTheOrderOfIndependentPlugins() throws InvalidDescriptionException {
+        plugin("A", "");
+        plugin("B", "");
+        plugin("C", "");
+        assertEquals(Arrays.asList("C", "A", "B"), sort("C", "A", "B"));
+    }
+
+    @Test
+    public void placesDependenciesFirst() throws InvalidDescriptionException {
+        plugin("Core", "");
+        plugin("Addon", "depend: [Core]\n");
+        plugin("Extension", "depend: [Addon]\nsoftdepend: [Core]\n");
+        assertEquals(Arrays.asList("Core", "Addon", "Extension"), sort("Extension", "Addon", "Core"));
+    }
+
+    @Test
+    public void placesSoftDependenciesAndProvidersFirst() throws InvalidDescriptionException {
+        plugin("Economy", "provides: [Vault]\n");
+        plugin("Shop", "softdepend: [Vault, Missing]\n");
+        assertEquals(Arrays.asList("Economy", "Shop"), sort("Shop", "Economy"));
+    }
+
+    @Test
+    public void placesLoadBeforeFirst() throws InvalidDescriptionException {
+        plugin("Late", "");
+        plugin("Early", "loadbefore: [Late]\n");
+        assertEquals(Arrays.asList("Early", "Late"), sort("Late", "Early"));
+    }
+
+    @Test
+    public void breaksCyclesInOriginalOrder() throws InvalidDescriptionException {
+        plugin("First", "depend: [Second]\n");
+        plugin("Second", "depend: [First]\n");
+        plugin("Dependent", "depend: [First]\n");
+        assertEquals(Arrays.asList("First", "Second", "Dependent"), sort("First", "Second", "Dependent"));
+        assertEquals(Arrays.asList("Second", "First", "Dependent"), sort("Second", "First", "Dependent"));
+    }
+
+    @Test
+    public void keepsPluginsWithoutDescription() throws InvalidDescriptionException {
+        plugin("Core", "");
+        plugin("Addon", "depend: [Core]\n");
+        List<String> sorted = sort("Addon", "Unknown", "Core");
+        assertEquals(new HashSet<>(Arrays.asList("Addon", "Unknown", "Core")), new HashSet<>(sorted));
+        assertTrue(sorted.indexOf("Core") < sorted.indexOf("Addon"));
+    }
+}
@@ -0,0 +1,150 @@
+package com.mikedeejay2.fastreload.system;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerCommandSendEvent;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests which players the {@link CommandSyncBatcher} sends the command tree to and how it spreads them over ticks.
+ * Every call of {@link CommandSyncBatcher#sendBatch()} stands for one tick.
+ *
+ * @author Mikedeejay2
+ */
+public class CommandSyncBatcherTest {
+    private final Map<String, Command> knownCommands = new HashMap<>();
+    private final CommandSyncBatcher batcher = new CommandSyncBatcher(null, knownCommands, 2);
+    /**
+     * The number of times that every player was sent the tree. Key = Player name, value = Number of sends
+     */
+    private final Map<String, Integer> sends = new HashMap<>();
+    /**
+     * The permissions of every player. Key = Player name, value = Permissions
+     */
+    private final Map<String, Set<String>> permissions = new HashMap<>();
+
+    private Player player(String name) {
+        UUID uuid = UUID.nameUUIDFromBytes(name.getBytes());
+        sends.put(name, 0);
+        permissions.put(name, new HashSet<>());
+        Player[] self = new Player[1];
+        self[0] = (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[]{Player.class},
+            (proxy, method, args) -> {
+                switch(method.getName()) {
+                    case "getName":
+                        return name;
+                    case "getUniqueId":
+                        return uuid;
+                    case "isOnline":
+                        return true;
+                    case "hasPermission":
+                        return permissions.get(name).contains(String.valueOf(args[0]));
+                    case "updateCommands":
+                        sends.merge(name, 1, Integer::sum);
+                        // The server fires the event for every tree that it sends
+                        batcher.commandSendEvent(new PlayerCommandSendEvent(self[0], new ArrayList<>(knownCommands.keySet())));
+                        return null;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return null;
+                }
+            });
+        return self[0];
+    }
+
+    private static Command command(String name, String permission) {
+        Command command = new Command(name) {
+            @Override
+            public boolean execute(CommandSender sender, String commandLabel, String[] args) {
+                return true;
+            }
+        };
+        command.setPermission(permission);
+        return command;
+    }
+
+    private void sync(Player... players) {
+        batcher.enqueue(Arrays.asList(players));
+        for(int tick = 0; tick < players.length; ++tick) {
+            batcher.sendBatch();
+        }
+    }
+
+    @Test
+    public void sendsOneBatchPerTick() {
+        knownCommands.put("spawn", command("spawn", null));
+        Player first = player("First");
+        Player second = player("Second");
+        Player third = player("Third");
+        batcher.enqueue(Arrays.asList(first, second, third));
+        batcher.sendBatch();
+        assertEquals(1, (int) sends.get("First"));
+        assertEquals(1, (int) sends.get("Second"));
+        assertEquals(0, (int) sends.get("Third"));
+        batcher.sendBatch();
+        assertEquals(1, (int) sends.get("Third"));
+    }
+
+    @Test
+    public void skipsPlayersWhoseCommandsDidNotChange() {
+        knownCommands.put("spawn", command("spawn", null));
+        knownCommands.put("admin", command("admin", "test.admin"));
+        Player player = player("Player");
+        Player admin = player("Admin");
+        permissions.get("Admin").add("test.admin");
+        sync(player, admin);
+        sync(player, admin);
+        assertEquals(1, (int) sends.get("Player"));
+        assertEquals(1, (int) sends.get("Admin"));
+
+        // Only players who can see the new command are sent the tree again
+        knownCommands.put("ban", command("ban", "test.admin"));
+        sync(player, admin);
+        assertEquals(1, (int) sends.get("Player"));
+        assertEquals(2, (int) sends.get("Admin"));
+    }
+
+    @Test
+    public void sendsReregisteredCommandsWithTheSameLabels() {
+        knownCommands.put("spawn", command("spawn", null));
+        Player player = player("Player");
+        sync(player);
+        // A reloaded plugin registers new command objects under the same labels
+        knownCommands.put("spawn", command("spawn", null));
+        sync(player);
+        assertEquals(2, (int) sends.get("Player"));
+    }
+
+    @Test
+    public void forgetsPlayersThatTheServerSentATree() {
+        knownCommands.put("spawn", command("spawn", null));
+        Player player = player("Player");
+        sync(player);
+        // The server sent the player a tree by itself, for example after a permission change
+        batcher.commandSendEvent(new PlayerCommandSendEvent(player, Collections.singletonList("spawn")));
+        sync(player);
+        assertEquals(2, (int) sends.get("Player"));
+        sync(player);
+        assertEquals(2, (int) sends.get("Player"));
+    }
+
+    @Test
+    public void clampsTheBatchSize() {
+        batcher.setBatchSize(0);
+        Player first = player("First");
+        Player second = player("Second");
+        batcher.enqueue(Arrays.asList(first, second));
+        batcher.sendBatch();
+        assertEquals(1, (int) sends.get("First"));
+        assertEquals(0, (int) sends.get("Second"));
+    }
+}
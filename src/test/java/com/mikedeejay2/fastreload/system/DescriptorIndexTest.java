@@ -0,0 +1,123 @@
+package com.mikedeejay2.fastreload.system;
+
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests saving and loading the {@link DescriptorIndex}.
+ *
+ * @author Mikedeejay2
+ */
+public class DescriptorIndexTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File writeJar(String name, String descriptor) throws IOException {
+        File jar = folder.newFile(name);
+        try(ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar.toPath()))) {
+            out.putNextEntry(new ZipEntry("plugin.yml"));
+            out.write(descriptor.getBytes(StandardCharsets.UTF_8));
+            out.putNextEntry(new ZipEntry("test/Main.class"));
+            out.write(name.getBytes(StandardCharsets.UTF_8));
+        }
+        return jar;
+    }
+
+    private static void index(DescriptorIndex index, File jar, String descriptor) throws Exception {
+        PluginDescriptionFile description = new PluginDescriptionFile(new ByteArrayInputStream(descriptor.getBytes(StandardCharsets.UTF_8)));
+        index.update(jar, jar.length(), jar.lastModified(), description);
+    }
+
+    @Test
+    public void roundTripsEntries() throws Exception {
+        String coreDescriptor = "name: Core\nversion: 1.0\nmain: test.Core\nprovides: [CoreAPI, LegacyCore]\n";
+        String addonDescriptor = "name: Addon\nversion: 1.0\nmain: test.Addon\ndepend: [Core]\n";
+        File core = writeJar("Core.jar", coreDescriptor);
+        File addon = writeJar("Addon.jar", addonDescriptor);
+        File indexFile = new File(folder.getRoot(), "data/" + DescriptorIndex.FILE_NAME);
+
+        DescriptorIndex index = new DescriptorIndex(indexFile);
+        index(index, core, coreDescriptor);
+        index(index, addon, addonDescriptor);
+        JarSnapshot snapshot = JarSnapshot.read(core, false);
+        index.updateFingerprints(snapshot);
+        index.save();
+
+        DescriptorIndex loaded = new DescriptorIndex(indexFile);
+        loaded.load();
+        assertEquals(2, loaded.getEntries().size());
+        DescriptorIndex.Entry coreEntry = loaded.get(core, core.length(), core.lastModified());
+        assertNotNull(coreEntry);
+        assertEquals("Core", coreEntry.getName());
+        assertEquals(Arrays.asList("CoreAPI", "LegacyCore"), coreEntry.getProvides());
+        assertEquals(Collections.emptyList(), coreEntry.getDepends());
+        assertTrue(coreEntry.hasFingerprints());
+        assertEquals(snapshot.getClassesFingerprint(), coreEntry.getClassesFingerprint());
+        assertEquals(snapshot.getResourcesFingerprint(), coreEntry.getResourcesFingerprint());
+
+        DescriptorIndex.Entry addonEntry = loaded.get(addon, addon.length(), addon.lastModified());
+        assertNotNull(addonEntry);
+        assertEquals("Addon", addonEntry.getName());
+        assertEquals(Collections.singletonList("Core"), addonEntry.getDepends());
+        assertFalse(addonEntry.hasFingerprints());
+    }
+
+    @Test
+    public void changedJarsAreNotValid() throws Exception {
+        String descriptor = "name: Core\nversion: 1.0\nmain: test.Core\n";
+        File core = writeJar("Core.jar", descriptor);
+        DescriptorIndex index = new DescriptorIndex(new File(folder.getRoot(), DescriptorIndex.FILE_NAME));
+        index(index, core, descriptor);
+        assertNull(index.get(core, core.length() + 1, core.lastModified()));
+        assertNull(index.get(core, core.length(), core.lastModified() + 1000));
+        assertNull(index.get(new File(folder.getRoot(), "Other.jar"), core.length(), core.lastModified()));
+
+        // Fingerprints of another version of the jar are not stored
+        JarSnapshot snapshot = JarSnapshot.read(core, false);
+        index.update(core, core.length() + 1, core.lastModified(), new PluginDescriptionFile(
+            new ByteArrayInputStream(descriptor.getBytes(StandardCharsets.UTF_8))));
+        index.updateFingerprints(snapshot);
+        assertFalse(index.get(core, core.length() + 1, core.lastModified()).hasFingerprints());
+    }
+
+    @Test
+    public void deletedJarsAreNotSaved() throws Exception {
+        String descriptor = "name: Core\nversion: 1.0\nmain: test.Core\n";
+        File core = writeJar("Core.jar", descriptor);
+        File removed = writeJar("Removed.jar", descriptor);
+        File indexFile = new File(folder.getRoot(), DescriptorIndex.FILE_NAME);
+        DescriptorIndex index = new DescriptorIndex(indexFile);
+        index(index, core, descriptor);
+        index(index, removed, descriptor);
+        assertTrue(removed.delete());
+        index.save();
+
+        DescriptorIndex loaded = new DescriptorIndex(indexFile);
+        loaded.load();
+        assertEquals(1, loaded.getEntries().size());
+        assertEquals(core, loaded.getEntries().iterator().next().getFile());
+    }
+
+    @Test
+    public void ignoresIndexOfAnotherFormat() throws Exception {
+        File indexFile = new File(folder.getRoot(), DescriptorIndex.FILE_NAME);
+        Files.write(indexFile.toPath(), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+        DescriptorIndex index = new DescriptorIndex(indexFile);
+        index.load();
+        assertTrue(index.getEntries().isEmpty());
+    }
+}
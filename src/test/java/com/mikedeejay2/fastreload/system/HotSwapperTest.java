@@ -0,0 +1,158 @@
+package com.mikedeejay2.fastreload.system;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeNotNull;
+
+/**
+ * Tests which changes between two compiled generations of a plugin the {@link HotSwapper} considers hot swappable.
+ *
+ * @author Mikedeejay2
+ */
+public class HotSwapperTest {
+    private static final String MAIN_SOURCE =
+        "package swap.fixture;\n" +
+        "public class Main {\n" +
+        "    private int count;\n" +
+        "    public String greet(String name) { count++; return \"Hello \" + name; }\n" +
+        "}\n";
+    private static final String LISTENER_SOURCE =
+        "package swap.fixture;\n" +
+        "public class Listener {\n" +
+        "    void onEvent(Object event) {}\n" +
+        "}\n";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static JavaCompiler compiler;
+
+    @BeforeClass
+    public static void findCompiler() {
+        compiler = ToolProvider.getSystemJavaCompiler();
+        assumeNotNull(compiler);
+    }
+
+    /**
+     * Compile sources into a jar and snapshot it with class schemas.
+     *
+     * @param sources   The sources, key = simple class name, value = source
+     * @param resources The resources, key = entry name, value = content
+     * @return The snapshot of the jar
+     */
+    private JarSnapshot build(Map<String, String> sources, Map<String, String> resources) throws IOException {
+        Path sourceDir = folder.newFolder().toPath();
+        Path classes = folder.newFolder().toPath();
+        List<String> arguments = new ArrayList<>(Arrays.asList("-d", classes.toString()));
+        for(Map.Entry<String, String> source : sources.entrySet()) {
+            Path file = sourceDir.resolve(source.getKey() + ".java");
+            Files.write(file, source.getValue().getBytes(StandardCharsets.UTF_8));
+            arguments.add(file.toString());
+        }
+        assertEquals(0, compiler.run(null, null, null, arguments.toArray(new String[0])));
+
+        File jar = folder.newFile();
+        try(JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar.toPath()));
+            Stream<Path> files = Files.walk(classes)) {
+            for(Map.Entry<String, String> resource : resources.entrySet()) {
+                out.putNextEntry(new JarEntry(resource.getKey()));
+                out.write(resource.getValue().getBytes(StandardCharsets.UTF_8));
+            }
+            for(Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                out.putNextEntry(new JarEntry(classes.relativize(file).toString().replace(File.separatorChar, '/')));
+                Files.copy(file, out);
+            }
+        }
+        return JarSnapshot.read(jar, true);
+    }
+
+    private static Map<String, String> baseSources() {
+        Map<String, String> sources = new LinkedHashMap<>();
+        sources.put("Main", MAIN_SOURCE);
+        sources.put("Listener", LISTENER_SOURCE);
+        return sources;
+    }
+
+    private static Map<String, String> baseResources() {
+        Map<String, String> resources = new LinkedHashMap<>();
+        resources.put("plugin.yml", "name: Swap\nversion: 1.0\nmain: swap.fixture.Main\n");
+        resources.put("config.yml", "option: true\n");
+        resources.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\nBuild-Time: 1\n");
+        return resources;
+    }
+
+    @Test
+    public void methodBodyChangesAreSwappable() throws IOException {
+        Map<String, String> sources = baseSources();
+        sources.put("Main", MAIN_SOURCE.replace("\"Hello \"", "\"Hi \""));
+        Map<String, String> resources = baseResources();
+        resources.put("plugin.yml", "name: Swap\nversion: 1.1\nmain: swap.fixture.Main\n");
+        resources.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\nBuild-Time: 2\n");
+
+        List<String> changedClasses = new ArrayList<>();
+        assertNull(HotSwapper.findChangedClasses(build(baseSources(), baseResources()), build(sources, resources), changedClasses));
+        assertEquals(Collections.singletonList("swap/fixture/Main.class"), changedClasses);
+    }
+
+    @Test
+    public void identicalBuildsHaveNoChangedClasses() throws IOException {
+        List<String> changedClasses = new ArrayList<>();
+        assertNull(HotSwapper.findChangedClasses(build(baseSources(), baseResources()), build(baseSources(), baseResources()), changedClasses));
+        assertTrue(changedClasses.isEmpty());
+    }
+
+    @Test
+    public void schemaChangesAreNotSwappable() throws IOException {
+        Map<String, String> addedField = baseSources();
+        addedField.put("Main", MAIN_SOURCE.replace("private int count;", "private int count;\n    private long total;"));
+        assertEquals("class \"swap.fixture.Main\" changed more than method bodies",
+            HotSwapper.findChangedClasses(build(baseSources(), baseResources()), build(addedField, baseResources()), new ArrayList<>()));
+
+        Map<String, String> addedMethod = baseSources();
+        addedMethod.put("Listener", LISTENER_SOURCE.replace("void onEvent(Object event) {}", "void onEvent(Object event) {}\n    void onOther() {}"));
+        assertEquals("class \"swap.fixture.Listener\" changed more than method bodies",
+            HotSwapper.findChangedClasses(build(baseSources(), baseResources()), build(addedMethod, baseResources()), new ArrayList<>()));
+    }
+
+    @Test
+    public void addedAndRemovedClassesAreNotSwappable() throws IOException {
+        Map<String, String> removed = baseSources();
+        removed.remove("Listener");
+        assertEquals("classes were added or removed",
+            HotSwapper.findChangedClasses(build(baseSources(), baseResources()), build(removed, baseResources()), new ArrayList<>()));
+
+        Map<String, String> added = baseSources();
+        added.put("Command", "package swap.fixture;\npublic class Command {}\n");
+        assertEquals("classes were added or removed",
+            HotSwapper.findChangedClasses(build(baseSources(), baseResources()), build(added, baseResources()), new ArrayList<>()));
+    }
+
+    @Test
+    public void resourceChangesAreNotSwappable() throws IOException {
+        Map<String, String> changed = baseResources();
+        changed.put("config.yml", "option: false\n");
+        assertEquals("resource \"config.yml\" changed",
+            HotSwapper.findChangedClasses(build(baseSources(), baseResources()), build(baseSources(), changed), new ArrayList<>()));
+
+        Map<String, String> removed = baseResources();
+        removed.remove("config.yml");
+        assertEquals("resource \"config.yml\" was removed",
+            HotSwapper.findChangedClasses(build(baseSources(), baseResources()), build(baseSources(), removed), new ArrayList<>()));
+    }
+}
@@ -0,0 +1,118 @@
+package com.mikedeejay2.fastreload.system;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the classification of changes between {@link JarSnapshot JarSnapshots} by {@link JarChange}.
+ *
+ * @author Mikedeejay2
+ */
+public class JarChangeTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static Map<String, String> baseEntries() {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\nBuild-Time: 1\n");
+        entries.put("plugin.yml", "name: Test\nversion: 1.0\nmain: test.Main\n");
+        entries.put("config.yml", "option: true\n");
+        entries.put("test/Main.class", "main class");
+        entries.put("test/Listener.class", "listener class");
+        return entries;
+    }
+
+    private JarSnapshot snapshot(Map<String, String> entries) throws IOException {
+        File jar = folder.newFile();
+        try(ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar.toPath()))) {
+            for(Map.Entry<String, String> entry : entries.entrySet()) {
+                out.putNextEntry(new ZipEntry(entry.getKey()));
+                out.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return JarSnapshot.read(jar, false);
+    }
+
+    /**
+     * Classify a change both from full snapshots and from the fingerprints of the previous snapshot, which must agree.
+     */
+    private JarChange classify(Map<String, String> previousEntries, Map<String, String> currentEntries) throws IOException {
+        JarSnapshot previous = snapshot(previousEntries);
+        JarSnapshot current = snapshot(currentEntries);
+        JarChange change = JarChange.between(previous, current);
+        assertEquals(change, JarChange.between(previous.getClassesFingerprint(), previous.getResourcesFingerprint(), current));
+        return change;
+    }
+
+    @Test
+    public void identicalJarsAreUnchanged() throws IOException {
+        assertEquals(JarChange.NONE, classify(baseEntries(), baseEntries()));
+    }
+
+    @Test
+    public void versionAndMetaInfChangesAreIgnored() throws IOException {
+        Map<String, String> current = baseEntries();
+        current.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\nBuild-Time: 2\n");
+        current.put("META-INF/maven/test/pom.properties", "version=1.1\n");
+        current.put("plugin.yml", "name: Test\nversion: 1.1\nmain: test.Main\n");
+        assertEquals(JarChange.NONE, classify(baseEntries(), current));
+    }
+
+    @Test
+    public void descriptionChangesOtherThanVersionAreResources() throws IOException {
+        Map<String, String> current = baseEntries();
+        current.put("plugin.yml", "name: Test\nversion: 1.0\nmain: test.Main\ndepend: [Other]\n");
+        assertEquals(JarChange.RESOURCES, classify(baseEntries(), current));
+    }
+
+    @Test
+    public void changedAddedAndRemovedResourcesAreResources() throws IOException {
+        Map<String, String> changed = baseEntries();
+        changed.put("config.yml", "option: false\n");
+        assertEquals(JarChange.RESOURCES, classify(baseEntries(), changed));
+
+        Map<String, String> added = baseEntries();
+        added.put("messages.yml", "hello: world\n");
+        assertEquals(JarChange.RESOURCES, classify(baseEntries(), added));
+
+        Map<String, String> removed = baseEntries();
+        removed.remove("config.yml");
+        assertEquals(JarChange.RESOURCES, classify(baseEntries(), removed));
+    }
+
+    @Test
+    public void changedAddedAndRemovedClassesAreClasses() throws IOException {
+        Map<String, String> changed = baseEntries();
+        changed.put("test/Main.class", "changed main class");
+        changed.put("config.yml", "option: false\n");
+        assertEquals(JarChange.CLASSES, classify(baseEntries(), changed));
+
+        Map<String, String> added = baseEntries();
+        added.put("test/Command.class", "command class");
+        assertEquals(JarChange.CLASSES, classify(baseEntries(), added));
+
+        Map<String, String> removed = baseEntries();
+        removed.remove("test/Listener.class");
+        assertEquals(JarChange.CLASSES, classify(baseEntries(), removed));
+    }
+
+    @Test
+    public void moduleInfoIsNotAClass() {
+        assertTrue(JarSnapshot.isClass("test/Main.class"));
+        assertFalse(JarSnapshot.isClass("module-info.class"));
+        assertFalse(JarSnapshot.isClass("META-INF/versions/9/module-info.class"));
+        assertEquals("test.Main", JarSnapshot.toClassName("test/Main.class"));
+    }
+}
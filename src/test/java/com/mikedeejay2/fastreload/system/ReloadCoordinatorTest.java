@@ -0,0 +1,124 @@
+package com.mikedeejay2.fastreload.system;
+
+import org.bukkit.command.CommandSender;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests how the {@link ReloadCoordinator} merges reload requests. Scheduled reloads are queued instead of run on a
+ * server's main thread, so each test decides when the main thread runs them.
+ *
+ * @author Mikedeejay2
+ */
+public class ReloadCoordinatorTest {
+    private final Deque<Runnable> mainThread = new ArrayDeque<>();
+    private final Set<String> excluded = new HashSet<>();
+    private final ReloadCoordinator coordinator = new ReloadCoordinator(null, mainThread::add,
+        pluginName -> excluded.contains(pluginName.toLowerCase(Locale.ROOT)));
+    /**
+     * The messages that every sender received. Key = Sender name, value = Messages
+     */
+    private final Map<String, List<String>> messages = new HashMap<>();
+
+    private CommandSender sender(String name) {
+        messages.put(name, new ArrayList<>());
+        return (CommandSender) Proxy.newProxyInstance(CommandSender.class.getClassLoader(), new Class<?>[]{CommandSender.class},
+            (proxy, method, args) -> {
+                switch(method.getName()) {
+                    case "sendMessage":
+                        if(args.length == 1 && args[0] instanceof String) messages.get(name).add((String) args[0]);
+                        return null;
+                    case "getName":
+                        return name;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return null;
+                }
+            });
+    }
+
+    private void runMainThread() {
+        while(!mainThread.isEmpty()) {
+            mainThread.poll().run();
+        }
+    }
+
+    @Test
+    public void mergesRequestsForTheSamePlugin() {
+        CommandSender first = sender("First");
+        CommandSender second = sender("Second");
+        List<String> reloads = new ArrayList<>();
+        coordinator.submit("Test", first, sender -> {
+            reloads.add("first");
+            sender.sendMessage("Reloaded");
+        });
+        coordinator.submit("test", second, sender -> reloads.add("second"));
+        coordinator.submit("Test", second, sender -> reloads.add("second again"));
+        assertEquals(1, mainThread.size());
+        assertTrue(messages.get("Second").get(0).contains("merged"));
+
+        runMainThread();
+        assertEquals(Collections.singletonList("first"), reloads);
+        // Every merged requester receives the messages of the reload, once
+        assertEquals("Reloaded", messages.get("First").get(0));
+        assertEquals(Collections.singletonList("Reloaded"), messages.get("Second").subList(2, messages.get("Second").size()));
+    }
+
+    @Test
+    public void requestsDuringAReloadGetAFollowUpReload() {
+        CommandSender sender = sender("Sender");
+        List<String> reloads = new ArrayList<>();
+        coordinator.submit("Test", sender, requester -> {
+            reloads.add("first");
+            coordinator.submit("Test", requester, followUp -> reloads.add("follow-up"));
+            coordinator.submit("Test", requester, followUp -> reloads.add("merged"));
+        });
+        coordinator.submit("Other", sender, requester -> reloads.add("other"));
+        runMainThread();
+        assertEquals(Arrays.asList("first", "other", "follow-up"), reloads);
+    }
+
+    @Test
+    public void fullReloadCoversIncludedPluginsOnly() {
+        excluded.add("excluded");
+        CommandSender sender = sender("Sender");
+        List<String> reloads = new ArrayList<>();
+        coordinator.submit("", sender, requester -> reloads.add("full"));
+        coordinator.submit("Test", sender, requester -> reloads.add("test"));
+        coordinator.submit("Excluded", sender, requester -> reloads.add("excluded"));
+        assertEquals(2, mainThread.size());
+        runMainThread();
+        assertEquals(Arrays.asList("full", "excluded"), reloads);
+    }
+
+    @Test
+    public void pendingPluginReloadIsNotMergedIntoALaterFullReload() {
+        CommandSender sender = sender("Sender");
+        List<String> reloads = new ArrayList<>();
+        coordinator.submit("Test", sender, requester -> reloads.add("test"));
+        coordinator.submit("", sender, requester -> reloads.add("full"));
+        coordinator.submit("", sender, requester -> reloads.add("full again"));
+        runMainThread();
+        assertEquals(Arrays.asList("test", "full"), reloads);
+    }
+
+    @Test
+    public void runNowLeavesAPendingFullReloadAlone() {
+        CommandSender sender = sender("Sender");
+        List<String> reloads = new ArrayList<>();
+        coordinator.submit("", sender, requester -> reloads.add("full"));
+        assertEquals(Integer.valueOf(5), coordinator.runNow(Collections.singletonList("Test"), ReloadTrigger.API, () -> {
+            reloads.add("now");
+            return 5;
+        }));
+        runMainThread();
+        assertEquals(Arrays.asList("now", "full"), reloads);
+    }
+}
@@ -0,0 +1,140 @@
+package com.mikedeejay2.fastreload.system;
+
+import com.mikedeejay2.fastreload.api.ReloadPhase;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests appending to and reading back from the {@link ReloadJournal} ring file.
+ *
+ * @author Mikedeejay2
+ */
+public class ReloadJournalTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final ReloadRecord record = new ReloadRecord(new ReloadWatchdog(null));
+
+    private void append(ReloadJournal journal, String pluginName, ReloadTrigger trigger, boolean success, int classesLoaded) {
+        record.begin(pluginName, trigger);
+        record.beginPhase(ReloadPhase.LOAD);
+        record.endPhase(ReloadPhase.LOAD, 0);
+        record.finish(success, classesLoaded);
+        journal.append(record);
+    }
+
+    @Test
+    public void readsLatestRecordsNewestFirst() throws IOException {
+        File file = new File(folder.getRoot(), "journal/" + ReloadJournal.FILE_NAME);
+        try(ReloadJournal journal = new ReloadJournal(file, 8)) {
+            append(journal, "First", ReloadTrigger.COMMAND, true, 10);
+            append(journal, "Second", ReloadTrigger.AUTO, false, -1);
+            assertEquals(2, journal.size());
+
+            List<ReloadJournal.Entry> entries = journal.readLatest(10);
+            assertEquals(2, entries.size());
+            ReloadJournal.Entry latest = entries.get(0);
+            assertEquals("Second", latest.getPluginName());
+            assertEquals(ReloadTrigger.AUTO, latest.getTrigger());
+            assertFalse(latest.isSuccess());
+            assertEquals(-1, latest.getClassesLoaded());
+            ReloadJournal.Entry first = entries.get(1);
+            assertEquals("First", first.getPluginName());
+            assertEquals(ReloadTrigger.COMMAND, first.getTrigger());
+            assertTrue(first.isSuccess());
+            assertEquals(10, first.getClassesLoaded());
+            assertEquals(first.getTotalNanos(), first.getPhaseNanos(ReloadPhase.LOAD));
+            assertEquals(0, first.getPhaseNanos(ReloadPhase.ENABLE));
+        }
+    }
+
+    @Test
+    public void wrapsAroundOverwritingTheOldestRecords() throws IOException {
+        File file = new File(folder.getRoot(), ReloadJournal.FILE_NAME);
+        try(ReloadJournal journal = new ReloadJournal(file, 5)) {
+            for(int i = 0; i < 12; ++i) {
+                append(journal, "Plugin" + i, ReloadTrigger.API, true, i);
+            }
+            assertEquals(5, journal.size());
+            List<ReloadJournal.Entry> entries = journal.readLatest(100);
+            assertEquals(5, entries.size());
+            for(int i = 0; i < entries.size(); ++i) {
+                assertEquals("Plugin" + (11 - i), entries.get(i).getPluginName());
+                assertEquals(11 - i, entries.get(i).getClassesLoaded());
+            }
+            assertEquals(2, journal.readLatest(2).size());
+            assertTrue(journal.readLatest(-1).isEmpty());
+        }
+    }
+
+    @Test
+    public void keepsRecordsAcrossReopening() throws IOException {
+        File file = new File(folder.getRoot(), ReloadJournal.FILE_NAME);
+        try(ReloadJournal journal = new ReloadJournal(file, 4)) {
+            for(int i = 0; i < 6; ++i) {
+                append(journal, "Plugin" + i, ReloadTrigger.SOCKET, true, i);
+            }
+        }
+        try(ReloadJournal journal = new ReloadJournal(file, 4)) {
+            assertEquals(4, journal.size());
+            assertEquals("Plugin5", journal.readLatest(1).get(0).getPluginName());
+            // Appending continues after the newest record instead of overwriting it
+            append(journal, "Plugin6", ReloadTrigger.SOCKET, true, 6);
+            List<ReloadJournal.Entry> entries = journal.readLatest(4);
+            assertEquals("Plugin6", entries.get(0).getPluginName());
+            assertEquals("Plugin3", entries.get(3).getPluginName());
+        }
+    }
+
+    @Test
+    public void discardsJournalOfAnotherCapacity() throws IOException {
+        File file = new File(folder.getRoot(), ReloadJournal.FILE_NAME);
+        try(ReloadJournal journal = new ReloadJournal(file, 4)) {
+            append(journal, "Plugin", ReloadTrigger.COMMAND, true, 1);
+        }
+        try(ReloadJournal journal = new ReloadJournal(file, 16)) {
+            assertEquals(0, journal.size());
+        }
+    }
+
+    @Test
+    public void keepsRecordsAfterShrinking() throws IOException {
+        File file = new File(folder.getRoot(), ReloadJournal.FILE_NAME);
+        try(ReloadJournal journal = new ReloadJournal(file, 16)) {
+            append(journal, "Plugin", ReloadTrigger.COMMAND, true, 1);
+        }
+        long largeSize = file.length();
+        try(ReloadJournal journal = new ReloadJournal(file, 4)) {
+            assertEquals(0, journal.size());
+            append(journal, "Plugin", ReloadTrigger.COMMAND, true, 1);
+        }
+        assertTrue(file.length() < largeSize);
+        // The smaller journal is no longer discarded when it is opened again
+        try(ReloadJournal journal = new ReloadJournal(file, 4)) {
+            assertEquals(1, journal.size());
+        }
+    }
+
+    @Test
+    public void truncatesAndSanitizesPluginNames() throws IOException {
+        StringBuilder longName = new StringBuilder();
+        for(int i = 0; i < 100; ++i) {
+            longName.append('n');
+        }
+        File file = new File(folder.getRoot(), ReloadJournal.FILE_NAME);
+        try(ReloadJournal journal = new ReloadJournal(file, 4)) {
+            append(journal, longName.toString(), ReloadTrigger.COMMAND, true, 1);
+            append(journal, "Pl\u00FCgin", ReloadTrigger.COMMAND, true, 1);
+            List<ReloadJournal.Entry> entries = journal.readLatest(2);
+            assertEquals("Pl?gin", entries.get(0).getPluginName());
+            assertEquals(longName.substring(0, 64), entries.get(1).getPluginName());
+        }
+    }
+}
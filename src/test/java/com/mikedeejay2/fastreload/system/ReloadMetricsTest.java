@@ -0,0 +1,103 @@
+package com.mikedeejay2.fastreload.system;
+
+import com.mikedeejay2.fastreload.api.ReloadPhase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the Prometheus text exposition that {@link ReloadMetrics} renders.
+ *
+ * @author Mikedeejay2
+ */
+public class ReloadMetricsTest {
+    private final ReloadMetrics metrics = new ReloadMetrics();
+
+    private static List<String> lines(String rendered, String prefix) {
+        List<String> lines = new ArrayList<>();
+        for(String line : rendered.split("\n")) {
+            if(line.startsWith(prefix)) lines.add(line);
+        }
+        return lines;
+    }
+
+    private void recordReload(String pluginName, ReloadTrigger trigger, boolean success) {
+        ReloadRecord record = new ReloadRecord(new ReloadWatchdog(null));
+        record.begin(pluginName, trigger);
+        record.beginPhase(ReloadPhase.ENABLE);
+        record.endPhase(ReloadPhase.ENABLE, 0);
+        record.finish(success, 0);
+        metrics.recordReload(record);
+    }
+
+    @Test
+    public void everyMetricHasHelpAndType() {
+        String rendered = metrics.render();
+        assertTrue(rendered.endsWith("\n"));
+        for(String line : rendered.split("\n")) {
+            if(!line.startsWith("# TYPE ")) continue;
+            String name = line.split(" ")[2];
+            assertTrue(name, rendered.contains("# HELP " + name + " "));
+            assertTrue(line, line.endsWith(" counter") || line.endsWith(" histogram"));
+        }
+        assertTrue(rendered.contains("# TYPE fastreload_scan_duration_seconds histogram\n"));
+        assertTrue(rendered.contains("fastreload_scans_total 0\n"));
+    }
+
+    @Test
+    public void bucketsAreCumulative() {
+        metrics.recordScan(500_000, 3, 0);      // 0.5 ms, in the first bucket
+        metrics.recordScan(20_000_000, 4, 1);   // 20 ms
+        metrics.recordScan(20_000_000_000L, 5, 2); // 20 s, only in +Inf
+
+        List<String> buckets = lines(metrics.render(), "fastreload_scan_duration_seconds_bucket");
+        assertEquals(13, buckets.size());
+        assertEquals("fastreload_scan_duration_seconds_bucket{le=\"0.001\"} 1", buckets.get(0));
+        assertEquals("fastreload_scan_duration_seconds_bucket{le=\"0.01\"} 1", buckets.get(2));
+        assertEquals("fastreload_scan_duration_seconds_bucket{le=\"0.025\"} 2", buckets.get(3));
+        assertEquals("fastreload_scan_duration_seconds_bucket{le=\"10.0\"} 2", buckets.get(11));
+        assertEquals("fastreload_scan_duration_seconds_bucket{le=\"+Inf\"} 3", buckets.get(12));
+        long previous = 0;
+        for(String bucket : buckets) {
+            long value = Long.parseLong(bucket.substring(bucket.lastIndexOf(' ') + 1));
+            assertTrue(bucket, value >= previous);
+            previous = value;
+        }
+
+        String rendered = metrics.render();
+        assertTrue(rendered.contains("fastreload_scan_duration_seconds_count 3\n"));
+        assertTrue(rendered.contains("fastreload_scan_duration_seconds_sum 20.0205\n"));
+        assertTrue(rendered.contains("fastreload_scans_total 3\n"));
+        assertTrue(rendered.contains("fastreload_scan_jars_total 12\n"));
+        assertTrue(rendered.contains("fastreload_scan_changes_total 3\n"));
+    }
+
+    @Test
+    public void bucketBoundsAreInclusive() {
+        metrics.recordSyncCommands(5_000_000);
+        List<String> buckets = lines(metrics.render(), "fastreload_sync_commands_duration_seconds_bucket");
+        assertEquals("fastreload_sync_commands_duration_seconds_bucket{le=\"0.001\"} 0", buckets.get(0));
+        assertEquals("fastreload_sync_commands_duration_seconds_bucket{le=\"0.005\"} 1", buckets.get(1));
+    }
+
+    @Test
+    public void countsReloadsPerPluginAndTrigger() {
+        recordReload("Test", ReloadTrigger.COMMAND, true);
+        recordReload("Test", ReloadTrigger.COMMAND, false);
+        recordReload("Test", ReloadTrigger.AUTO, true);
+        recordReload("Quote\"d", ReloadTrigger.API, false);
+
+        String rendered = metrics.render();
+        assertTrue(rendered.contains("fastreload_reloads_total{plugin=\"Test\",trigger=\"command\"} 2\n"));
+        assertTrue(rendered.contains("fastreload_reloads_total{plugin=\"Test\",trigger=\"auto\"} 1\n"));
+        assertTrue(rendered.contains("fastreload_reload_failures_total{plugin=\"Test\",trigger=\"command\"} 1\n"));
+        assertFalse(rendered.contains("fastreload_reload_failures_total{plugin=\"Test\",trigger=\"auto\"}"));
+        assertTrue(rendered.contains("fastreload_reload_failures_total{plugin=\"Quote\\\"d\",trigger=\"api\"} 1\n"));
+        assertTrue(rendered.contains("fastreload_reload_duration_seconds_count{trigger=\"command\"} 2\n"));
+        assertTrue(rendered.contains("fastreload_reload_duration_seconds_bucket{trigger=\"command\",le=\"+Inf\"} 2\n"));
+        assertTrue(rendered.contains("fastreload_reload_duration_seconds_count{trigger=\"soak\"} 0\n"));
+    }
+}
@@ -0,0 +1,139 @@
+package com.mikedeejay2.fastreload.system;
+
+import com.mikedeejay2.fastreload.config.FastReloadConfig;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests matching plugins against the rules of {@link ReloadPolicies}.
+ *
+ * @author Mikedeejay2
+ */
+public class ReloadPoliciesTest {
+    /**
+     * The warnings that the policies logged
+     */
+    private final List<String> warnings = new ArrayList<>();
+
+    private ReloadPolicies policies(String yaml) throws Exception {
+        YamlConfiguration configuration = new YamlConfiguration();
+        configuration.loadFromString(yaml);
+        FastReloadConfig config = new FastReloadConfig(configuration);
+        config.loadConfig();
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                warnings.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {}
+
+            @Override
+            public void close() {}
+        });
+        return new ReloadPolicies(config, logger);
+    }
+
+    @Test
+    public void unmatchedPluginsUseTheDefaults() throws Exception {
+        ReloadPolicies policies = policies("Auto-Reload Wait Time: 2.5\n");
+        ReloadPolicies.Policy policy = policies.get("Anything");
+        assertTrue(policy.isAutoReload());
+        assertEquals(2500, policy.getDebounceMillis());
+        assertFalse(policy.isCascadeDependents());
+        assertFalse(policy.isExcludeFromFull());
+    }
+
+    @Test
+    public void exactNamesMatchCaseInsensitively() throws Exception {
+        ReloadPolicies policies = policies(
+            "Plugin Policies:\n" +
+            "  - Match: WorldEdit\n" +
+            "    Auto Reload: false\n" +
+            "    Debounce Time: 3.0\n");
+        assertFalse(policies.get("worldedit").isAutoReload());
+        assertEquals(3000, policies.get("WORLDEDIT").getDebounceMillis());
+        assertTrue(policies.get("WorldEditor").isAutoReload());
+    }
+
+    @Test
+    public void globsAndRegexesMatchInOrder() throws Exception {
+        ReloadPolicies policies = policies(
+            "Plugin Policies:\n" +
+            "  - Match: \"Test*\"\n" +
+            "    Cascade Dependents: true\n" +
+            "  - Match: \"regex:^Test[0-9]+$\"\n" +
+            "    Exclude From Full Reload: true\n" +
+            "  - Match: \"glob:Lib?\"\n" +
+            "    Auto Reload: false\n" +
+            "  - Match: \"regex:^Test[0-9]+$\"\n" +
+            "    Auto Reload: false\n" +
+            "  - Match: Test1\n" +
+            "    Debounce Time: 0.5\n");
+        // The first matching pattern wins
+        assertTrue(policies.get("Test42").isCascadeDependents());
+        assertFalse(policies.get("Test42").isExcludeFromFull());
+        assertTrue(policies.get("Test42").isAutoReload());
+        assertFalse(policies.get("libA").isAutoReload());
+        assertTrue(policies.get("LibAB").isAutoReload());
+        // Exact names take precedence over patterns
+        assertFalse(policies.get("Test1").isCascadeDependents());
+        assertEquals(500, policies.get("Test1").getDebounceMillis());
+    }
+
+    @Test
+    public void blacklistedPluginsAreExcluded() throws Exception {
+        ReloadPolicies policies = policies(
+            "Reload Filter Mode: Blacklist\n" +
+            "Filter List: [Essentials, \"glob:Lucky*\"]\n" +
+            "Plugin Policies:\n" +
+            "  - Match: Essentials\n" +
+            "    Cascade Dependents: true\n");
+        ReloadPolicies.Policy filtered = policies.get("essentials");
+        assertFalse(filtered.isAutoReload());
+        assertTrue(filtered.isExcludeFromFull());
+        assertTrue(filtered.isCascadeDependents());
+        assertTrue(policies.get("LuckyBlocks").isExcludeFromFull());
+        assertFalse(policies.get("Other").isExcludeFromFull());
+    }
+
+    @Test
+    public void whitelistExcludesUnlistedPlugins() throws Exception {
+        ReloadPolicies policies = policies(
+            "Reload Filter Mode: Whitelist\n" +
+            "Filter List: [\"regex:^Dev.*\"]\n");
+        assertTrue(policies.get("DevTools").isAutoReload());
+        assertFalse(policies.get("Production").isAutoReload());
+        assertTrue(policies.get("Production").isExcludeFromFull());
+    }
+
+    @Test
+    public void skipsInvalidRegularExpressions() throws Exception {
+        ReloadPolicies policies = policies(
+            "Reload Filter Mode: Blacklist\n" +
+            "Filter List: [\"regex:[Broken\", Essentials]\n" +
+            "Plugin Policies:\n" +
+            "  - Match: \"regex:(Test\"\n" +
+            "    Auto Reload: false\n" +
+            "  - Match: \"Test*\"\n" +
+            "    Cascade Dependents: true\n");
+        assertEquals(2, warnings.size());
+        assertTrue(warnings.get(0).contains("regex:[Broken"));
+        assertTrue(warnings.get(1).contains("regex:(Test"));
+        // The remaining rules still apply
+        assertTrue(policies.get("Essentials").isExcludeFromFull());
+        assertTrue(policies.get("Test1").isAutoReload());
+        assertTrue(policies.get("Test1").isCascadeDependents());
+    }
+}
@@ -0,0 +1,72 @@
+package com.mikedeejay2.fastreload.system;
+
+import com.mikedeejay2.fastreload.api.ReloadPhase;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the phase timings of a {@link ReloadRecord} and the worst phase times that the {@link ReloadWatchdog} records
+ * from them.
+ *
+ * @author Mikedeejay2
+ */
+public class ReloadRecordTest {
+    private final ReloadWatchdog watchdog = new ReloadWatchdog(null);
+    private final ReloadRecord record = new ReloadRecord(watchdog);
+
+    private void runPhase(ReloadPhase phase, long size, long sleepMillis) throws InterruptedException {
+        record.beginPhase(phase);
+        try {
+            Thread.sleep(sleepMillis);
+        } finally {
+            record.endPhase(phase, size);
+        }
+    }
+
+    @Test
+    public void recordsPhaseTimesAndSizes() throws InterruptedException {
+        record.begin("Test", ReloadTrigger.COMMAND);
+        runPhase(ReloadPhase.DISABLE, 0, 2);
+        runPhase(ReloadPhase.UNREGISTER, 3, 0);
+        runPhase(ReloadPhase.UNREGISTER, 4, 0);
+        record.finish(true, 12);
+
+        assertEquals("Test", record.getPluginName());
+        assertEquals(ReloadTrigger.COMMAND, record.getTrigger());
+        assertTrue(record.isSuccess());
+        assertEquals(12, record.getClassesLoaded());
+        assertTrue(record.getPhaseNanos(ReloadPhase.DISABLE) >= 2_000_000);
+        assertEquals(7, record.getPhaseSize(ReloadPhase.UNREGISTER));
+        assertEquals(0, record.getPhaseNanos(ReloadPhase.ENABLE));
+        assertEquals(record.getPhaseNanos(ReloadPhase.DISABLE) + record.getPhaseNanos(ReloadPhase.UNREGISTER), record.getTotalNanos());
+        assertTrue(record.formatPhases().startsWith("disable "));
+        assertFalse(record.formatPhases().contains("enable"));
+    }
+
+    @Test
+    public void beginResetsTheRecord() throws InterruptedException {
+        record.begin("First", ReloadTrigger.AUTO);
+        runPhase(ReloadPhase.LOAD, 100, 1);
+        record.finish(true, 5);
+
+        record.begin("Second", ReloadTrigger.API);
+        assertEquals("Second", record.getPluginName());
+        assertFalse(record.isSuccess());
+        assertEquals(-1, record.getClassesLoaded());
+        assertEquals(0, record.getTotalNanos());
+        assertEquals(0, record.getPhaseSize(ReloadPhase.LOAD));
+    }
+
+    @Test
+    public void watchdogKeepsTheWorstTimes() throws InterruptedException {
+        record.begin("Test", ReloadTrigger.COMMAND);
+        runPhase(ReloadPhase.ENABLE, 0, 5);
+        long worst = watchdog.getWorstEnableNanos("Test");
+        assertTrue(worst >= 5_000_000);
+        runPhase(ReloadPhase.ENABLE, 0, 0);
+        assertEquals(worst, watchdog.getWorstEnableNanos("Test"));
+        assertEquals(0, watchdog.getWorstDisableNanos("Test"));
+        assertEquals(0, watchdog.getWorstEnableNanos("Other"));
+    }
+}
@@ -0,0 +1,108 @@
+package com.mikedeejay2.fastreload.system;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests the checks that the {@link ReloadSocketServer} applies to request lines before they reach the main thread.
+ *
+ * @author Mikedeejay2
+ */
+public class ReloadSocketServerTest {
+    private static final byte[] TOKEN = "secret".getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String check(String line) {
+        return ReloadSocketServer.checkRequest(TOKEN, line.split(" ", 3));
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void rejectsWrongTokens() {
+        assertEquals(ReloadSocketServer.INVALID_TOKEN, check("wrong reload Test"));
+        assertEquals(ReloadSocketServer.INVALID_TOKEN, check("secre reload Test"));
+        assertEquals(ReloadSocketServer.INVALID_TOKEN, check("secrets reload Test"));
+        assertEquals(ReloadSocketServer.INVALID_TOKEN, check(""));
+        // The token is checked before the shape of the request, so nothing is revealed without it
+        assertEquals(ReloadSocketServer.INVALID_TOKEN, check("wrong"));
+    }
+
+    @Test
+    public void rejectsIncompleteRequests() {
+        assertTrue(check("secret").startsWith("ERROR Expected"));
+        assertTrue(check("secret reload").startsWith("ERROR Expected"));
+        assertNull(check("secret reload Test"));
+        assertNull(check("secret jar plugins/Test Plugin.jar"));
+    }
+
+    @Test
+    public void readsLinesUpToTheLimit() throws IOException {
+        char[] longest = new char[ReloadSocketServer.MAX_LINE_LENGTH];
+        Arrays.fill(longest, 'a');
+        InputStream in = stream("first\n" + new String(longest) + "\nlast");
+        assertEquals("first", ReloadSocketServer.readLine(in));
+        assertEquals(new String(longest), ReloadSocketServer.readLine(in));
+        // The last line doesn't need a terminator
+        assertEquals("last", ReloadSocketServer.readLine(in));
+        assertNull(ReloadSocketServer.readLine(in));
+    }
+
+    @Test
+    public void readsUtf8Lines() throws IOException {
+        assertEquals("secret reload Pl\u00FCgin", ReloadSocketServer.readLine(stream("secret reload Pl\u00FCgin\n")));
+    }
+
+    @Test(expected = ReloadSocketServer.LineTooLongException.class)
+    public void rejectsLinesOverTheLimit() throws IOException {
+        char[] line = new char[ReloadSocketServer.MAX_LINE_LENGTH + 1];
+        Arrays.fill(line, 'a');
+        ReloadSocketServer.readLine(stream(new String(line) + "\n"));
+    }
+
+    @Test
+    public void acceptsOnlyJarsDirectlyInsideThePluginsFolder() throws IOException {
+        File plugins = folder.newFolder("plugins").getCanonicalFile();
+        File jar = new File(plugins, "Test.jar");
+        assertTrue(jar.createNewFile());
+        File nested = new File(folder.newFolder("plugins", "update"), "Test.jar");
+        File outside = folder.newFile("Outside.jar");
+
+        assertEquals(jar, ReloadSocketServer.resolveJar(plugins, jar));
+        assertEquals(jar, ReloadSocketServer.resolveJar(plugins, new File(plugins, "update/../Test.jar")));
+        assertNull(ReloadSocketServer.resolveJar(plugins, nested));
+        assertNull(ReloadSocketServer.resolveJar(plugins, outside));
+        assertNull(ReloadSocketServer.resolveJar(plugins, new File(plugins, "../Outside.jar")));
+        assertNull(ReloadSocketServer.resolveJar(plugins, plugins));
+    }
+
+    @Test
+    public void resolvesLinksBeforeCheckingThePath() throws IOException {
+        File plugins = folder.newFolder("plugins").getCanonicalFile();
+        File outside = folder.newFile("Outside.jar").getCanonicalFile();
+        File link = new File(plugins, "Link.jar");
+        try {
+            Files.createSymbolicLink(link.toPath(), outside.toPath());
+        } catch(UnsupportedOperationException | IOException e) {
+            assumeTrue("Symbolic links are not supported", false);
+        }
+        // A link in the plugins folder must not let a request reach a jar outside of it
+        assertNull(ReloadSocketServer.resolveJar(plugins, link));
+    }
+}
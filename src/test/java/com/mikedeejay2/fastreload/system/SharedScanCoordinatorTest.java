@@ -0,0 +1,127 @@
+package com.mikedeejay2.fastreload.system;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests leader election and the notices ring of the {@link SharedScanCoordinator}. Both coordinators run in the same
+ * JVM, where a second lock on the lock file fails like a lock held by another server.
+ *
+ * @author Mikedeejay2
+ */
+public class SharedScanCoordinatorTest {
+    private static final int SLOTS = 256;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private SharedScanCoordinator leader;
+    private SharedScanCoordinator follower;
+
+    @Before
+    public void openCoordinators() throws IOException {
+        Logger logger = Logger.getLogger(SharedScanCoordinatorTest.class.getName());
+        leader = new SharedScanCoordinator(logger, folder.getRoot());
+        follower = new SharedScanCoordinator(logger, folder.getRoot());
+        assertTrue(leader.tryLead());
+        assertFalse(follower.tryLead());
+    }
+
+    @After
+    public void closeCoordinators() {
+        follower.close();
+        leader.close();
+    }
+
+    @Test
+    public void onlyOneServerLeads() {
+        assertTrue(leader.isLeader());
+        assertFalse(follower.isLeader());
+        assertTrue(leader.tryLead());
+        assertEquals(folder.getRoot(), follower.getDirectory());
+    }
+
+    @Test
+    public void followerReadsNoticesInOrder() {
+        leader.publish("Core", null);
+        leader.publish("Addon", JarChange.RESOURCES);
+        leader.publish("Core", JarChange.CLASSES);
+        List<SharedScanCoordinator.Notice> notices = follower.poll();
+        assertEquals(3, notices.size());
+        assertEquals("Core", notices.get(0).getPluginName());
+        assertNull(notices.get(0).getChange());
+        assertEquals("Addon", notices.get(1).getPluginName());
+        assertEquals(JarChange.RESOURCES, notices.get(1).getChange());
+        assertEquals(JarChange.CLASSES, notices.get(2).getChange());
+        assertTrue(follower.poll().isEmpty());
+    }
+
+    @Test
+    public void followersOnlyPublishWhenLeading() {
+        follower.publish("Ignored", JarChange.CLASSES);
+        assertTrue(follower.poll().isEmpty());
+    }
+
+    @Test
+    public void skipsOverwrittenNotices() {
+        int published = SLOTS + 44;
+        for(int i = 0; i < published; ++i) {
+            leader.publish("Plugin" + i, JarChange.CLASSES);
+        }
+        List<SharedScanCoordinator.Notice> notices = follower.poll();
+        assertEquals(SLOTS, notices.size());
+        assertEquals("Plugin" + (published - SLOTS), notices.get(0).getPluginName());
+        assertEquals("Plugin" + (published - 1), notices.get(SLOTS - 1).getPluginName());
+    }
+
+    @Test
+    public void newFollowersStartAfterExistingNotices() throws IOException {
+        leader.publish("Core", JarChange.CLASSES);
+        SharedScanCoordinator late = new SharedScanCoordinator(Logger.getLogger(SharedScanCoordinatorTest.class.getName()), folder.getRoot());
+        try {
+            assertTrue(late.poll().isEmpty());
+            leader.publish("Addon", JarChange.CLASSES);
+            assertEquals("Addon", late.poll().get(0).getPluginName());
+        } finally {
+            late.close();
+        }
+    }
+
+    @Test
+    public void nextFollowerTakesOverWhenTheLeaderCloses() throws IOException {
+        SharedScanCoordinator other = new SharedScanCoordinator(Logger.getLogger(SharedScanCoordinatorTest.class.getName()), folder.getRoot());
+        try {
+            leader.publish("Core", JarChange.CLASSES);
+            leader.close();
+            assertTrue(follower.tryLead());
+            assertFalse(other.tryLead());
+            // The new leader continues the sequence of the previous one
+            follower.publish("Addon", JarChange.RESOURCES);
+            List<SharedScanCoordinator.Notice> notices = other.poll();
+            assertEquals(2, notices.size());
+            assertEquals("Core", notices.get(0).getPluginName());
+            assertEquals("Addon", notices.get(1).getPluginName());
+        } finally {
+            other.close();
+        }
+    }
+
+    @Test
+    public void truncatesLongPluginNames() {
+        StringBuilder name = new StringBuilder();
+        for(int i = 0; i < 200; ++i) {
+            name.append('n');
+        }
+        leader.publish(name.toString(), JarChange.CLASSES);
+        assertEquals(110, follower.poll().get(0).getPluginName().length());
+    }
+}
@@ -0,0 +1,182 @@
+package com.mikedeejay2.fastreload.system;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeNotNull;
+
+/**
+ * Soak regression harness: reloads a generated plugin jar many times on a stand-in server and fails if the trend of
+ * the loaded classes or open file descriptors grows faster than the default maximum slopes of {@link SoakTest}.
+ * <p>
+ * The generated plugin has a listener, a command executor, a permission and a static cache. The stand-in server loads
+ * every generation through its own class loader like the plugin loader does, and closes and forgets the previous one.
+ * A leaking stand-in that keeps its old class loaders proves that the harness catches a leak.
+ *
+ * @author Mikedeejay2
+ */
+public class SoakRegressionTest {
+    private static final int CYCLES = 200;
+    private static final int WARMUP = 20;
+    private static final double MAX_CLASS_SLOPE = 0.5;
+    private static final double MAX_FD_SLOPE = 0.01;
+    private static final String MAIN_CLASS = "soak.fixture.FixturePlugin";
+    private static final String SOURCE =
+        "package soak.fixture;\n" +
+        "public class FixturePlugin implements Runnable, AutoCloseable {\n" +
+        "    static final java.util.Map<String, byte[]> CACHE = new java.util.HashMap<>();\n" +
+        "    private final java.util.List<Object> registered = new java.util.ArrayList<>();\n" +
+        "    public void run() {\n" +
+        "        CACHE.put(\"data\", new byte[64 * 1024]);\n" +
+        "        registered.add(new Listener());\n" +
+        "        registered.add(new Command());\n" +
+        "        registered.add(\"fixture.use\");\n" +
+        "    }\n" +
+        "    public void close() {\n" +
+        "        registered.clear();\n" +
+        "        CACHE.clear();\n" +
+        "    }\n" +
+        "    static class Listener { void onEvent(Object event) {} }\n" +
+        "    static class Command { boolean onCommand(String[] args) { return true; } }\n" +
+        "}\n";
+
+    @ClassRule
+    public static final TemporaryFolder folder = new TemporaryFolder();
+
+    private static File jar;
+
+    @BeforeClass
+    public static void generateJar() throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeNotNull(compiler);
+        Path sources = folder.newFolder("src").toPath();
+        Path classes = folder.newFolder("classes").toPath();
+        Path source = sources.resolve("FixturePlugin.java");
+        Files.write(source, SOURCE.getBytes(StandardCharsets.UTF_8));
+        assertEquals(0, compiler.run(null, null, null, "-d", classes.toString(), source.toString()));
+
+        jar = new File(folder.getRoot(), "Fixture.jar");
+        try(JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar.toPath()));
+            Stream<Path> files = Files.walk(classes)) {
+            out.putNextEntry(new JarEntry("plugin.yml"));
+            out.write(("name: Fixture\nmain: " + MAIN_CLASS + "\nversion: 1.0\n").getBytes(StandardCharsets.UTF_8));
+            for(Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                out.putNextEntry(new JarEntry(classes.relativize(file).toString().replace(File.separatorChar, '/')));
+                Files.copy(file, out);
+            }
+        }
+    }
+
+    @Test
+    public void reloadsDoNotLeak() throws Exception {
+        double[][] samples = soak(new StandInServer(false));
+        assertSlopeAtMost("loaded classes", samples[0], MAX_CLASS_SLOPE);
+        if(samples[1][0] >= 0) assertSlopeAtMost("open fds", samples[1], MAX_FD_SLOPE);
+    }
+
+    @Test
+    public void leakingServerFails() throws Exception {
+        double[][] samples = soak(new StandInServer(true));
+        assertTrue("A leaked generation per reload must exceed the class slope",
+            SoakTest.slope(samples[0], WARMUP, CYCLES) > MAX_CLASS_SLOPE);
+    }
+
+    private static void assertSlopeAtMost(String metric, double[] samples, double maxSlope) {
+        double slope = SoakTest.slope(samples, WARMUP, CYCLES);
+        assertTrue(String.format("%s grew by %.4f per reload (max %.4f)", metric, slope, maxSlope), slope <= maxSlope);
+    }
+
+    /**
+     * Reload the generated plugin for every cycle and sample the loaded classes and open file descriptors.
+     *
+     * @param server The stand-in server to reload on
+     * @return The samples, indexed by metric and cycle. File descriptors are -1 if not available.
+     */
+    private static double[][] soak(StandInServer server) throws Exception {
+        ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+        double[][] samples = new double[2][CYCLES];
+        try {
+            for(int cycle = 0; cycle < CYCLES; ++cycle) {
+                server.reload();
+                System.gc();
+                samples[0][cycle] = classLoading.getLoadedClassCount();
+                samples[1][cycle] = getOpenFileDescriptors();
+            }
+        } finally {
+            server.close();
+        }
+        return samples;
+    }
+
+    private static long getOpenFileDescriptors() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if(os instanceof com.sun.management.UnixOperatingSystemMXBean) {
+            return ((com.sun.management.UnixOperatingSystemMXBean) os).getOpenFileDescriptorCount();
+        }
+        return -1;
+    }
+
+    /**
+     * Loads every generation of the generated plugin through its own class loader, like the plugin loader does.
+     */
+    private static final class StandInServer {
+        private final boolean leak;
+        private final List<URLClassLoader> leaked = new ArrayList<>();
+        private URLClassLoader loader;
+        private AutoCloseable instance;
+
+        private StandInServer(boolean leak) {
+            this.leak = leak;
+        }
+
+        private void reload() throws Exception {
+            disable();
+            loader = new URLClassLoader(new URL[]{jar.toURI().toURL()}, StandInServer.class.getClassLoader());
+            Class<?> mainClass = Class.forName(MAIN_CLASS, true, loader);
+            Object plugin = mainClass.getConstructor().newInstance();
+            ((Runnable) plugin).run();
+            instance = (AutoCloseable) plugin;
+        }
+
+        private void disable() throws Exception {
+            if(instance == null) return;
+            instance.close();
+            instance = null;
+            if(leak) {
+                leaked.add(loader);
+            } else {
+                loader.close();
+            }
+            loader = null;
+        }
+
+        private void close() throws Exception {
+            disable();
+            for(URLClassLoader leakedLoader : leaked) {
+                leakedLoader.close();
+            }
+            leaked.clear();
+        }
+    }
+}
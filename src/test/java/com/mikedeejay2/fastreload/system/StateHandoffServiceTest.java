@@ -0,0 +1,128 @@
+package com.mikedeejay2.fastreload.system;
+
+import org.bukkit.plugin.Plugin;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests how much state the {@link StateHandoffService} holds while state is deposited, claimed, replaced, discarded
+ * and swept.
+ *
+ * @author Mikedeejay2
+ */
+public class StateHandoffServiceTest {
+    private static final long TIMEOUT = 60_000;
+
+    private final List<String> messages = new ArrayList<>();
+    private final StateHandoffService service = new StateHandoffService(null, logger(), TIMEOUT, 100);
+
+    private Logger logger() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                messages.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {}
+
+            @Override
+            public void close() {}
+        });
+        return logger;
+    }
+
+    private static Plugin plugin(String name) {
+        return (Plugin) Proxy.newProxyInstance(Plugin.class.getClassLoader(), new Class<?>[]{Plugin.class},
+            (proxy, method, args) -> "getName".equals(method.getName()) ? name : null);
+    }
+
+    @Test
+    public void claimReturnsTheStateOnce() {
+        Plugin plugin = plugin("Test");
+        service.deposit(plugin, new byte[]{1, 2, 3});
+        assertTrue(service.hasState(plugin));
+        assertEquals(3, service.getTotalSize());
+
+        assertArrayEquals(new byte[]{1, 2, 3}, service.claim(plugin));
+        assertFalse(service.hasState(plugin));
+        assertEquals(0, service.getTotalSize());
+        assertNull(service.claim(plugin));
+    }
+
+    @Test
+    public void depositReplacesThePreviousState() {
+        Plugin plugin = plugin("Test");
+        service.deposit(plugin, new byte[60]);
+        // Only the new state counts against the limit
+        service.deposit(plugin, new byte[70]);
+        assertEquals(70, service.getTotalSize());
+        assertEquals(70, service.claim(plugin).length);
+        assertEquals(0, service.getTotalSize());
+    }
+
+    @Test
+    public void depositOverTheLimitIsRejected() {
+        Plugin first = plugin("First");
+        Plugin second = plugin("Second");
+        service.deposit(first, new byte[60]);
+        try {
+            service.deposit(second, new byte[41]);
+            fail("Deposit over the limit was accepted");
+        } catch(IllegalStateException expected) {}
+        assertFalse(service.hasState(second));
+        assertEquals(60, service.getTotalSize());
+
+        service.deposit(second, new byte[40]);
+        assertEquals(100, service.getTotalSize());
+    }
+
+    @Test
+    public void discardFreesTheState() {
+        Plugin plugin = plugin("Test");
+        service.deposit(plugin, new byte[10]);
+        service.discard(plugin);
+        service.discard(plugin);
+        assertFalse(service.hasState(plugin));
+        assertEquals(0, service.getTotalSize());
+    }
+
+    @Test
+    public void sweepDiscardsUnclaimedState() {
+        Plugin plugin = plugin("Test");
+        service.deposit(plugin, new byte[10]);
+        service.sweep(System.currentTimeMillis());
+        assertTrue(service.hasState(plugin));
+        assertTrue(messages.isEmpty());
+
+        service.sweep(System.currentTimeMillis() + TIMEOUT);
+        assertFalse(service.hasState(plugin));
+        assertEquals(0, service.getTotalSize());
+        assertEquals(1, messages.size());
+        assertTrue(messages.get(0).contains("10 bytes"));
+    }
+
+    @Test
+    public void loweredLimitOnlyAppliesToNewDeposits() {
+        Plugin first = plugin("First");
+        service.deposit(first, new byte[50]);
+        service.setLimits(TIMEOUT, 20);
+        assertTrue(service.hasState(first));
+        try {
+            service.deposit(plugin("Second"), new byte[1]);
+            fail("Deposit over the lowered limit was accepted");
+        } catch(IllegalStateException expected) {}
+        assertEquals(50, service.claim(first).length);
+        assertEquals(0, service.getTotalSize());
+    }
+}
@@ -0,0 +1,49 @@
+package com.mikedeejay2.fastreload.system;
+
+import org.junit.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests how the {@link ThreadLeakDetector} attributes threads to the class loader of a disabled plugin.
+ *
+ * @author Mikedeejay2
+ */
+public class ThreadLeakDetectorTest {
+    private static final Set<String> CLASS_NAMES = Collections.singleton("shaded.library.Worker");
+    private static final StackTraceElement[] LIBRARY_STACK = {
+        new StackTraceElement("java.lang.Thread", "sleep", "Thread.java", -2),
+        new StackTraceElement("shaded.library.Worker", "run", "Worker.java", 12),
+        new StackTraceElement("java.lang.Thread", "run", "Thread.java", 750)
+    };
+
+    private final ClassLoader loader = new URLClassLoader(new URL[0], null);
+
+    @Test
+    public void contextClassLoaderAttributesTheThread() {
+        Thread thread = new Thread(() -> {});
+        thread.setContextClassLoader(loader);
+        assertEquals(ThreadLeakDetector.Attribution.LOADER, ThreadLeakDetector.attribute(thread, new StackTraceElement[0], loader, CLASS_NAMES));
+        assertEquals(ThreadLeakDetector.Attribution.LOADER, ThreadLeakDetector.attribute(thread, LIBRARY_STACK, loader, CLASS_NAMES));
+    }
+
+    @Test
+    public void classNamesOnlyMakeTheThreadSuspected() {
+        // Another plugin running its own copy of a library that the disabled plugin shaded without relocating
+        Thread thread = new Thread(() -> {});
+        thread.setContextClassLoader(new URLClassLoader(new URL[0], null));
+        assertEquals(ThreadLeakDetector.Attribution.STACK, ThreadLeakDetector.attribute(thread, LIBRARY_STACK, loader, CLASS_NAMES));
+    }
+
+    @Test
+    public void unrelatedThreadsAreNotAttributed() {
+        Thread thread = new Thread(() -> {});
+        assertEquals(ThreadLeakDetector.Attribution.NONE, ThreadLeakDetector.attribute(thread, LIBRARY_STACK, loader, Collections.emptySet()));
+        assertEquals(ThreadLeakDetector.Attribution.NONE, ThreadLeakDetector.attribute(thread, new StackTraceElement[0], loader, CLASS_NAMES));
+    }
+}
@@ -0,0 +1,131 @@
+package com.mikedeejay2.fastreload.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests reading <code>plugin.yml</code> through {@link PluginDescriptorReader}, both from archives that it reads
+ * through the central directory and from archives that it leaves to {@link java.util.zip.ZipFile}.
+ *
+ * @author Mikedeejay2
+ */
+public class PluginDescriptorReaderTest {
+    private static final byte[] DESCRIPTOR = "name: Test\nversion: 1.0\nmain: test.Main\n".getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static void putEntry(ZipOutputStream out, String name, byte[] content, boolean stored) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        if(stored) {
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(content.length);
+            entry.setCrc(crc.getValue());
+        }
+        out.putNextEntry(entry);
+        out.write(content);
+    }
+
+    private File writeJar(byte[] prefix, String comment, int padding, String descriptorName, byte[] descriptor, boolean stored) throws IOException {
+        File jar = folder.newFile();
+        try(OutputStream file = Files.newOutputStream(jar.toPath())) {
+            file.write(prefix);
+            ZipOutputStream out = new ZipOutputStream(file);
+            if(comment != null) out.setComment(comment);
+            putEntry(out, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n".getBytes(StandardCharsets.UTF_8), false);
+            for(int i = 0; i < padding; ++i) {
+                out.putNextEntry(new ZipEntry("padding/" + i));
+            }
+            if(descriptorName != null) putEntry(out, descriptorName, descriptor, stored);
+            out.finish();
+        }
+        return jar;
+    }
+
+    private File writeJar(String descriptorName, boolean stored) throws IOException {
+        return writeJar(new byte[0], null, 0, descriptorName, DESCRIPTOR, stored);
+    }
+
+    @Test
+    public void readsDeflatedDescriptor() throws IOException {
+        assertArrayEquals(DESCRIPTOR, PluginDescriptorReader.readDescriptor(writeJar("plugin.yml", false)));
+    }
+
+    @Test
+    public void readsStoredDescriptor() throws IOException {
+        assertArrayEquals(DESCRIPTOR, PluginDescriptorReader.readDescriptor(writeJar("plugin.yml", true)));
+    }
+
+    @Test
+    public void readsDescriptorLargerThanTheReadBuffer() throws IOException {
+        byte[] descriptor = new byte[200 * 1024];
+        Arrays.fill(descriptor, (byte) '#');
+        System.arraycopy(DESCRIPTOR, 0, descriptor, 0, DESCRIPTOR.length);
+        File jar = writeJar(new byte[0], null, 0, "plugin.yml", descriptor, false);
+        assertArrayEquals(descriptor, PluginDescriptorReader.readDescriptor(jar));
+    }
+
+    @Test
+    public void jarsWithoutPluginYmlHaveNoDescriptor() throws IOException {
+        assertNull(PluginDescriptorReader.readDescriptor(writeJar(null, false)));
+        // Paper plugins aren't Bukkit plugins
+        assertNull(PluginDescriptorReader.readDescriptor(writeJar("paper-plugin.yml", false)));
+        assertNull(PluginDescriptorReader.readDescriptor(writeJar("sub/plugin.yml", false)));
+    }
+
+    @Test
+    public void readsCommentedArchive() throws IOException {
+        char[] comment = new char[0xFFFF];
+        Arrays.fill(comment, 'c');
+        File jar = writeJar(new byte[0], new String(comment), 0, "plugin.yml", DESCRIPTOR, false);
+        assertArrayEquals(DESCRIPTOR, PluginDescriptorReader.readDescriptor(jar));
+    }
+
+    @Test
+    public void readsPrefixedArchive() throws IOException {
+        byte[] prefix = "#!/bin/sh\nexec java -jar \"$0\" \"$@\"\n".getBytes(StandardCharsets.UTF_8);
+        File jar = writeJar(prefix, null, 0, "plugin.yml", DESCRIPTOR, false);
+        assertArrayEquals(DESCRIPTOR, PluginDescriptorReader.readDescriptor(jar));
+    }
+
+    @Test
+    public void readsZip64Archive() throws IOException {
+        // More than 65535 entries make the archive use ZIP64 end of central directory records
+        File jar = writeJar(new byte[0], null, 0x10000, "plugin.yml", DESCRIPTOR, false);
+        assertArrayEquals(DESCRIPTOR, PluginDescriptorReader.readDescriptor(jar));
+    }
+
+    @Test
+    public void manyEntriesBeforeTheDescriptor() throws IOException {
+        // The central directory spans several reads of the buffer
+        File jar = writeJar(new byte[0], null, 5000, "plugin.yml", DESCRIPTOR, true);
+        assertArrayEquals(DESCRIPTOR, PluginDescriptorReader.readDescriptor(jar));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsFilesThatAreNotArchives() throws IOException {
+        File file = folder.newFile();
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for(int i = 0; i < 100; ++i) {
+            content.write(DESCRIPTOR);
+        }
+        Files.write(file.toPath(), content.toByteArray());
+        PluginDescriptorReader.readDescriptor(file);
+    }
+}